@@ -0,0 +1,122 @@
+package com.mictale.jsonite;
+
+import java.util.Random;
+
+/**
+ * Synthetic documents that resemble the JSON the library typically handles.
+ * <p>
+ * All documents are generated from a fixed seed, so every run measures the same input.
+ */
+public enum Corpus {
+
+	/**
+	 * A small API response with a handful of nested members.
+	 */
+	SMALL {
+		@Override
+		void generate(StringBuilder sb, Random random) {
+			sb.append("{\"id\": ").append(random.nextInt(1000000))
+				.append(", \"status\": \"ok\", \"user\": {\"name\": \"Jane Doe\", \"email\": \"jane@example.com\", \"admin\": false}")
+				.append(", \"items\": [");
+			for (int i = 0; i < 5; i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append("{\"sku\": \"A-").append(random.nextInt(10000))
+					.append("\", \"quantity\": ").append(1 + random.nextInt(5))
+					.append(", \"price\": ").append(random.nextInt(10000) / 100.0)
+					.append("}");
+			}
+			sb.append("], \"meta\": {\"page\": 1, \"total\": 5, \"next\": null}}");
+		}
+	},
+
+	/**
+	 * A large array of measurements with integral and fractional numbers.
+	 */
+	NUMBERS {
+		@Override
+		void generate(StringBuilder sb, Random random) {
+			sb.append("[");
+			for (int i = 0; i < 20000; i++) {
+				if (i > 0) {
+					sb.append(",");
+				}
+				sb.append("[").append(1500000000000L + i * 1000L)
+					.append(",").append(random.nextGaussian() * 100)
+					.append(",").append(random.nextInt(4096))
+					.append("]");
+			}
+			sb.append("]");
+		}
+	},
+
+	/**
+	 * A deep tree of small objects.
+	 */
+	NESTED {
+		@Override
+		void generate(StringBuilder sb, Random random) {
+			node(sb, random, 7);
+		}
+
+		private void node(StringBuilder sb, Random random, int depth) {
+			sb.append("{\"name\": \"node").append(random.nextInt(1000))
+				.append("\", \"weight\": ").append(random.nextInt(100))
+				.append(", \"children\": [");
+			if (depth > 0) {
+				for (int i = 0; i < 3; i++) {
+					if (i > 0) {
+						sb.append(", ");
+					}
+					node(sb, random, depth - 1);
+				}
+			}
+			sb.append("]}");
+		}
+	},
+
+	/**
+	 * Documents that consist mostly of text, including escapes and non-ASCII characters.
+	 */
+	STRINGS {
+		@Override
+		void generate(StringBuilder sb, Random random) {
+			String[] words = {"lorem", "ipsum", "dolor", "sit", "amet", "na\u00efve", "caf\u00e9", "Gr\u00fc\u00dfe", "\\\"quoted\\\"", "line\\nbreak", "tab\\t", "\u20ac"};
+			sb.append("[");
+			for (int i = 0; i < 2000; i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append("{\"title\": \"");
+				words(sb, random, words, 6);
+				sb.append("\", \"body\": \"");
+				words(sb, random, words, 60);
+				sb.append("\", \"tags\": [\"a\", \"b\"]}");
+			}
+			sb.append("]");
+		}
+
+		private void words(StringBuilder sb, Random random, String[] words, int n) {
+			for (int i = 0; i < n; i++) {
+				if (i > 0) {
+					sb.append(' ');
+				}
+				sb.append(words[random.nextInt(words.length)]);
+			}
+		}
+	};
+
+	abstract void generate(StringBuilder sb, Random random);
+
+	/**
+	 * Creates the JSON text of this corpus.
+	 *
+	 * @return the JSON text.
+	 */
+	public String json() {
+		StringBuilder sb = new StringBuilder();
+		generate(sb, new Random(42));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,72 @@
+package com.mictale.jsonite;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building trees with {@link JsonBuilder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBuilderBenchmark {
+
+	/**
+	 * Builds a document like {@link Corpus#SMALL}.
+	 */
+	@Benchmark
+	public JsonValue small() {
+		JsonBuilder builder = JsonBuilder.withObject()
+			.put("id", 4711)
+			.put("status", "ok")
+			.put("user").beginObject()
+				.put("name", "Jane Doe")
+				.put("email", "jane@example.com")
+				.put("admin", false)
+			.endObject()
+			.put("items").beginArray();
+		for (int i = 0; i < 5; i++) {
+			builder.beginObject()
+				.put("sku", "A-" + i)
+				.put("quantity", i + 1)
+				.put("price", i * 9.95)
+				.endObject();
+		}
+		return builder.endArray()
+			.put("meta").beginObject()
+				.put("page", 1)
+				.put("total", 5)
+				.put("next", JsonValue.NULL)
+			.endObject()
+			.endObject()
+			.value();
+	}
+
+	/**
+	 * Builds a document like {@link Corpus#NUMBERS}.
+	 */
+	@Benchmark
+	public JsonValue numbers() {
+		JsonBuilder builder = JsonBuilder.withArray();
+		for (int i = 0; i < 20000; i++) {
+			builder.beginArray()
+				.value(1500000000000L + i * 1000L)
+				.value(i * 0.125)
+				.value(i & 4095)
+				.endArray();
+		}
+		return builder.endArray().value();
+	}
+}
@@ -0,0 +1,61 @@
+package com.mictale.jsonite;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link JsonValue#parse(String)}, {@link JsonValue#parseLazily(String)} and
+ * {@link JsonValue#toString()} on every {@link Corpus}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonValueBenchmark {
+
+	@Param
+	public Corpus corpus;
+
+	private String json;
+
+	private JsonValue value;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		json = corpus.json();
+		value = JsonValue.parse(json);
+	}
+
+	@Benchmark
+	public JsonValue parse() {
+		return JsonValue.parse(json);
+	}
+
+	/**
+	 * Parses lazily and reads the top level, as a request that only needs a few members would.
+	 */
+	@Benchmark
+	public int parseLazily() {
+		JsonValue v = JsonValue.parseLazily(json);
+		return v.isObject() ? v.asObject().size() : v.asArray().size();
+	}
+
+	@Benchmark
+	public String toJson() {
+		return value.toString();
+	}
+}
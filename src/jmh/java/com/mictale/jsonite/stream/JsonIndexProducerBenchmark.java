@@ -0,0 +1,95 @@
+package com.mictale.jsonite.stream;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.mictale.jsonite.Corpus;
+import com.mictale.jsonite.JsonValue;
+
+/**
+ * Compares {@link JsonIndexProducer} with {@link JsonUtf8StreamProducer} on every {@link Corpus}.
+ * <p>
+ * The <code>index</code> benchmark only runs the first stage. All benchmarks process the whole
+ * document per operation, multiply the score by the size printed during setup to get bytes per
+ * second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonIndexProducerBenchmark {
+
+	@Param
+	public Corpus corpus;
+
+	private byte[] bytes;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		bytes = corpus.json().getBytes(Charset.forName("UTF-8"));
+		System.out.println(corpus + ": " + bytes.length + " bytes");
+	}
+
+	private static Consumer sink(final Blackhole bh) {
+		return new Consumer() {
+			@Override
+			public void append(Token token) {
+				bh.consume(token.getTokenType());
+			}
+		};
+	}
+
+	@Benchmark
+	public int index() {
+		StructuralIndex index = new StructuralIndex(bytes, 0, bytes.length);
+		int sum = 0;
+		int i;
+		while ((i = index.next()) >= 0) {
+			sum += i;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public void indexTokens(Blackhole bh) {
+		JsonIndexProducer producer = new JsonIndexProducer(bytes);
+		producer.setReuseTokens(true);
+		producer.copyTo(sink(bh));
+	}
+
+	@Benchmark
+	public void streamTokens(Blackhole bh) {
+		JsonUtf8StreamProducer producer = new JsonUtf8StreamProducer(bytes);
+		producer.setReuseTokens(true);
+		producer.setTrackPositions(false);
+		producer.copyTo(sink(bh));
+	}
+
+	@Benchmark
+	public JsonValue indexValue() {
+		return Transformation.asValue(new JsonIndexProducer(bytes));
+	}
+
+	@Benchmark
+	public JsonValue streamValue() {
+		JsonUtf8StreamProducer producer = new JsonUtf8StreamProducer(bytes);
+		producer.setTrackPositions(false);
+		return Transformation.asValue(producer);
+	}
+}
@@ -0,0 +1,156 @@
+package com.mictale.jsonite.stream;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mictale.jsonite.JsonNumber;
+import com.mictale.jsonite.JsonValue;
+
+/**
+ * Measures writing numbers and strings through {@link JsonStreamConsumer}.
+ * <p>
+ * The <code>toString</code> benchmarks show how the consumer used to write numbers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonStreamConsumerBenchmark {
+
+	private static final int COUNT = 100000;
+
+	/**
+	 * Collects the output like an unsynchronized {@link java.io.CharArrayWriter}.
+	 */
+	private final Writer sink = new Writer() {
+
+		private char[] chars = new char[1 << 16];
+
+		private void ensure(int n) {
+			if (n > chars.length) {
+				chars = Arrays.copyOf(chars, Math.max(n, chars.length * 2));
+			}
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			ensure(length + len);
+			System.arraycopy(cbuf, off, chars, length, len);
+			length += len;
+		}
+
+		@Override
+		public void write(int c) {
+			ensure(length + 1);
+			chars[length++] = (char) c;
+		}
+
+		@Override
+		public void write(String str, int off, int len) {
+			ensure(length + len);
+			str.getChars(off, off + len, chars, length);
+			length += len;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	};
+
+	private int length;
+
+	private Token[] doubles;
+
+	private Token[] longs;
+
+	private Token[] strings;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		doubles = new Token[COUNT];
+		longs = new Token[COUNT];
+		strings = new Token[COUNT / 10];
+		for (int i = 0; i < COUNT; i++) {
+			doubles[i] = new Token(TokenType.PRIMITIVE, JsonNumber.of(random.nextGaussian() * 1000));
+			longs[i] = new Token(TokenType.PRIMITIVE, JsonNumber.of(random.nextLong() >> random.nextInt(64)));
+		}
+		for (int i = 0; i < strings.length; i++) {
+			StringBuilder sb = new StringBuilder();
+			while (sb.length() < 200) {
+				sb.append("The quick brown fox jumps over the lazy dog ").append(i);
+				if (random.nextInt(4) == 0) {
+					sb.append("\n\"quoted\"\t");
+				}
+			}
+			strings[i] = new Token(TokenType.PRIMITIVE, JsonValue.of(sb.toString()));
+		}
+	}
+
+	private long consume(Token[] tokens) {
+		length = 0;
+		JsonStreamConsumer consumer = new JsonStreamConsumer(sink);
+		consumer.append(new Token(TokenType.START_ARRAY, null));
+		for (Token token : tokens) {
+			consumer.append(token);
+		}
+		consumer.append(new Token(TokenType.END_ARRAY, null));
+		return length;
+	}
+
+	private long toString(Token[] tokens) throws IOException {
+		length = 0;
+		for (Token token : tokens) {
+			JsonValue value = token.getValue();
+			sink.write(value.stringValue());
+			sink.write(',');
+		}
+		return length;
+	}
+
+	@Benchmark
+	public long doubles() {
+		return consume(doubles);
+	}
+
+	@Benchmark
+	public long doublesToString() throws IOException {
+		return toString(doubles);
+	}
+
+	@Benchmark
+	public long longs() {
+		return consume(longs);
+	}
+
+	@Benchmark
+	public long strings() {
+		return consume(strings);
+	}
+
+	@Benchmark
+	public long longsToString() throws IOException {
+		return toString(longs);
+	}
+}
@@ -0,0 +1,113 @@
+package com.mictale.jsonite.stream;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares block-buffered input of {@link JsonStreamProducer} with reading one character at a time.
+ * <p>
+ * A buffer size of <code>1</code> issues one {@link Reader} call per character, which is how the
+ * producer used to read its input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonStreamProducerBenchmark {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Param({"1", "16384"})
+	public int bufferSize;
+
+	private String json;
+
+	private File file;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < 10000; i++) {
+			if (i > 0) {
+				sb.append(",\n");
+			}
+			sb.append("{\"id\": ").append(i)
+				.append(", \"name\": \"item number ").append(i)
+				.append("\", \"price\": ").append(i * 0.25)
+				.append(", \"tags\": [\"a\", \"b\", \"c\"], \"active\": ").append(i % 2 == 0)
+				.append("}");
+		}
+		json = sb.append("]").toString();
+
+		file = File.createTempFile("jsonite", ".json");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF_8);
+		try {
+			writer.write(json);
+		} finally {
+			writer.close();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		file.delete();
+	}
+
+	private static Consumer sink(final Blackhole bh) {
+		return new Consumer() {
+			@Override
+			public void append(Token token) {
+				bh.consume(token);
+			}
+		};
+	}
+
+	@Benchmark
+	public void string(Blackhole bh) {
+		Producer producer = bufferSize == 1
+			? new JsonStreamProducer(new StringReader(json), bufferSize)
+			: new JsonStreamProducer(json);
+		producer.copyTo(sink(bh));
+	}
+
+	@Benchmark
+	public void reader(Blackhole bh) {
+		new JsonStreamProducer(new StringReader(json), bufferSize).copyTo(sink(bh));
+	}
+
+	@Benchmark
+	public void file(Blackhole bh) throws IOException {
+		Reader reader = new InputStreamReader(new FileInputStream(file), UTF_8);
+		try {
+			new JsonStreamProducer(reader, bufferSize).copyTo(sink(bh));
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.mictale.jsonite.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mictale.jsonite.Corpus;
+import com.mictale.jsonite.JsonValue;
+
+/**
+ * Measures {@link Transformation#copy(Consumer, Producer)} for every pair of producer and consumer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformationBenchmark {
+
+	/**
+	 * The producers under test.
+	 */
+	public enum Source {
+		STRING, READER, UTF8, VALUE
+	}
+
+	/**
+	 * The consumers under test.
+	 */
+	public enum Target {
+		WRITER, PRETTY, UTF8, VALUE
+	}
+
+	@Param
+	public Corpus corpus;
+
+	@Param
+	public Source source;
+
+	@Param
+	public Target target;
+
+	private String json;
+
+	private byte[] bytes;
+
+	private JsonValue value;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		json = corpus.json();
+		bytes = json.getBytes(Charset.forName("UTF-8"));
+		value = JsonValue.parse(json);
+	}
+
+	private Producer producer() {
+		switch (source) {
+		case STRING:
+			return new JsonStreamProducer(json);
+		case READER:
+			return new JsonStreamProducer(new StringReader(json));
+		case UTF8:
+			return new JsonUtf8StreamProducer(bytes);
+		case VALUE:
+			return new JsonValueProducer(value);
+		default:
+			throw new AssertionError(source);
+		}
+	}
+
+	@Benchmark
+	public Object copy() {
+		switch (target) {
+		case WRITER:
+			StringWriter writer = new StringWriter(json.length());
+			Transformation.copy(new JsonStreamConsumer(writer), producer());
+			return writer;
+		case PRETTY:
+			StringWriter pretty = new StringWriter(json.length());
+			Transformation.copy(new JsonPrettyStreamConsumer(pretty), producer());
+			return pretty;
+		case UTF8:
+			ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+			Transformation.copy(out, producer());
+			return out;
+		case VALUE:
+			return Transformation.asValue(producer());
+		default:
+			throw new AssertionError(target);
+		}
+	}
+}
@@ -0,0 +1,421 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The members of a {@link JsonObject} in insertion order.
+ * <p>
+ * Up to {@link #THRESHOLD} members are kept in two parallel arrays and found by a linear
+ * search, which needs neither a hash table nor an object per member. Larger maps switch
+ * to a {@link LinkedHashMap} for good.
+ * <p>
+ * A map created with an {@link ObjectShape} takes its names from the shape and only stores
+ * the values. New names move the map along the transitions of the shape, any other change
+ * to the names gives the map a private copy first.
+ *
+ * @author michael@mictale.com
+ */
+final class CompactMap extends AbstractMap<String, JsonValue> {
+
+	/**
+	 * The largest number of members kept in arrays.
+	 */
+	static final int THRESHOLD = 8;
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	/**
+	 * The names, shared with {@link #shape} if that is set.
+	 */
+	private String[] keys;
+
+	private JsonValue[] values;
+
+	private int size;
+
+	/**
+	 * The shape that holds the names or <code>null</code> if the names are private.
+	 */
+	private ObjectShape shape;
+
+	/**
+	 * The members once the map has grown beyond {@link #THRESHOLD} or <code>null</code>.
+	 */
+	private Map<String, JsonValue> hashed;
+
+	private int modCount;
+
+	private Set<Map.Entry<String, JsonValue>> entrySet;
+
+	CompactMap() {
+	}
+
+	CompactMap(ObjectShape shape) {
+		this.shape = shape;
+		this.keys = shape.keys;
+	}
+
+	private int indexOf(Object key) {
+		if (shape != null) {
+			return shape.indexOf(key);
+		}
+		for (int i = 0; i < size; i++) {
+			if (keys[i].equals(key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int size() {
+		return hashed == null ? size : hashed.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return hashed == null ? key != null && indexOf(key) >= 0 : hashed.containsKey(key);
+	}
+
+	@Override
+	public JsonValue get(Object key) {
+		if (hashed != null) {
+			return hashed.get(key);
+		}
+		int i = key == null ? -1 : indexOf(key);
+		return i < 0 ? null : values[i];
+	}
+
+	@Override
+	public JsonValue put(String key, JsonValue value) {
+		if (key == null) {
+			throw new NullPointerException("key");
+		}
+
+		if (hashed != null) {
+			return hashed.put(key, value);
+		}
+
+		int i = indexOf(key);
+		if (i >= 0) {
+			JsonValue old = values[i];
+			values[i] = value;
+			return old;
+		}
+
+		if (shape != null) {
+			ObjectShape next = shape.with(key);
+			if (next != null) {
+				if (values == null || size == values.length) {
+					int capacity = next.predictedSize();
+					if (capacity <= size + 1) {
+						capacity = Math.max(INITIAL_CAPACITY, size + (size >> 1));
+					}
+					JsonValue[] v = new JsonValue[capacity];
+					if (values != null) {
+						System.arraycopy(values, 0, v, 0, size);
+					}
+					values = v;
+				}
+				values[size++] = value;
+				shape = next;
+				keys = next.keys;
+				modCount++;
+				return null;
+			}
+
+			if (size < THRESHOLD) {
+				unshare();
+			}
+		}
+
+		if (size >= THRESHOLD) {
+			toHashed();
+			return hashed.put(key, value);
+		}
+
+		if (keys == null) {
+			keys = new String[INITIAL_CAPACITY];
+			values = new JsonValue[INITIAL_CAPACITY];
+		}
+		else if (size == keys.length) {
+			int capacity = Math.min(THRESHOLD, size * 2);
+			String[] k = new String[capacity];
+			JsonValue[] v = new JsonValue[capacity];
+			System.arraycopy(keys, 0, k, 0, size);
+			System.arraycopy(values, 0, v, 0, size);
+			keys = k;
+			values = v;
+		}
+
+		keys[size] = key;
+		values[size] = value;
+		size++;
+		modCount++;
+		return null;
+	}
+
+	private void toHashed() {
+		hashed = new LinkedHashMap<String, JsonValue>();
+		for (int i = 0; i < size; i++) {
+			hashed.put(keys[i], values[i]);
+		}
+		keys = null;
+		values = null;
+		size = 0;
+		shape = null;
+		modCount++;
+	}
+
+	/**
+	 * Leaves the shape with a private copy of the names before they are changed.
+	 */
+	private void unshare() {
+		int capacity = Math.max(INITIAL_CAPACITY, size);
+		String[] k = new String[capacity];
+		JsonValue[] v = new JsonValue[capacity];
+		System.arraycopy(keys, 0, k, 0, size);
+		if (values != null) {
+			System.arraycopy(values, 0, v, 0, size);
+		}
+		keys = k;
+		values = v;
+		shape = null;
+	}
+
+	@Override
+	public JsonValue remove(Object key) {
+		if (hashed != null) {
+			return hashed.remove(key);
+		}
+
+		int i = key == null ? -1 : indexOf(key);
+		if (i < 0) {
+			return null;
+		}
+
+		if (shape != null && size > THRESHOLD) {
+			toHashed();
+			return hashed.remove(key);
+		}
+
+		JsonValue old = values[i];
+		removeAt(i);
+		return old;
+	}
+
+	private void removeAt(int i) {
+		if (shape != null) {
+			unshare();
+		}
+
+		int n = size - i - 1;
+		System.arraycopy(keys, i + 1, keys, i, n);
+		System.arraycopy(values, i + 1, values, i, n);
+		size--;
+		keys[size] = null;
+		values[size] = null;
+		modCount++;
+	}
+
+	@Override
+	public void clear() {
+		if (hashed != null) {
+			hashed.clear();
+		}
+		else if (shape != null) {
+			keys = null;
+			values = null;
+			shape = null;
+			size = 0;
+			modCount++;
+		}
+		else {
+			for (int i = 0; i < size; i++) {
+				keys[i] = null;
+				values[i] = null;
+			}
+			size = 0;
+			modCount++;
+		}
+	}
+
+	/**
+	 * Compares the values slot by slot if both maps share a shape, like {@link AbstractMap#equals(Object)}
+	 * otherwise.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof CompactMap) {
+			CompactMap other = (CompactMap) obj;
+			if (shape != null && other.shape == shape) {
+				for (int i = 0; i < size; i++) {
+					JsonValue value = values[i];
+					if (value == null ? other.values[i] != null : !value.equals(other.values[i])) {
+						return false;
+					}
+				}
+				return true;
+			}
+		}
+		return super.equals(obj);
+	}
+
+	@Override
+	public int hashCode() {
+		if (hashed != null) {
+			return hashed.hashCode();
+		}
+		int hash = 0;
+		for (int i = 0; i < size; i++) {
+			JsonValue value = values[i];
+			hash += keys[i].hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+		return hash;
+	}
+
+	@Override
+	public Set<Map.Entry<String, JsonValue>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	private final class EntrySet extends AbstractSet<Map.Entry<String, JsonValue>> {
+
+		@Override
+		public Iterator<Map.Entry<String, JsonValue>> iterator() {
+			return hashed != null ? hashed.entrySet().iterator() : new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return CompactMap.this.size();
+		}
+
+		@Override
+		public void clear() {
+			CompactMap.this.clear();
+		}
+	}
+
+	private final class EntryIterator implements Iterator<Map.Entry<String, JsonValue>> {
+
+		private int next;
+
+		private int last = -1;
+
+		private int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+			return next < size;
+		}
+
+		@Override
+		public Map.Entry<String, JsonValue> next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next >= size) {
+				throw new NoSuchElementException();
+			}
+			last = next++;
+			return new Member(last);
+		}
+
+		@Override
+		public void remove() {
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeAt(last);
+			next = last;
+			last = -1;
+			expectedModCount = modCount;
+		}
+	}
+
+	/**
+	 * A view of a single member in the arrays.
+	 */
+	private final class Member implements Map.Entry<String, JsonValue> {
+
+		private final int index;
+
+		Member(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public String getKey() {
+			return keys[index];
+		}
+
+		@Override
+		public JsonValue getValue() {
+			return values[index];
+		}
+
+		@Override
+		public JsonValue setValue(JsonValue value) {
+			JsonValue old = values[index];
+			values[index] = value;
+			return old;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+			Object value = getValue();
+			return getKey().equals(other.getKey()) && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			JsonValue value = getValue();
+			return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+}
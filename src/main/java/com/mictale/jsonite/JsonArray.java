@@ -17,7 +17,6 @@
  */
 package com.mictale.jsonite;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -32,6 +31,15 @@ import com.mictale.jsonite.stream.JsonVisitor;
  *
  * {@link JsonArray} represents a cursor over itself: use {@link #hasNext()} and {@link #next()} to
  * iterate over the array and {@link #rewind()} to reset the cursor.
+ * <p>
+ * Arrays that only contain numbers store them as primitives, see {@link PackedList}.
+ * Use {@link #getLong(int)}, {@link #getDouble(int)}, {@link #nextLong()}, {@link #nextDouble()},
+ * {@link #toLongArray()} and {@link #toDoubleArray()} to read them without creating
+ * a {@link JsonNumber} for every element.
+ * <p>
+ * A frozen array rejects all changes, see {@link #freeze()}. The cursor is the only state
+ * that changes on a frozen array, so threads that share one should use {@link #iterator()}
+ * or indexed access instead.
  * 
  * @author michael@mictale.com
  */
@@ -40,21 +48,37 @@ public final class JsonArray extends JsonValue implements List<JsonValue> {
 	/**
 	 * Represents a {@link JsonArray} that is empty.
 	 */
-	public static final JsonArray EMPTY = new JsonArray(Collections.<JsonValue>emptyList());
+	public static final JsonArray EMPTY = new JsonArray(Collections.<JsonValue>emptyList()).freeze();
 	
-	protected final List<JsonValue> elements;
+	/**
+	 * The elements, wrapped in an unmodifiable list once this array is frozen.
+	 */
+	protected List<JsonValue> elements;
+
+	/**
+	 * The elements if they are packed or <code>null</code>.
+	 */
+	private final PackedList packed;
 
 	private int position;
+
+	private boolean frozen;
+
+	/**
+	 * The cached hash code of a frozen array or <code>0</code>.
+	 */
+	private int hash;
 	
 	protected JsonArray(List<JsonValue> elements) {
 		this.elements = elements;
+		this.packed = elements instanceof PackedList ? (PackedList) elements : null;
 	}
 
 	/**
 	 * Initializes a new array that is initially empty.
 	 */
 	public JsonArray() {
-		this(new ArrayList<JsonValue>());
+		this(new PackedList());
 	}
 
 	/**
@@ -63,7 +87,7 @@ public final class JsonArray extends JsonValue implements List<JsonValue> {
 	 * @param initialCapacity is the initial capacity.
 	 */
 	private JsonArray(int initialCapacity) {
-		this(new ArrayList<JsonValue>(initialCapacity));
+		this(new PackedList(initialCapacity));
 	}
 
 	/**
@@ -72,7 +96,8 @@ public final class JsonArray extends JsonValue implements List<JsonValue> {
 	 * @param a contains the initial values.
 	 */
 	private JsonArray(JsonValue[] a) {
-		this(new ArrayList<>(Arrays.asList(a)));
+		this(new PackedList(a.length));
+		elements.addAll(Arrays.asList(a));
 	}
 
 	/**
@@ -155,6 +180,26 @@ public final class JsonArray extends JsonValue implements List<JsonValue> {
 		return position < elements.size();
 	}
 
+	/**
+	 * Returns the current element as a <code>long</code> and advances the position.
+	 *
+	 * @return the current element.
+	 * @throws JsonConversionException if the element is not a number.
+	 */
+	public long nextLong() {
+		return getLong(position++);
+	}
+
+	/**
+	 * Returns the current element as a <code>double</code> and advances the position.
+	 *
+	 * @return the current element.
+	 * @throws JsonConversionException if the element is not a number.
+	 */
+	public double nextDouble() {
+		return getDouble(position++);
+	}
+
     /**
      * Retrieves the current position in this array.
      *
@@ -179,11 +224,144 @@ public final class JsonArray extends JsonValue implements List<JsonValue> {
 	public JsonArray asArray() {
 		return this;
 	}
+
+	/**
+	 * Makes this array and all its elements read-only.
+	 * 
+	 * @return this array.
+	 */
+	@Override
+	public JsonArray freeze() {
+		if (!frozen) {
+			frozen = true;
+			if (elements instanceof PersistentVector) {
+				return this;
+			}
+			if (packed == null || !packed.isPacked()) {
+				for (JsonValue element : elements) {
+					if (element != null) {
+						element.freeze();
+					}
+				}
+			}
+			elements = Collections.unmodifiableList(elements);
+		}
+		return this;
+	}
+
+	/**
+	 * Creates a copy of this array with one element replaced.
+	 * <p>
+	 * The copy shares everything but the changed path with this array, so changing a single
+	 * element of a large array takes <code>O(log n)</code> time and space. Changing an array that
+	 * was not created this way takes linear time to build the shared structure, so a series of
+	 * changes should be applied to the copies.
+	 * <p>
+	 * Since the elements are shared, this array and the value are frozen first and the copy is
+	 * frozen as well. Otherwise a change of this array or of a nested value would show up in the
+	 * copy, and copies could not be handed to other threads like any other frozen tree.
+	 *
+	 * @param index is the index of the element to replace.
+	 * @param value is the new element.
+	 * @return the new array.
+	 */
+	public JsonArray withIndex(int index, JsonValue value) {
+		if (value == null) value = JsonValue.NULL;
+		value.freeze();
+		return new JsonArray(persistent().with(index, value)).freeze();
+	}
+
+	/**
+	 * Creates a copy of this array with an element appended.
+	 * <p>
+	 * Like {@link #withIndex(int, JsonValue)} this freezes this array and shares its elements
+	 * with the copy.
+	 *
+	 * @param value is the new element.
+	 * @return the new array.
+	 */
+	public JsonArray with(JsonValue value) {
+		if (value == null) value = JsonValue.NULL;
+		value.freeze();
+		return new JsonArray(persistent().plus(value)).freeze();
+	}
+
+	/**
+	 * Retrieves the elements as a {@link PersistentVector}. Elements that are not already
+	 * persistent are copied, the elements of a frozen array are never replaced since it may be
+	 * shared.
+	 */
+	@SuppressWarnings("unchecked")
+	private PersistentVector<JsonValue> persistent() {
+		freeze();
+		return elements instanceof PersistentVector ? (PersistentVector<JsonValue>) elements : PersistentVector.of(elements);
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return frozen;
+	}
 	
 	public JsonValue get(int index) {
 		return elements.get(index);
 	}
 
+	/**
+	 * Retrieves an element as a <code>long</code>.
+	 *
+	 * @param index is the index of the element.
+	 * @return the value of the element.
+	 * @throws JsonConversionException if the element is not a number.
+	 */
+	public long getLong(int index) {
+		return packed != null ? packed.getLong(index) : elements.get(index).longValue();
+	}
+
+	/**
+	 * Retrieves an element as a <code>double</code>.
+	 *
+	 * @param index is the index of the element.
+	 * @return the value of the element.
+	 * @throws JsonConversionException if the element is not a number.
+	 */
+	public double getDouble(int index) {
+		return packed != null ? packed.getDouble(index) : elements.get(index).doubleValue();
+	}
+
+	/**
+	 * Copies all elements into a new <code>long[]</code>.
+	 *
+	 * @return the values of the elements.
+	 * @throws JsonConversionException if an element is not a number.
+	 */
+	public long[] toLongArray() {
+		if (packed != null) {
+			return packed.toLongArray();
+		}
+		long[] a = new long[elements.size()];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = elements.get(i).longValue();
+		}
+		return a;
+	}
+
+	/**
+	 * Copies all elements into a new <code>double[]</code>.
+	 *
+	 * @return the values of the elements.
+	 * @throws JsonConversionException if an element is not a number.
+	 */
+	public double[] toDoubleArray() {
+		if (packed != null) {
+			return packed.toDoubleArray();
+		}
+		double[] a = new double[elements.size()];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = elements.get(i).doubleValue();
+		}
+		return a;
+	}
+
     /**
      * Add a value to the end of this list.
      * @param value is the value to add.
@@ -326,16 +504,42 @@ public final class JsonArray extends JsonValue implements List<JsonValue> {
 		return elements;
 	}
 
+	/**
+	 * Compares the elements in order.
+	 */
 	@Override
 	public boolean equals(Object obj) {
-		if (obj instanceof JsonArray) {
-			JsonArray other = (JsonArray)obj;
-			return other.size() == size() && elements.containsAll(other.elements);
+		if (obj == this) {
+			return true;
+		}
+		else if (obj instanceof JsonArray) {
+			JsonArray other = (JsonArray) obj;
+			if (frozen && other.frozen && hashCode() != other.hashCode()) {
+				return false;
+			}
+			return elements.equals(other.elements);
 		}
 		else {
 			return false;
 		}
 	}
+
+	/**
+	 * Computes the hash code of the elements like {@link List#hashCode()}, a frozen array
+	 * computes it only once.
+	 */
+	@Override
+	public int hashCode() {
+		if (!frozen) {
+			return elements.hashCode();
+		}
+		int h = hash;
+		if (h == 0) {
+			h = elements.hashCode();
+			hash = h;
+		}
+		return h;
+	}
 	
 	private final class Iter implements Iterator<JsonValue> {
 
@@ -17,30 +17,85 @@
  */
 package com.mictale.jsonite;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
 import com.mictale.jsonite.stream.JsonVisitor;
 
 /**
  * A numeric value.
  *
- * You create a new instance using {@link #of(Number)} or
- * {@link #of(Object)}. The first method should be preferred
+ * You create a new instance using {@link #of(long)}, {@link #of(double)},
+ * {@link #of(Number)} or {@link #of(Object)}. The first methods should be preferred
  * if you know the value you are passing into the method is a number.
+ * Small integers are shared instances, so {@link #ZERO} is the same
+ * as <code>JsonNumber.of(0)</code>.
  * 
  * @author michael@mictale.com
  */
 public final class JsonNumber extends JsonValue {
 
+	/**
+	 * The name of the system property with the largest integer that {@link #of(long)} takes
+	 * from a cache of canonical instances. The cache starts at <code>-128</code> and ends at
+	 * <code>1023</code> unless the property is set to a value between <code>127</code> and
+	 * <code>2^20</code>.
+	 */
+	public static final String CACHE_HIGH_PROPERTY = "com.mictale.jsonite.JsonNumber.cacheHigh";
+
 	public static final JsonValue ZERO = JsonNumber.of(0);
 
 	public static final JsonValue ONE = JsonNumber.of(1);
 
 	public static final JsonValue MINUS_ONE = JsonNumber.of(-1);
 
-	private final Number value;
-	
+	private static final int INT = 0;
+
+	private static final int LONG = 1;
+
+	private static final int DOUBLE = 2;
+
+	private static final int BIG = 3;
+
+	/**
+	 * The form of the value, one of {@link #INT}, {@link #LONG}, {@link #DOUBLE} and {@link #BIG}.
+	 */
+	private final int form;
+
+	/**
+	 * The value of an integral number or the bits of a <code>double</code>.
+	 */
+	private final long bits;
+
+	/**
+	 * The value of a number that fits neither a <code>long</code> nor a <code>double</code>
+	 * or <code>null</code>.
+	 */
+	private final Number big;
+
+	private JsonNumber(int value) {
+		this.form = INT;
+		this.bits = value;
+		this.big = null;
+	}
+
+	private JsonNumber(long value) {
+		this.form = LONG;
+		this.bits = value;
+		this.big = null;
+	}
+
+	private JsonNumber(double value) {
+		this.form = DOUBLE;
+		this.bits = Double.doubleToLongBits(value);
+		this.big = null;
+	}
+
 	private JsonNumber(Number value) {
 		if (value == null) throw new IllegalArgumentException();
-		this.value = value;
+		this.form = BIG;
+		this.bits = 0;
+		this.big = value;
 	}
 
 	@Override
@@ -57,45 +112,117 @@ public final class JsonNumber extends JsonValue {
 	public JsonNumber asNumber() {
 		return this;
 	}
+
+	/**
+	 * Checks if this number is an integer that fits into a <code>long</code>.
+	 * 
+	 * @return <code>true</code> if {@link #longValue()} is exact.
+	 */
+	public boolean isLong() {
+		return form == INT || form == LONG;
+	}
+
+	/**
+	 * Checks if this number has a fraction that is kept as a <code>double</code>.
+	 * 
+	 * @return <code>true</code> if {@link #doubleValue()} is exact.
+	 */
+	public boolean isDouble() {
+		return form == DOUBLE;
+	}
+
+	private double toDouble() {
+		return Double.longBitsToDouble(bits);
+	}
 	
 	@Override
 	public byte byteValue() {
-		return value.byteValue();
+		return (byte) intValue();
 	}
 	
 	@Override
 	public short shortValue() {
-		return value.shortValue();
+		return (short) intValue();
 	}
 	
 	@Override
 	public int intValue() {
-		return value.intValue();
+		switch (form) {
+		case DOUBLE:
+			return (int) toDouble();
+		case BIG:
+			return big.intValue();
+		default:
+			return (int) bits;
+		}
 	}
 
 	@Override
 	public long longValue() {
-		return value.longValue();
+		switch (form) {
+		case DOUBLE:
+			return (long) toDouble();
+		case BIG:
+			return big.longValue();
+		default:
+			return bits;
+		}
 	}
 	
 	@Override
 	public float floatValue() {
-		return value.floatValue();
+		switch (form) {
+		case DOUBLE:
+			return (float) toDouble();
+		case BIG:
+			return big.floatValue();
+		default:
+			return bits;
+		}
 	}
 	
 	@Override
 	public double doubleValue() {
-		return value.doubleValue();
+		switch (form) {
+		case DOUBLE:
+			return toDouble();
+		case BIG:
+			return big.doubleValue();
+		default:
+			return bits;
+		}
 	}
 	
 	@Override
 	public String stringValue() {
-		return value.toString();
+		switch (form) {
+		case INT:
+			return Integer.toString((int) bits);
+		case LONG:
+			return Long.toString(bits);
+		case DOUBLE:
+			return Double.toString(toDouble());
+		default:
+			return big.toString();
+		}
 	}
 	
+	/**
+	 * Returns an {@link Integer}, {@link Long}, {@link Double}, {@link BigInteger} or
+	 * {@link BigDecimal}, whatever holds the value without loss.
+	 */
 	@Override
 	public Object objectValue() {
-		return value;
+		switch (form) {
+		case INT:
+			return Integer.valueOf((int) bits);
+		case LONG:
+			return Long.valueOf(bits);
+		case DOUBLE:
+			return Double.valueOf(toDouble());
+		default:
+			return big;
+		}
 	}
 	
 	/**
@@ -104,6 +231,8 @@ public final class JsonNumber extends JsonValue {
 	 * This overload of {@link JsonValue#of(Object)} is optimized for numeric input.
 	 * The returned type will either be a {@link JsonNumber} if the input is a number
 	 * or {@link JsonValue#NULL} if the input is <code>null</code>.
+	 * A {@link BigInteger} that does not fit into a <code>long</code> and a
+	 * {@link BigDecimal} that does not fit into a <code>double</code> are kept as they are.
 	 * 
 	 * @param n is the number to convert.
 	 * @return the JSON number.
@@ -112,14 +241,21 @@ public final class JsonNumber extends JsonValue {
 		if (n == null) {
 			return JsonValue.NULL;
 		}
+		else if (n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte) {
+			return of(n.longValue());
+		}
+		else if (n instanceof Double) {
+			return of(n.doubleValue());
+		}
 		else {		
+			if (n instanceof BigInteger && ((BigInteger) n).bitLength() > 63) {
+				return new JsonNumber(n);
+			}
+			if (n instanceof BigDecimal && Double.isInfinite(n.doubleValue())) {
+				return new JsonNumber(n);
+			}
 			if (n.longValue() == n.doubleValue()) {
-				if (n.intValue() == n.longValue()) {
-					return new JsonNumber(n.intValue());
-				}
-				else {
-					return new JsonNumber(n.longValue());					
-				}
+				return of(n.longValue());
 			}
 			else {
 			    double value = n.doubleValue();
@@ -130,15 +266,138 @@ public final class JsonNumber extends JsonValue {
 			}
 		}
 	}
+
+	/**
+	 * Converts the specified <code>int</code> to a {@link JsonNumber}.
+	 * <p>
+	 * Small values are taken from a cache, see {@link #CACHE_HIGH_PROPERTY}. The position of
+	 * these shared instances cannot be set.
+	 * 
+	 * @param n is the number to convert.
+	 * @return the JSON number.
+	 */
+	public static JsonValue of(int n) {
+		if (n >= Cache.LOW && n <= Cache.HIGH) {
+			return Cache.NUMBERS[n - Cache.LOW];
+		}
+		return new JsonNumber(n);
+	}
+
+	/**
+	 * Converts the specified <code>long</code> to a {@link JsonNumber}.
+	 * <p>
+	 * Small values are taken from a cache, see {@link #CACHE_HIGH_PROPERTY}. The position of
+	 * these shared instances cannot be set.
+	 * 
+	 * @param n is the number to convert.
+	 * @return the JSON number.
+	 */
+	public static JsonValue of(long n) {
+		if (n >= Cache.LOW && n <= Cache.HIGH) {
+			return Cache.NUMBERS[(int) n - Cache.LOW];
+		}
+		if (n == (int) n) {
+			return new JsonNumber((int) n);
+		}
+		return new JsonNumber(n);
+	}
+
+	/**
+	 * Converts the specified <code>double</code> to a {@link JsonNumber}.
+	 * <p>
+	 * Integral values are treated like {@link #of(long)}.
+	 * 
+	 * @param n is the number to convert.
+	 * @return the JSON number.
+	 * @throws JsonException if the number is not finite.
+	 */
+	public static JsonValue of(double n) {
+		long l = (long) n;
+		if (l == n) {
+			return of(l);
+		}
+		if (!Double.isFinite(n)) {
+			throw new JsonException("Only finite floating point accepted: " + n);
+		}
+		return new JsonNumber(n);
+	}
+
+	/**
+	 * Sets the position of this number in the source.
+	 * <p>
+	 * The canonical instances of small integers are shared by all documents, see
+	 * {@link #CACHE_HIGH_PROPERTY}, so they cannot take the position of any one of them.
+	 *
+	 * @param position is the position.
+	 * @throws UnsupportedOperationException if this is a canonical instance.
+	 */
+	@Override
+	public void setPosition(SourcePosition position) {
+		if (form == INT && bits >= Cache.LOW && bits <= Cache.HIGH && Cache.NUMBERS[(int) bits - Cache.LOW] == this) {
+			throw new UnsupportedOperationException("Cannot set the position of the shared number " + bits);
+		}
+		super.setPosition(position);
+	}
+
+	/**
+	 * The canonical instances of small integers.
+	 */
+	private static final class Cache {
+
+		static final int LOW = -128;
+
+		static final int HIGH = Math.max(127, Math.min(Integer.getInteger(CACHE_HIGH_PROPERTY, 1023), 1 << 20));
+
+		static final JsonNumber[] NUMBERS = new JsonNumber[HIGH - LOW + 1];
+
+		static {
+			for (int i = 0; i < NUMBERS.length; i++) {
+				NUMBERS[i] = new JsonNumber(LOW + i);
+			}
+		}
+	}
 	
+	/**
+	 * Computes the hash code of <code>JsonNumber.of(value)</code> without creating it.
+	 */
+	static int hash(long value) {
+		return value == (int) value ? (int) value : (int) (value ^ value >>> 32);
+	}
+
+	/**
+	 * Computes the hash code of <code>JsonNumber.of(value)</code> without creating it.
+	 */
+	static int hash(double value) {
+		long l = (long) value;
+		if (l == value) {
+			return hash(l);
+		}
+		long bits = Double.doubleToLongBits(value);
+		return (int) (bits ^ bits >>> 32);
+	}
+
 	@Override
 	public boolean equals(Object obj) {
-		return obj instanceof JsonNumber && ((JsonNumber)obj).value.equals(value);
+		if (!(obj instanceof JsonNumber)) {
+			return false;
+		}
+		JsonNumber other = (JsonNumber) obj;
+		return other.form == form && other.bits == bits && (form != BIG || other.big.equals(big));
 	}
 	
+	/**
+	 * Returns the hash code of {@link #objectValue()} without creating it.
+	 */
 	@Override
 	public int hashCode() {
-		return value.hashCode();
+		switch (form) {
+		case INT:
+			return (int) bits;
+		case BIG:
+			return big.hashCode();
+		default:
+			return (int) (bits ^ bits >>> 32);
+		}
 	}
 
 	@Override
@@ -18,7 +18,7 @@
 package com.mictale.jsonite;
 
 import java.util.Collection;
-import java.util.LinkedHashMap;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -26,19 +26,45 @@ import com.mictale.jsonite.stream.JsonVisitor;
 
 /**
  * A JSON Object is a set of JSON values known by name.
+ * <p>
+ * Members keep their insertion order. Small objects store their members in flat arrays
+ * and objects with a common layout may share their names, see {@link ObjectShape}.
+ * A frozen object rejects all changes, see {@link #freeze()}.
  * 
  * @author michael@mictale.com
  */
 public final class JsonObject extends JsonValue implements Map<String, JsonValue> {
 
-	private final Map<String, JsonValue> members;
+	/**
+	 * The members, wrapped in an unmodifiable map once this object is frozen.
+	 */
+	private Map<String, JsonValue> members;
+
+	private boolean frozen;
+
+	/**
+	 * The cached hash code of a frozen object or <code>0</code>.
+	 */
+	private int hash;
 
 	protected JsonObject(Map<String, JsonValue> members) {
 		this.members = members;
 	}
 	
 	public JsonObject() {
-		this(new LinkedHashMap<String, JsonValue>());
+		this(new CompactMap());
+	}
+
+	/**
+	 * Creates an empty object that shares its member names with other objects of the same shape.
+	 * <p>
+	 * The object behaves like any other object. As long as members are only added and replaced,
+	 * it stores just its values and takes the names from the shape tree.
+	 *
+	 * @param shape is usually the root of a tree created by {@link ObjectShape#root()}.
+	 */
+	public JsonObject(ObjectShape shape) {
+		this(new CompactMap(shape));
 	}
 
 	/**
@@ -56,6 +82,94 @@ public final class JsonObject extends JsonValue implements Map<String, JsonValue
 	public JsonObject asObject() {
 		return this;
 	}
+
+	/**
+	 * Makes this object and all its members read-only.
+	 * 
+	 * @return this object.
+	 */
+	@Override
+	public JsonObject freeze() {
+		if (!frozen) {
+			frozen = true;
+			if (!(members instanceof PersistentMap)) {
+				for (JsonValue value : members.values()) {
+					if (value != null) {
+						value.freeze();
+					}
+				}
+				members = Collections.unmodifiableMap(members);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Creates a copy of this object with a member added or replaced.
+	 * <p>
+	 * The copy shares everything but the changed path with this object, so changing a single
+	 * member of a large object takes <code>O(log n)</code> time and space. Changing an object that
+	 * was not created this way takes linear time to build the shared structure, so a series of
+	 * changes should be applied to the copies.
+	 * <p>
+	 * Since the members are shared, this object and the value are frozen first and the copy is
+	 * frozen as well. Otherwise a change of this object or of a nested value would show up in the
+	 * copy, and copies could not be handed to other threads like any other frozen tree.
+	 * A new member is added at the end.
+	 *
+	 * @param key is the member name.
+	 * @param value is the new value.
+	 * @return the new object.
+	 */
+	public JsonObject with(String key, JsonValue value) {
+		if (key == null) {
+			throw new NullPointerException("key");
+		}
+		if (value == null) value = JsonValue.NULL;
+		value.freeze();
+		return new JsonObject(persistent().with(key, value)).freeze();
+	}
+
+	/**
+	 * An overloaded version of {@link #with(String, JsonValue)} that allows
+	 * arbitrary objects.
+	 *
+	 * @param key is the member name.
+	 * @param value is the new value.
+	 * @return the new object.
+	 */
+	public JsonObject with(String key, Object value) {
+		return with(key, JsonValue.of(value));
+	}
+
+	/**
+	 * Creates a copy of this object without a member.
+	 * <p>
+	 * Like {@link #with(String, JsonValue)} this freezes this object and shares its members
+	 * with the copy.
+	 *
+	 * @param key is the member name.
+	 * @return the new object, or this object if it has no such member.
+	 */
+	public JsonObject without(String key) {
+		PersistentMap map = persistent();
+		PersistentMap m = map.without(key);
+		return m == map && members == map ? this : new JsonObject(m).freeze();
+	}
+
+	/**
+	 * Retrieves the members as a {@link PersistentMap}. Members that are not already persistent
+	 * are copied, the members of a frozen object are never replaced since it may be shared.
+	 */
+	private PersistentMap persistent() {
+		freeze();
+		return members instanceof PersistentMap ? (PersistentMap) members : PersistentMap.of(members);
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return frozen;
+	}
 	
 	@Override
 	public Object objectValue() {
@@ -169,14 +283,40 @@ public final class JsonObject extends JsonValue implements Map<String, JsonValue
 		visitor.visit(this);
 	}
 	
+	/**
+	 * Compares the members regardless of their order.
+	 */
 	@Override
 	public boolean equals(Object obj) {
-		if (obj instanceof JsonObject) {
-			JsonObject other = (JsonObject)obj;
-			return other.size() == size() && members.entrySet().containsAll(other.members.entrySet());
+		if (obj == this) {
+			return true;
+		}
+		else if (obj instanceof JsonObject) {
+			JsonObject other = (JsonObject) obj;
+			if (frozen && other.frozen && hashCode() != other.hashCode()) {
+				return false;
+			}
+			return members.equals(other.members);
 		}
 		else {
 			return false;
 		}
 	}
+
+	/**
+	 * Computes the hash code of the members like {@link Map#hashCode()}, a frozen object
+	 * computes it only once.
+	 */
+	@Override
+	public int hashCode() {
+		if (!frozen) {
+			return members.hashCode();
+		}
+		int h = hash;
+		if (h == 0) {
+			h = members.hashCode();
+			hash = h;
+		}
+		return h;
+	}
 }
@@ -35,6 +35,13 @@ public class JsonString extends JsonValue {
 		this.value = value;
 	}
 
+	/**
+	 * Initializes a string that provides its contents by overriding {@link #stringValue()}.
+	 */
+	JsonString() {
+		this.value = null;
+	}
+
 	/**
 	 * Creates a new JSON string from the specified string value.
 	 * 
@@ -72,12 +79,12 @@ public class JsonString extends JsonValue {
 	
 	@Override
 	public Object objectValue() {
-		return value;
+		return stringValue();
 	}
 	
 	@Override
 	public boolean equals(Object obj) {
-		return obj instanceof JsonString && ((JsonString)obj).value.equals(value);
+		return obj instanceof JsonString && ((JsonString)obj).stringValue().equals(stringValue());
 	}
 
 	@Override
@@ -92,6 +99,6 @@ public class JsonString extends JsonValue {
 	
 	@Override
 	public int hashCode() {
-		return value.hashCode();
+		return stringValue().hashCode();
 	}	
 }
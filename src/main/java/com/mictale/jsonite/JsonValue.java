@@ -18,6 +18,7 @@
 package com.mictale.jsonite;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Collection;
@@ -159,6 +160,29 @@ public abstract class JsonValue {
 	 */
 	public static final JsonValue NULL = new JsonNull();
 
+	/**
+	 * Makes this value and all values it contains read-only.
+	 * <p>
+	 * Changing a frozen {@link JsonObject} or {@link JsonArray} throws an
+	 * {@link UnsupportedOperationException}. Frozen trees keep their hash codes and can be
+	 * shared between threads without synchronization once they have been published safely.
+	 * Primitive values cannot be changed anyway, so this method simply returns them.
+	 * 
+	 * @return this value.
+	 */
+	public JsonValue freeze() {
+		return this;
+	}
+
+	/**
+	 * Checks if this value is read-only.
+	 * 
+	 * @return <code>true</code> for primitive values and frozen objects and arrays.
+	 */
+	public boolean isFrozen() {
+		return true;
+	}
+
 	public SourcePosition getPosition() {
 		return position;
 	}
@@ -414,6 +438,29 @@ public abstract class JsonValue {
 		}
 	}
 
+	/**
+	 * Parses a JSON string into an object representation that is created as it is accessed.
+	 * <p>
+	 * The result behaves exactly like the result of {@link #parse(String)}. Objects and arrays
+	 * however only create their members when they are accessed for the first time and strings
+	 * are only decoded when their value is requested. This makes reading a few members of a large
+	 * document much cheaper, at the price of keeping the whole string in memory as long as any
+	 * part of it has not been accessed.
+	 * <p>
+	 * Syntax errors are reported by this method just like by {@link #parse(String)}.
+	 * 
+	 * @param json
+	 *            is the string representation.
+	 * @return the object representation.
+	 */
+	public static JsonValue parseLazily(String json) {
+		if (json == null) {
+			return JsonValue.NULL;
+		}
+		JsonValue value = LazyDocument.parse(json);
+		return value != null ? value : parse(json);
+	}
+
 	/**
 	 * Retrieves the type of this value.
 	 * 
@@ -439,6 +486,18 @@ public abstract class JsonValue {
 	public final void writeTo(Writer writer) throws IOException {
 		Transformation.copy(writer, this);
 	}
+
+	/**
+	 * Serializes this object as UTF-8 encoded JSON.
+	 * 
+	 * @param out
+	 *            is the target to write to.
+	 * @throws IOException
+	 *             if the stream causes an exception.
+	 */
+	public final void writeTo(OutputStream out) throws IOException {
+		Transformation.copy(out, this);
+	}
 	
 	/**
 	 * Converts this value into a JSON string.
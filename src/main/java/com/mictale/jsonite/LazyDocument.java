@@ -0,0 +1,748 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * A JSON text that is turned into values only where it is accessed.
+ * <p>
+ * Parsing scans the text once to check it and to record where every object and array begins
+ * and ends. The objects and arrays of the result hold no members until they are accessed for
+ * the first time, then they create their direct members from the text. Nested objects and
+ * arrays are skipped by their recorded end, so reading a few members of a large document
+ * touches little more than the path to them. Strings are only decoded when their value is
+ * requested.
+ * <p>
+ * The scan accepts standard JSON only. Whatever it does not accept is left to
+ * {@link JsonValue#parse(String)}, which reports errors and handles the lenient cases exactly
+ * as before.
+ * <p>
+ * The text stays in memory as long as any part of it has not been accessed. Objects and arrays
+ * can be read by several threads, creating the members is synchronized.
+ *
+ * @author michael@mictale.com
+ */
+final class LazyDocument {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The number of exponent digits that always fit into an <code>int</code>.
+	 */
+	private static final int MAX_EXPONENT_DIGITS = 9;
+
+	/**
+	 * Converts numbers exactly like the stream parsers. The converter is package private there,
+	 * so it is looked up once by reflection rather than made part of the API.
+	 */
+	private static final MethodHandle PARSE_NUMBER = findNumberParser();
+
+	private final char[] chars;
+
+	private final int length;
+
+	/**
+	 * The offset of the opening bracket of every object and array in document order.
+	 */
+	private int[] starts = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The offset of the closing bracket of every object and array.
+	 */
+	private int[] ends = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The index of the first object or array after all the children of every object and array.
+	 */
+	private int[] next = new int[INITIAL_CAPACITY];
+
+	private int count;
+
+	private final ObjectShape shapes = ObjectShape.root();
+
+	private LazyDocument(char[] chars) {
+		this.chars = chars;
+		this.length = chars.length;
+	}
+
+	/**
+	 * Parses a JSON text lazily.
+	 *
+	 * @param json is the text.
+	 * @return the value or <code>null</code> if the text is not a standard JSON object or array.
+	 */
+	static JsonValue parse(String json) {
+		LazyDocument document = new LazyDocument(json.toCharArray());
+		if (!document.index()) {
+			return null;
+		}
+		document.trim();
+		return document.chars[document.starts[0]] == '{'
+				? new JsonObject(new Members(document, 0))
+				: new JsonArray(new Elements(document, 0));
+	}
+
+	/**
+	 * Scans the text and records all objects and arrays.
+	 *
+	 * @return <code>false</code> if the text is not standard JSON.
+	 */
+	private boolean index() {
+		int[] stack = new int[INITIAL_CAPACITY];
+		int depth = 0;
+		boolean value = false;
+
+		int i = skip(0);
+		if (i == length || chars[i] != '{' && chars[i] != '[') {
+			return false;
+		}
+
+		while (true) {
+			i = skip(i);
+			if (depth == 0 && count > 0) {
+				return i == length;
+			}
+			if (i == length) {
+				return false;
+			}
+
+			char ch = chars[i];
+			boolean object = depth > 0 && chars[starts[stack[depth - 1]]] == '{';
+			if (object && !value) {
+				if (ch == '}') {
+					close(stack[--depth], i++);
+					continue;
+				}
+				if (ch != '"' || (i = skipString(i)) < 0) {
+					return false;
+				}
+				i = skipWhitespace(i);
+				if (i == length || chars[i] != ':') {
+					return false;
+				}
+				i++;
+				value = true;
+				continue;
+			}
+
+			value = false;
+			switch (ch) {
+			case '{':
+			case '[':
+				if (depth == stack.length) {
+					stack = Arrays.copyOf(stack, depth * 2);
+				}
+				stack[depth++] = open(i++);
+				break;
+			case ']':
+				if (object || depth == 0) {
+					return false;
+				}
+				close(stack[--depth], i++);
+				break;
+			case '"':
+				i = skipString(i);
+				if (i < 0) {
+					return false;
+				}
+				// A string that is followed by a colon would be a member name
+				int j = skipWhitespace(i);
+				if (j < length && chars[j] == ':') {
+					return false;
+				}
+				break;
+			default:
+				i = skipScalar(i);
+				if (i < 0) {
+					return false;
+				}
+				break;
+			}
+		}
+	}
+
+	private int open(int offset) {
+		if (count == starts.length) {
+			int capacity = count * 2;
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			next = Arrays.copyOf(next, capacity);
+		}
+		starts[count] = offset;
+		return count++;
+	}
+
+	private void close(int container, int offset) {
+		ends[container] = offset;
+		next[container] = count;
+	}
+
+	private void trim() {
+		if (count < starts.length) {
+			starts = Arrays.copyOf(starts, count);
+			ends = Arrays.copyOf(ends, count);
+			next = Arrays.copyOf(next, count);
+		}
+	}
+
+	private static boolean isWhitespace(char ch) {
+		return ch == ' ' || ch == '\n' || ch == '\r' || ch == '\t';
+	}
+
+	/**
+	 * Skips white space and separators.
+	 */
+	private int skip(int i) {
+		while (i < length && (isWhitespace(chars[i]) || chars[i] == ',')) {
+			i++;
+		}
+		return i;
+	}
+
+	private int skipWhitespace(int i) {
+		while (i < length && isWhitespace(chars[i])) {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean isHexDigit(char ch) {
+		return ch >= '0' && ch <= '9' || ch >= 'a' && ch <= 'f' || ch >= 'A' && ch <= 'F';
+	}
+
+	/**
+	 * Skips a string.
+	 *
+	 * @param i is the offset of the opening quote.
+	 * @return the offset after the closing quote or <code>-1</code> if the string is illegal.
+	 */
+	private int skipString(int i) {
+		i++;
+		while (i < length) {
+			char ch = chars[i++];
+			if (ch == '"') {
+				return i;
+			}
+			if (ch == '\\') {
+				if (i == length) {
+					return -1;
+				}
+				switch (chars[i++]) {
+				case '"':
+				case '\\':
+				case '/':
+				case 'b':
+				case 'f':
+				case 'n':
+				case 'r':
+				case 't':
+					break;
+				case 'u':
+					if (i + 4 > length) {
+						return -1;
+					}
+					for (int end = i + 4; i < end; i++) {
+						if (!isHexDigit(chars[i])) {
+							return -1;
+						}
+					}
+					break;
+				default:
+					return -1;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isDigit(char ch) {
+		return ch >= '0' && ch <= '9';
+	}
+
+	private int skipDigits(int i) {
+		while (i < length && isDigit(chars[i])) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Skips a number or literal.
+	 *
+	 * @return the offset after the value or <code>-1</code> if the value is illegal.
+	 */
+	private int skipScalar(int i) {
+		int end;
+		switch (chars[i]) {
+		case 't':
+			end = skipLiteral(i, "true");
+			break;
+		case 'f':
+			end = skipLiteral(i, "false");
+			break;
+		case 'n':
+			end = skipLiteral(i, "null");
+			break;
+		default:
+			end = skipNumber(i);
+			break;
+		}
+		if (end < 0 || end == length) {
+			return end;
+		}
+		char ch = chars[end];
+		return isWhitespace(ch) || ch == ',' || ch == ']' || ch == '}' ? end : -1;
+	}
+
+	private int skipLiteral(int i, String literal) {
+		int end = i + literal.length();
+		if (end > length) {
+			return -1;
+		}
+		for (int j = 0; j < literal.length(); j++) {
+			if (chars[i + j] != literal.charAt(j)) {
+				return -1;
+			}
+		}
+		return end;
+	}
+
+	private int skipNumber(int i) {
+		if (chars[i] == '-') {
+			i++;
+		}
+		int end = skipDigits(i);
+		if (end == i) {
+			return -1;
+		}
+		i = end;
+		if (i < length && chars[i] == '.') {
+			i = skipDigits(i + 1);
+		}
+		if (i < length && (chars[i] == 'e' || chars[i] == 'E')) {
+			i++;
+			if (i < length && (chars[i] == '+' || chars[i] == '-')) {
+				i++;
+			}
+			end = skipDigits(i);
+			if (end == i) {
+				return -1;
+			}
+			// Exponents beyond the range of a BigDecimal are left to the parser to report
+			while (i < end - 1 && chars[i] == '0') {
+				i++;
+			}
+			if (end - i > MAX_EXPONENT_DIGITS) {
+				return -1;
+			}
+			i = end;
+		}
+		return i;
+	}
+
+	/**
+	 * Decodes the contents of a string that has already been checked.
+	 */
+	static String decode(char[] chars, int start, int end) {
+		int i = start;
+		while (i < end && chars[i] != '\\') {
+			i++;
+		}
+		if (i == end) {
+			return new String(chars, start, end - start);
+		}
+
+		StringBuilder b = new StringBuilder(end - start);
+		b.append(chars, start, i - start);
+		while (i < end) {
+			char ch = chars[i++];
+			if (ch != '\\') {
+				b.append(ch);
+				continue;
+			}
+			ch = chars[i++];
+			switch (ch) {
+			case 'b':
+				b.append('\b');
+				break;
+			case 'f':
+				b.append('\f');
+				break;
+			case 'n':
+				b.append('\n');
+				break;
+			case 'r':
+				b.append('\r');
+				break;
+			case 't':
+				b.append('\t');
+				break;
+			case 'u':
+				b.append((char) Integer.parseInt(new String(chars, i, 4), 16));
+				i += 4;
+				break;
+			default:
+				b.append(ch);
+				break;
+			}
+		}
+		return b.toString();
+	}
+
+	private JsonValue number(int start, int end) {
+		try {
+			return (JsonValue) PARSE_NUMBER.invokeExact(chars, start, end - start);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static MethodHandle findNumberParser() {
+		try {
+			Method parse = Class.forName("com.mictale.jsonite.stream.NumberParser").getDeclaredMethod("parse", char[].class, int.class, int.class);
+			parse.setAccessible(true);
+			return MethodHandles.lookup().unreflect(parse);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Creates the direct members of an object or the elements of an array.
+	 */
+	private final class Cursor {
+
+		private int position;
+
+		/**
+		 * The index of the next nested object or array.
+		 */
+		private int container;
+
+		Cursor(int container) {
+			this.position = starts[container] + 1;
+			this.container = container + 1;
+		}
+
+		/**
+		 * Skips to the next member or element.
+		 *
+		 * @return <code>false</code> at the end of the object or array.
+		 */
+		boolean hasNext() {
+			position = skip(position);
+			char ch = chars[position];
+			return ch != '}' && ch != ']';
+		}
+
+		String name() {
+			int end = skipString(position);
+			String name = decode(chars, position + 1, end - 1);
+			position = skip(skipWhitespace(end) + 1);
+			return name;
+		}
+
+		JsonValue value() {
+			JsonValue value;
+			switch (chars[position]) {
+			case '{':
+				value = new JsonObject(new Members(LazyDocument.this, container));
+				position = ends[container] + 1;
+				container = next[container];
+				break;
+			case '[':
+				value = new JsonArray(new Elements(LazyDocument.this, container));
+				position = ends[container] + 1;
+				container = next[container];
+				break;
+			case '"':
+				int end = skipString(position);
+				value = new Text(chars, position + 1, end - 1);
+				position = end;
+				break;
+			case 't':
+				value = JsonValue.TRUE;
+				position += 4;
+				break;
+			case 'f':
+				value = JsonValue.FALSE;
+				position += 5;
+				break;
+			case 'n':
+				value = JsonValue.NULL;
+				position += 4;
+				break;
+			default:
+				end = skipNumber(position);
+				value = number(position, end);
+				position = end;
+				break;
+			}
+			return value;
+		}
+	}
+
+	Map<String, JsonValue> members(int container) {
+		CompactMap members = new CompactMap(shapes);
+		Cursor cursor = new Cursor(container);
+		while (cursor.hasNext()) {
+			members.put(cursor.name(), cursor.value());
+		}
+		return members;
+	}
+
+	List<JsonValue> elements(int container) {
+		PackedList elements = new PackedList();
+		Cursor cursor = new Cursor(container);
+		while (cursor.hasNext()) {
+			elements.add(cursor.value());
+		}
+		return elements;
+	}
+
+	/**
+	 * A string that is decoded when its value is requested.
+	 */
+	private static final class Text extends JsonString {
+
+		private final char[] chars;
+
+		private final int start;
+
+		private final int end;
+
+		private String decoded;
+
+		Text(char[] chars, int start, int end) {
+			this.chars = chars;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public String stringValue() {
+			String s = decoded;
+			if (s == null) {
+				decoded = s = decode(chars, start, end);
+			}
+			return s;
+		}
+	}
+
+	/**
+	 * The members of an object, created on first access.
+	 */
+	private static final class Members extends AbstractMap<String, JsonValue> {
+
+		private LazyDocument document;
+
+		private final int container;
+
+		private volatile Map<String, JsonValue> members;
+
+		Members(LazyDocument document, int container) {
+			this.document = document;
+			this.container = container;
+		}
+
+		private Map<String, JsonValue> members() {
+			Map<String, JsonValue> m = members;
+			if (m == null) {
+				synchronized (this) {
+					m = members;
+					if (m == null) {
+						members = m = document.members(container);
+						document = null;
+					}
+				}
+			}
+			return m;
+		}
+
+		@Override
+		public int size() {
+			return members().size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return members().isEmpty();
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return members().containsKey(key);
+		}
+
+		@Override
+		public boolean containsValue(Object value) {
+			return members().containsValue(value);
+		}
+
+		@Override
+		public JsonValue get(Object key) {
+			return members().get(key);
+		}
+
+		@Override
+		public JsonValue put(String key, JsonValue value) {
+			return members().put(key, value);
+		}
+
+		@Override
+		public JsonValue remove(Object key) {
+			return members().remove(key);
+		}
+
+		@Override
+		public void putAll(Map<? extends String, ? extends JsonValue> m) {
+			members().putAll(m);
+		}
+
+		@Override
+		public void clear() {
+			members().clear();
+		}
+
+		@Override
+		public Set<String> keySet() {
+			return members().keySet();
+		}
+
+		@Override
+		public Collection<JsonValue> values() {
+			return members().values();
+		}
+
+		@Override
+		public Set<Map.Entry<String, JsonValue>> entrySet() {
+			return members().entrySet();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return members().equals(obj instanceof Members ? ((Members) obj).members() : obj);
+		}
+
+		@Override
+		public int hashCode() {
+			return members().hashCode();
+		}
+	}
+
+	/**
+	 * The elements of an array, created on first access.
+	 */
+	private static final class Elements extends AbstractList<JsonValue> implements RandomAccess {
+
+		private LazyDocument document;
+
+		private final int container;
+
+		private volatile List<JsonValue> elements;
+
+		Elements(LazyDocument document, int container) {
+			this.document = document;
+			this.container = container;
+		}
+
+		private List<JsonValue> elements() {
+			List<JsonValue> e = elements;
+			if (e == null) {
+				synchronized (this) {
+					e = elements;
+					if (e == null) {
+						elements = e = document.elements(container);
+						document = null;
+					}
+				}
+			}
+			return e;
+		}
+
+		@Override
+		public int size() {
+			return elements().size();
+		}
+
+		@Override
+		public JsonValue get(int index) {
+			return elements().get(index);
+		}
+
+		@Override
+		public JsonValue set(int index, JsonValue element) {
+			return elements().set(index, element);
+		}
+
+		@Override
+		public void add(int index, JsonValue element) {
+			elements().add(index, element);
+		}
+
+		@Override
+		public JsonValue remove(int index) {
+			return elements().remove(index);
+		}
+
+		@Override
+		public void clear() {
+			elements().clear();
+		}
+
+		@Override
+		public Iterator<JsonValue> iterator() {
+			return elements().iterator();
+		}
+
+		@Override
+		public ListIterator<JsonValue> listIterator(int index) {
+			return elements().listIterator(index);
+		}
+
+		@Override
+		public List<JsonValue> subList(int fromIndex, int toIndex) {
+			return elements().subList(fromIndex, toIndex);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return elements().equals(obj instanceof Elements ? ((Elements) obj).elements() : obj);
+		}
+
+		@Override
+		public int hashCode() {
+			return elements().hashCode();
+		}
+	}
+}
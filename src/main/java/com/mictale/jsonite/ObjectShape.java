@@ -0,0 +1,188 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable sequence of member names shared by objects with the same layout.
+ * <p>
+ * Shapes form a tree: adding a member to an object moves it from its shape to a child shape
+ * that has one more name. Objects created with {@link JsonObject#JsonObject(ObjectShape)}
+ * follow this tree, so objects that receive the same names in the same order end up sharing
+ * one array of names and only store their values. An object that loses a member leaves the
+ * tree and keeps a private copy of its names.
+ * <p>
+ * Shapes are safe to share between threads.
+ *
+ * @author michael@mictale.com
+ */
+public final class ObjectShape {
+
+	/**
+	 * The largest number of distinct transitions from a single shape. Objects that would
+	 * need more become private, which bounds the tree for irregular data.
+	 */
+	private static final int MAX_TRANSITIONS = 64;
+
+	/**
+	 * The largest number of names in a shape. Every shape copies the names of its parent,
+	 * so huge objects are better off with a private map.
+	 */
+	private static final int MAX_SIZE = 64;
+
+	private static final String[] NO_KEYS = new String[0];
+
+	/**
+	 * The names of this shape, this array is never modified.
+	 */
+	final String[] keys;
+
+	/**
+	 * The slot of every name for shapes with many names or <code>null</code>.
+	 */
+	private volatile Map<String, Integer> slots;
+
+	/**
+	 * The name of the first transition, written before {@link #firstChild}.
+	 */
+	private String firstKey;
+
+	private volatile ObjectShape firstChild;
+
+	private Map<String, ObjectShape> children;
+
+	private ObjectShape(String[] keys) {
+		this.keys = keys;
+	}
+
+	/**
+	 * Creates the root of a new tree of shapes.
+	 *
+	 * @return the shape without names.
+	 */
+	public static ObjectShape root() {
+		return new ObjectShape(NO_KEYS);
+	}
+
+	/**
+	 * Retrieves the number of names.
+	 *
+	 * @return the number of names.
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Predicts the final size of an object with this shape by following the first transitions.
+	 *
+	 * @return the predicted number of names.
+	 */
+	int predictedSize() {
+		ObjectShape shape = this;
+		for (ObjectShape next = firstChild; next != null; next = next.firstChild) {
+			shape = next;
+		}
+		return shape.keys.length;
+	}
+
+	/**
+	 * Finds the slot of a name.
+	 *
+	 * @param key is the name to find.
+	 * @return the slot or <code>-1</code> if this shape has no such name.
+	 */
+	int indexOf(Object key) {
+		if (keys.length <= CompactMap.THRESHOLD) {
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i].equals(key)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		Map<String, Integer> s = slots;
+		if (s == null) {
+			s = new HashMap<String, Integer>(keys.length * 2);
+			for (int i = 0; i < keys.length; i++) {
+				s.put(keys[i], i);
+			}
+			slots = s;
+		}
+		Integer slot = s.get(key);
+		return slot == null ? -1 : slot;
+	}
+
+	/**
+	 * Retrieves the shape that has the specified name appended.
+	 *
+	 * @param key is a name that is not part of this shape.
+	 * @return the child shape or <code>null</code> if this shape has too many names or children.
+	 */
+	ObjectShape with(String key) {
+		if (keys.length >= MAX_SIZE) {
+			return null;
+		}
+
+		ObjectShape first = firstChild;
+		if (first != null && firstKey.equals(key)) {
+			return first;
+		}
+
+		synchronized (this) {
+			return addTransition(key);
+		}
+	}
+
+	private ObjectShape addTransition(String key) {
+		if (firstChild != null && firstKey.equals(key)) {
+			return firstChild;
+		}
+
+		ObjectShape child = children == null ? null : children.get(key);
+		if (child != null) {
+			return child;
+		}
+
+		int count = firstChild == null ? 0 : 1 + (children == null ? 0 : children.size());
+		if (count >= MAX_TRANSITIONS) {
+			return null;
+		}
+
+		String[] k = new String[keys.length + 1];
+		System.arraycopy(keys, 0, k, 0, keys.length);
+		k[keys.length] = key;
+		child = new ObjectShape(k);
+
+		if (firstChild == null) {
+			firstKey = key;
+			firstChild = child;
+		}
+		else {
+			if (children == null) {
+				children = new HashMap<String, ObjectShape>();
+			}
+			children.put(key, child);
+		}
+
+		return child;
+	}
+}
@@ -0,0 +1,357 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The elements of a {@link JsonArray}.
+ * <p>
+ * As long as all elements are integral numbers they are kept in a <code>long[]</code>, as
+ * long as all elements are numbers that a <code>double</code> represents exactly they are
+ * kept in a <code>double[]</code>. The {@link JsonNumber}s are created again when an element
+ * is retrieved. The first element that fits neither moves all elements to an {@link ArrayList}
+ * for good.
+ * <p>
+ * Numbers with a {@link SourcePosition} are never packed, so their position is kept.
+ *
+ * @author michael@mictale.com
+ */
+final class PackedList extends AbstractList<JsonValue> implements RandomAccess {
+
+	private static final int LONGS = 0;
+
+	private static final int DOUBLES = 1;
+
+	private static final int VALUES = 2;
+
+	private static final int DEFAULT_CAPACITY = 10;
+
+	/**
+	 * The largest magnitude of a <code>long</code> that converts to a <code>double</code>
+	 * and back without loss for sure.
+	 */
+	private static final long MAX_EXACT = 1L << 53;
+
+	private int mode = LONGS;
+
+	private long[] longs;
+
+	private double[] doubles;
+
+	/**
+	 * The elements once they are no longer packed or <code>null</code>.
+	 */
+	private List<JsonValue> values;
+
+	private int size;
+
+	private final int initialCapacity;
+
+	PackedList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	PackedList(int initialCapacity) {
+		this.initialCapacity = Math.max(1, initialCapacity);
+	}
+
+	private static int classify(JsonValue value) {
+		if (value == null || !value.isNumber() || value.getPosition() != SourcePosition.UNSPECIFIED) {
+			return VALUES;
+		}
+		JsonNumber n = value.asNumber();
+		if (n.isLong()) {
+			return LONGS;
+		}
+		return n.isDouble() ? DOUBLES : VALUES;
+	}
+
+	private static boolean isExact(long value) {
+		return value >= -MAX_EXACT && value <= MAX_EXACT;
+	}
+
+	/**
+	 * Checks if the elements are kept as primitives.
+	 */
+	boolean isPacked() {
+		return mode != VALUES;
+	}
+
+	@Override
+	public int size() {
+		return values == null ? size : values.size();
+	}
+
+	private void checkIndex(int index, int limit) {
+		if (index < 0 || index >= limit) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	@Override
+	public JsonValue get(int index) {
+		switch (mode) {
+		case LONGS:
+			checkIndex(index, size);
+			return JsonNumber.of(longs[index]);
+		case DOUBLES:
+			checkIndex(index, size);
+			return JsonNumber.of(doubles[index]);
+		default:
+			return values.get(index);
+		}
+	}
+
+	/**
+	 * Retrieves an element as a <code>long</code> without creating a {@link JsonNumber}.
+	 */
+	long getLong(int index) {
+		switch (mode) {
+		case LONGS:
+			checkIndex(index, size);
+			return longs[index];
+		case DOUBLES:
+			checkIndex(index, size);
+			return (long) doubles[index];
+		default:
+			return values.get(index).longValue();
+		}
+	}
+
+	/**
+	 * Retrieves an element as a <code>double</code> without creating a {@link JsonNumber}.
+	 */
+	double getDouble(int index) {
+		switch (mode) {
+		case LONGS:
+			checkIndex(index, size);
+			return longs[index];
+		case DOUBLES:
+			checkIndex(index, size);
+			return doubles[index];
+		default:
+			return values.get(index).doubleValue();
+		}
+	}
+
+	long[] toLongArray() {
+		if (mode == LONGS) {
+			return size == 0 ? new long[0] : Arrays.copyOf(longs, size);
+		}
+		long[] a = new long[size()];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = getLong(i);
+		}
+		return a;
+	}
+
+	double[] toDoubleArray() {
+		if (mode == DOUBLES) {
+			return size == 0 ? new double[0] : Arrays.copyOf(doubles, size);
+		}
+		double[] a = new double[size()];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = getDouble(i);
+		}
+		return a;
+	}
+
+	/**
+	 * Makes sure that the element can be stored, changing the representation if needed.
+	 *
+	 * @return <code>true</code> if the element can be stored packed.
+	 */
+	private boolean accept(JsonValue element) {
+		if (mode == VALUES) {
+			return false;
+		}
+
+		int kind = classify(element);
+		if (kind == VALUES) {
+			unpack();
+			return false;
+		}
+
+		if (mode == LONGS && kind == DOUBLES) {
+			if (size > 0) {
+				for (int i = 0; i < size; i++) {
+					if (!isExact(longs[i])) {
+						unpack();
+						return false;
+					}
+				}
+				doubles = new double[longs.length];
+				for (int i = 0; i < size; i++) {
+					doubles[i] = longs[i];
+				}
+			}
+			longs = null;
+			mode = DOUBLES;
+		}
+		else if (mode == DOUBLES && kind == LONGS && !isExact(element.longValue())) {
+			unpack();
+			return false;
+		}
+
+		return true;
+	}
+
+	private void unpack() {
+		List<JsonValue> list = new ArrayList<JsonValue>(Math.max(initialCapacity, size + 1));
+		for (int i = 0; i < size; i++) {
+			list.add(get(i));
+		}
+		values = list;
+		longs = null;
+		doubles = null;
+		size = 0;
+		mode = VALUES;
+	}
+
+	private void store(int index, JsonValue element) {
+		if (mode == LONGS) {
+			longs[index] = element.longValue();
+		}
+		else {
+			doubles[index] = element.doubleValue();
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		int length;
+		if (mode == LONGS) {
+			length = longs == null ? 0 : longs.length;
+		}
+		else {
+			length = doubles == null ? 0 : doubles.length;
+		}
+		if (capacity <= length) {
+			return;
+		}
+		int n = Math.max(capacity, length == 0 ? initialCapacity : length + (length >> 1));
+		if (mode == LONGS) {
+			longs = longs == null ? new long[n] : Arrays.copyOf(longs, n);
+		}
+		else {
+			doubles = doubles == null ? new double[n] : Arrays.copyOf(doubles, n);
+		}
+	}
+
+	@Override
+	public JsonValue set(int index, JsonValue element) {
+		if (mode != VALUES) {
+			checkIndex(index, size);
+		}
+		if (!accept(element)) {
+			return values.set(index, element);
+		}
+		JsonValue old = get(index);
+		store(index, element);
+		return old;
+	}
+
+	@Override
+	public void add(int index, JsonValue element) {
+		if (mode != VALUES) {
+			checkIndex(index, size + 1);
+		}
+		modCount++;
+		if (!accept(element)) {
+			values.add(index, element);
+			return;
+		}
+
+		ensureCapacity(size + 1);
+		if (index < size) {
+			Object array = mode == LONGS ? longs : doubles;
+			System.arraycopy(array, index, array, index + 1, size - index);
+		}
+		size++;
+		store(index, element);
+	}
+
+	@Override
+	public JsonValue remove(int index) {
+		if (mode == VALUES) {
+			modCount++;
+			return values.remove(index);
+		}
+
+		JsonValue old = get(index);
+		Object array = mode == LONGS ? longs : doubles;
+		System.arraycopy(array, index + 1, array, index, size - index - 1);
+		size--;
+		modCount++;
+		return old;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof PackedList)) {
+			return super.equals(obj);
+		}
+
+		PackedList other = (PackedList) obj;
+		if (mode != other.mode) {
+			// A long and a double only match as JsonNumbers, (double) 2^53 + 1 is 2^53
+			return super.equals(obj);
+		}
+		if (mode == VALUES) {
+			return values.equals(other.values);
+		}
+		if (size != other.size) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (mode == LONGS ? longs[i] != other.longs[i] : doubles[i] != other.doubles[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		if (mode == VALUES) {
+			return values.hashCode();
+		}
+		int hash = 1;
+		for (int i = 0; i < size; i++) {
+			hash = 31 * hash + (mode == LONGS ? JsonNumber.hash(longs[i]) : JsonNumber.hash(doubles[i]));
+		}
+		return hash;
+	}
+
+	@Override
+	public void clear() {
+		modCount++;
+		mode = LONGS;
+		longs = null;
+		doubles = null;
+		values = null;
+		size = 0;
+	}
+}
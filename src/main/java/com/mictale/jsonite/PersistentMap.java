@@ -0,0 +1,397 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map in insertion order that shares structure with the maps it was derived from.
+ * <p>
+ * The members are kept in a {@link PersistentVector} in insertion order. A hash array mapped
+ * trie finds the slot of a name in that vector. Replacing a value only touches the vector,
+ * adding a member appends to the vector and adds the name to the trie. A removed member
+ * leaves an empty slot that is skipped and dropped once empty slots dominate.
+ *
+ * @author michael@mictale.com
+ */
+final class PersistentMap extends AbstractMap<String, JsonValue> {
+
+	private static final int BITS = 5;
+
+	private static final int MASK = (1 << BITS) - 1;
+
+	/**
+	 * Nodes below this shift have used up all bits of the hash and are searched linearly.
+	 */
+	private static final int MAX_SHIFT = 30;
+
+	static final PersistentMap EMPTY = new PersistentMap(null, PersistentVector.<Map.Entry<String, JsonValue>>empty(), 0);
+
+	/**
+	 * The slot of every name in {@link #members} or <code>null</code> if this map is empty.
+	 */
+	private final Node slots;
+
+	/**
+	 * The members in insertion order, removed members leave a <code>null</code>.
+	 */
+	private final PersistentVector<Map.Entry<String, JsonValue>> members;
+
+	private final int size;
+
+	private Set<Map.Entry<String, JsonValue>> entrySet;
+
+	private PersistentMap(Node slots, PersistentVector<Map.Entry<String, JsonValue>> members, int size) {
+		this.slots = slots;
+		this.members = members;
+		this.size = size;
+	}
+
+	/**
+	 * Creates a map with the members of another map in the same order.
+	 */
+	static PersistentMap of(Map<String, JsonValue> map) {
+		if (map instanceof PersistentMap) {
+			return (PersistentMap) map;
+		}
+
+		int n = map.size();
+		List<Map.Entry<String, JsonValue>> entries = new ArrayList<Map.Entry<String, JsonValue>>(n);
+		String[] keys = new String[n];
+		int[] hashes = new int[n];
+		int[] order = new int[n];
+		for (Map.Entry<String, JsonValue> e : map.entrySet()) {
+			String key = e.getKey();
+			int i = entries.size();
+			keys[i] = key;
+			hashes[i] = key.hashCode();
+			order[i] = i;
+			entries.add(new SimpleImmutableEntry<String, JsonValue>(key, e.getValue()));
+		}
+		Node slots = n == 0 ? null : build(keys, hashes, order, new int[n], 0, n, 0);
+		return new PersistentMap(slots, PersistentVector.of(entries), n);
+	}
+
+	/**
+	 * Builds the trie for a range of names in one pass per level, without the path copies
+	 * of {@link #put(Node, int, int, String, Integer)}.
+	 *
+	 * @param order holds the slots of the names, the range is sorted by the bits of this level.
+	 * @param scratch is as large as <code>order</code>.
+	 */
+	private static Node build(String[] keys, int[] hashes, int[] order, int[] scratch, int from, int to, int shift) {
+		if (shift > MAX_SHIFT) {
+			Object[] a = new Object[2 * (to - from)];
+			for (int i = from; i < to; i++) {
+				a[2 * (i - from)] = keys[order[i]];
+				a[2 * (i - from) + 1] = order[i];
+			}
+			return new Node(0, a);
+		}
+
+		int[] starts = new int[MASK + 2];
+		for (int i = from; i < to; i++) {
+			starts[((hashes[order[i]] >>> shift) & MASK) + 1]++;
+		}
+		int bitmap = 0;
+		for (int b = 0; b <= MASK; b++) {
+			if (starts[b + 1] != 0) {
+				bitmap |= 1 << b;
+			}
+			starts[b + 1] += starts[b];
+		}
+
+		int[] next = starts.clone();
+		for (int i = from; i < to; i++) {
+			int slot = order[i];
+			scratch[from + next[(hashes[slot] >>> shift) & MASK]++] = slot;
+		}
+		System.arraycopy(scratch, from, order, from, to - from);
+
+		Object[] a = new Object[2 * Integer.bitCount(bitmap)];
+		int j = 0;
+		for (int b = 0; b <= MASK; b++) {
+			int start = from + starts[b];
+			int end = from + starts[b + 1];
+			if (end - start == 1) {
+				a[j] = keys[order[start]];
+				a[j + 1] = order[start];
+				j += 2;
+			}
+			else if (end > start) {
+				a[j + 1] = build(keys, hashes, order, scratch, start, end, shift + BITS);
+				j += 2;
+			}
+		}
+		return new Node(bitmap, a);
+	}
+
+	private int slotOf(Object key) {
+		if (!(key instanceof String) || slots == null) {
+			return -1;
+		}
+		Integer slot = find(slots, 0, key.hashCode(), key);
+		return slot == null ? -1 : slot;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return slotOf(key) >= 0;
+	}
+
+	@Override
+	public JsonValue get(Object key) {
+		int slot = slotOf(key);
+		return slot < 0 ? null : members.get(slot).getValue();
+	}
+
+	/**
+	 * Creates a map with a member added or replaced.
+	 */
+	PersistentMap with(String key, JsonValue value) {
+		Map.Entry<String, JsonValue> entry = new SimpleImmutableEntry<String, JsonValue>(key, value);
+		int slot = slotOf(key);
+		if (slot >= 0) {
+			return new PersistentMap(slots, members.with(slot, entry), size);
+		}
+		return new PersistentMap(put(slots, 0, key.hashCode(), key, members.size()), members.plus(entry), size + 1);
+	}
+
+	/**
+	 * Creates a map without a member.
+	 */
+	PersistentMap without(String key) {
+		int slot = slotOf(key);
+		if (slot < 0) {
+			return this;
+		}
+
+		PersistentMap map = new PersistentMap(remove(slots, 0, key.hashCode(), key), members.with(slot, null), size - 1);
+		int empty = map.members.size() - map.size;
+		if (empty > 32 && empty > map.size) {
+			map = of(new LinkedHashMap<String, JsonValue>(map));
+		}
+		return map;
+	}
+
+	@Override
+	public Set<Map.Entry<String, JsonValue>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	private final class EntrySet extends AbstractSet<Map.Entry<String, JsonValue>> {
+
+		@Override
+		public Iterator<Map.Entry<String, JsonValue>> iterator() {
+			return new Iterator<Map.Entry<String, JsonValue>>() {
+
+				private int next = skip(0);
+
+				private int skip(int i) {
+					while (i < members.size() && members.get(i) == null) {
+						i++;
+					}
+					return i;
+				}
+
+				@Override
+				public boolean hasNext() {
+					return next < members.size();
+				}
+
+				@Override
+				public Map.Entry<String, JsonValue> next() {
+					if (next >= members.size()) {
+						throw new NoSuchElementException();
+					}
+					Map.Entry<String, JsonValue> entry = members.get(next);
+					next = skip(next + 1);
+					return entry;
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * A node of the trie.
+	 * <p>
+	 * The array holds a name and a slot for every member or <code>null</code> and a child node.
+	 * Above {@link #MAX_SHIFT} the bitmap tells which of the 32 possible entries are present,
+	 * below it the names have the same hash and the array is searched linearly.
+	 */
+	private static final class Node {
+
+		final int bitmap;
+
+		final Object[] array;
+
+		Node(int bitmap, Object[] array) {
+			this.bitmap = bitmap;
+			this.array = array;
+		}
+	}
+
+	private static int bit(int hash, int shift) {
+		return 1 << ((hash >>> shift) & MASK);
+	}
+
+	private static int index(int bitmap, int bit) {
+		return Integer.bitCount(bitmap & bit - 1);
+	}
+
+	private static Integer find(Node node, int shift, int hash, Object key) {
+		while (shift <= MAX_SHIFT) {
+			int bit = bit(hash, shift);
+			if ((node.bitmap & bit) == 0) {
+				return null;
+			}
+			int i = 2 * index(node.bitmap, bit);
+			Object k = node.array[i];
+			if (k != null) {
+				return key.equals(k) ? (Integer) node.array[i + 1] : null;
+			}
+			node = (Node) node.array[i + 1];
+			shift += BITS;
+		}
+
+		for (int i = 0; i < node.array.length; i += 2) {
+			if (key.equals(node.array[i])) {
+				return (Integer) node.array[i + 1];
+			}
+		}
+		return null;
+	}
+
+	private static Node put(Node node, int shift, int hash, String key, Integer slot) {
+		if (node == null) {
+			return shift > MAX_SHIFT ? new Node(0, new Object[] {key, slot}) : new Node(bit(hash, shift), new Object[] {key, slot});
+		}
+
+		if (shift > MAX_SHIFT) {
+			for (int i = 0; i < node.array.length; i += 2) {
+				if (key.equals(node.array[i])) {
+					return new Node(0, replace(node.array, i + 1, slot));
+				}
+			}
+			Object[] a = new Object[node.array.length + 2];
+			System.arraycopy(node.array, 0, a, 0, node.array.length);
+			a[node.array.length] = key;
+			a[node.array.length + 1] = slot;
+			return new Node(0, a);
+		}
+
+		int bit = bit(hash, shift);
+		int i = 2 * index(node.bitmap, bit);
+		if ((node.bitmap & bit) == 0) {
+			Object[] a = new Object[node.array.length + 2];
+			System.arraycopy(node.array, 0, a, 0, i);
+			a[i] = key;
+			a[i + 1] = slot;
+			System.arraycopy(node.array, i, a, i + 2, node.array.length - i);
+			return new Node(node.bitmap | bit, a);
+		}
+
+		Object k = node.array[i];
+		Object v = node.array[i + 1];
+		if (k == null) {
+			return new Node(node.bitmap, replace(node.array, i + 1, put((Node) v, shift + BITS, hash, key, slot)));
+		}
+		if (key.equals(k)) {
+			return new Node(node.bitmap, replace(node.array, i + 1, slot));
+		}
+
+		// Push the existing member down into a new child along with the new one
+		String other = (String) k;
+		Node child = put(put(null, shift + BITS, other.hashCode(), other, (Integer) v), shift + BITS, hash, key, slot);
+		Object[] a = replace(node.array, i + 1, child);
+		a[i] = null;
+		return new Node(node.bitmap, a);
+	}
+
+	private static Node remove(Node node, int shift, int hash, String key) {
+		if (shift > MAX_SHIFT) {
+			for (int i = 0; i < node.array.length; i += 2) {
+				if (key.equals(node.array[i])) {
+					return node.array.length == 2 ? null : new Node(0, cut(node.array, i));
+				}
+			}
+			return node;
+		}
+
+		int bit = bit(hash, shift);
+		if ((node.bitmap & bit) == 0) {
+			return node;
+		}
+		int i = 2 * index(node.bitmap, bit);
+		Object k = node.array[i];
+		if (k == null) {
+			Node child = (Node) node.array[i + 1];
+			Node c = remove(child, shift + BITS, hash, key);
+			if (c == child) {
+				return node;
+			}
+			if (c != null) {
+				return new Node(node.bitmap, replace(node.array, i + 1, c));
+			}
+		}
+		else if (!key.equals(k)) {
+			return node;
+		}
+
+		return node.bitmap == bit ? null : new Node(node.bitmap & ~bit, cut(node.array, i));
+	}
+
+	private static Object[] replace(Object[] array, int i, Object value) {
+		Object[] a = array.clone();
+		a[i] = value;
+		return a;
+	}
+
+	private static Object[] cut(Object[] array, int i) {
+		Object[] a = new Object[array.length - 2];
+		System.arraycopy(array, 0, a, 0, i);
+		System.arraycopy(array, i + 2, a, i, array.length - i - 2);
+		return a;
+	}
+}
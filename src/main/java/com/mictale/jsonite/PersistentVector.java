@@ -0,0 +1,207 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list that shares structure with the lists it was derived from.
+ * <p>
+ * The elements are kept in a trie of 32 element arrays with a separate tail for the last
+ * elements. Replacing an element copies only the arrays on the path to it and appending
+ * mostly copies the tail, so both take <code>O(log32 n)</code> time and space.
+ *
+ * @author michael@mictale.com
+ */
+final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+
+	private static final int BITS = 5;
+
+	private static final int WIDTH = 1 << BITS;
+
+	private static final int MASK = WIDTH - 1;
+
+	private static final Object[] EMPTY_NODE = new Object[WIDTH];
+
+	private static final PersistentVector<?> EMPTY = new PersistentVector<Object>(0, BITS, EMPTY_NODE, new Object[0]);
+
+	private final int size;
+
+	/**
+	 * The number of bits to shift an index by to find its slot in {@link #root}.
+	 */
+	private final int shift;
+
+	private final Object[] root;
+
+	private final Object[] tail;
+
+	private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+		this.size = size;
+		this.shift = shift;
+		this.root = root;
+		this.tail = tail;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <E> PersistentVector<E> empty() {
+		return (PersistentVector<E>) EMPTY;
+	}
+
+	/**
+	 * Creates a vector with the specified elements in linear time.
+	 */
+	static <E> PersistentVector<E> of(Collection<? extends E> elements) {
+		Object[] all = elements.toArray();
+		int size = all.length;
+		int tailOffset = size == 0 ? 0 : (size - 1 >>> BITS) << BITS;
+
+		Object[] tail = Arrays.copyOfRange(all, tailOffset, size);
+		if (tailOffset == 0) {
+			return new PersistentVector<E>(size, BITS, EMPTY_NODE, tail);
+		}
+
+		Object[] level = new Object[tailOffset >>> BITS];
+		for (int i = 0; i < level.length; i++) {
+			level[i] = Arrays.copyOfRange(all, i << BITS, (i + 1) << BITS);
+		}
+
+		int shift = BITS;
+		while (true) {
+			Object[] parents = new Object[(level.length + MASK) >>> BITS];
+			for (int i = 0; i < parents.length; i++) {
+				Object[] node = new Object[WIDTH];
+				System.arraycopy(level, i << BITS, node, 0, Math.min(WIDTH, level.length - (i << BITS)));
+				parents[i] = node;
+			}
+			if (parents.length == 1) {
+				return new PersistentVector<E>(size, shift, (Object[]) parents[0], tail);
+			}
+			level = parents;
+			shift += BITS;
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	private int tailOffset() {
+		return size < WIDTH ? 0 : (size - 1 >>> BITS) << BITS;
+	}
+
+	private Object[] arrayFor(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		if (index >= tailOffset()) {
+			return tail;
+		}
+		Object[] node = root;
+		for (int level = shift; level > 0; level -= BITS) {
+			node = (Object[]) node[(index >>> level) & MASK];
+		}
+		return node;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E get(int index) {
+		return (E) arrayFor(index)[index & MASK];
+	}
+
+	/**
+	 * Creates a vector with one element replaced.
+	 */
+	PersistentVector<E> with(int index, E element) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		if (index >= tailOffset()) {
+			Object[] t = tail.clone();
+			t[index & MASK] = element;
+			return new PersistentVector<E>(size, shift, root, t);
+		}
+		return new PersistentVector<E>(size, shift, replace(shift, root, index, element), tail);
+	}
+
+	private static Object[] replace(int level, Object[] node, int index, Object element) {
+		Object[] copy = node.clone();
+		if (level == 0) {
+			copy[index & MASK] = element;
+		}
+		else {
+			int slot = (index >>> level) & MASK;
+			copy[slot] = replace(level - BITS, (Object[]) node[slot], index, element);
+		}
+		return copy;
+	}
+
+	/**
+	 * Creates a vector with an element appended.
+	 */
+	PersistentVector<E> plus(E element) {
+		if (size - tailOffset() < WIDTH) {
+			Object[] t = Arrays.copyOf(tail, tail.length + 1);
+			t[tail.length] = element;
+			return new PersistentVector<E>(size + 1, shift, root, t);
+		}
+
+		// The tail is full and moves into the trie
+		Object[] newRoot;
+		int newShift = shift;
+		if ((size >>> BITS) > (1 << shift)) {
+			newRoot = new Object[WIDTH];
+			newRoot[0] = root;
+			newRoot[1] = newPath(shift, tail);
+			newShift += BITS;
+		}
+		else {
+			newRoot = pushTail(shift, root, tail);
+		}
+		return new PersistentVector<E>(size + 1, newShift, newRoot, new Object[] {element});
+	}
+
+	private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+		int slot = ((size - 1) >>> level) & MASK;
+		Object[] copy = parent.clone();
+		Object[] insert;
+		if (level == BITS) {
+			insert = tailNode;
+		}
+		else {
+			Object[] child = (Object[]) parent[slot];
+			insert = child != null ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+		}
+		copy[slot] = insert;
+		return copy;
+	}
+
+	private static Object[] newPath(int level, Object[] node) {
+		if (level == 0) {
+			return node;
+		}
+		Object[] path = new Object[WIDTH];
+		path[0] = newPath(level - BITS, node);
+		return path;
+	}
+}
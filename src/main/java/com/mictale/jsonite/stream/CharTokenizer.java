@@ -0,0 +1,212 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A {@link JsonTokenizer} that scans characters.
+ *
+ * @author michael@mictale.com
+ */
+final class CharTokenizer extends JsonTokenizer {
+
+	/**
+	 * The source of the characters or <code>null</code> if all input is already in {@link #chars}.
+	 */
+	private final Reader reader;
+
+	private final char[] chars;
+
+	private int index;
+
+	private int limit;
+
+	CharTokenizer(Reader reader, int bufferSize) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Illegal buffer size: " + bufferSize);
+		}
+		this.reader = reader;
+		this.chars = new char[bufferSize];
+	}
+
+	CharTokenizer(String json) {
+		this.reader = null;
+		this.chars = json.toCharArray();
+		this.limit = chars.length;
+	}
+
+	private void nextPosition() {
+		if (lastChar == '\n') {
+			line++;
+			column = 0;
+		}
+		else {
+			column++;
+		}
+
+		position++;
+	}
+
+	/**
+	 * Refills the buffer with the next block of characters.
+	 *
+	 * @return <code>false</code> if there are no more characters.
+	 */
+	private boolean fill() throws IOException {
+		if (reader == null) {
+			return false;
+		}
+
+		int n;
+		do {
+			n = reader.read(chars, 0, chars.length);
+		} while (n == 0);
+
+		if (n < 0) {
+			return false;
+		}
+
+		index = 0;
+		limit = n;
+		return true;
+	}
+
+	private int read() throws IOException {
+		if (index == limit && !fill()) {
+			return EOS;
+		}
+
+		return chars[index++];
+	}
+
+	@Override
+	protected int skipWs() throws IOException {
+		if (lastChar != EOS) {
+			lastChar = read();
+			if (trackPositions) {
+				nextPosition();
+			}
+			while (lastChar == ' ' || lastChar == '\r' || lastChar == '\n' || lastChar == '\t') {
+				skipBlanks();
+				lastChar = read();
+				if (trackPositions) {
+					nextPosition();
+				}
+			}
+		}
+
+		return lastChar;
+	}
+
+	/**
+	 * Skips the run of buffered blanks that indent the next line in one go.
+	 */
+	private void skipBlanks() {
+		int end = TextScanner.endOfBlanks(chars, index, limit);
+		if (trackPositions) {
+			column += end - index;
+			position += end - index;
+		}
+		index = end;
+	}
+
+	@Override
+	protected int skip() throws IOException {
+		if (lastChar != EOS) {
+			lastChar = read();
+			if (trackPositions) {
+				nextPosition();
+			}
+		}
+
+		return lastChar;
+	}
+
+	/**
+	 * Appends the run of buffered characters that need no further inspection in one go.
+	 */
+	private void appendPlainChars() {
+		int start = index;
+		index = TextScanner.endOfPlain(chars, index, limit);
+
+		int length = index - start;
+		if (length > 0) {
+			ensureText(textLength + length);
+			System.arraycopy(chars, start, text, textLength, length);
+			textLength += length;
+			lastChar = chars[index - 1];
+			if (trackPositions) {
+				column += length;
+				position += length;
+			}
+		}
+	}
+
+	@Override
+	protected void parseString() throws IOException {
+		while (true) {
+			appendPlainChars();
+			skip();
+
+			switch (lastChar) {
+			default:
+				put((char) lastChar);
+				break;
+			case EOS:
+				throwUnexpected("'\"'", "end of stream");
+				break;
+			case JsonSyntax.STRING_QUOTE:
+				skipWs();
+				return;
+			case JsonSyntax.STRING_ESCAPE:
+				skipWs();
+				switch (lastChar) {
+				case JsonSyntax.STRING_QUOTE:
+					put(JsonSyntax.STRING_QUOTE);
+					break;
+				case JsonSyntax.STRING_ESCAPE:
+					put(JsonSyntax.STRING_ESCAPE);
+					break;
+				case JsonSyntax.ESCAPE_SOLIDUS:
+					put(JsonSyntax.ESCAPE_SOLIDUS);
+					break;
+				case JsonSyntax.ESCAPE_BACKSPACE:
+					put('\b');
+					break;
+				case JsonSyntax.ESCAPE_FEED:
+					put('\f');
+					break;
+				case JsonSyntax.ESCAPE_NEWLINE:
+					put('\n');
+					break;
+				case JsonSyntax.ESCAPE_RETURN:
+					put('\r');
+					break;
+				case JsonSyntax.ESCAPE_TAB:
+					put('\t');
+					break;
+				case 'u':
+					parseUnicodeEscape();
+					break;
+				}
+			}
+		}
+	}
+}
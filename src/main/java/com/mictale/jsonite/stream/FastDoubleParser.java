@@ -0,0 +1,184 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.math.BigInteger;
+
+/**
+ * Converts a decimal significand and exponent into the nearest <code>double</code>.
+ * <p>
+ * Small values are converted exactly with Clinger's fast path, all others with the
+ * Eisel-Lemire algorithm. In the rare cases where the latter cannot decide the rounding,
+ * the conversion reports {@link Double#NaN} and the caller falls back to
+ * {@link Double#parseDouble(String)}.
+ *
+ * @author michael@mictale.com
+ */
+final class FastDoubleParser {
+
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private static final int SMALLEST_POWER_OF_TEN = -342;
+
+	private static final int LARGEST_POWER_OF_TEN = 308;
+
+	private FastDoubleParser() {
+	}
+
+	/**
+	 * Computes <code>significand * 10^exponent</code> rounded to the nearest <code>double</code>.
+	 *
+	 * @param significand is the unsigned significand with at most 19 decimal digits.
+	 * @param exponent is the decimal exponent.
+	 * @return the positive result or {@link Double#NaN} if the result cannot be computed quickly.
+	 */
+	static double toDouble(long significand, int exponent) {
+		if (significand == 0) {
+			return 0.0;
+		}
+
+		if (exponent >= -22 && exponent <= 22 && significand >>> 53 == 0) {
+			return exponent < 0 ? significand / POWERS_OF_TEN[-exponent] : significand * POWERS_OF_TEN[exponent];
+		}
+
+		return eiselLemire(significand, exponent);
+	}
+
+	private static double eiselLemire(long w, int q) {
+		if (q < SMALLEST_POWER_OF_TEN) {
+			return 0.0;
+		}
+		if (q > LARGEST_POWER_OF_TEN) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		int lz = Long.numberOfLeadingZeros(w);
+		w <<= lz;
+
+		long[] powers = PowersOfFive.TABLE;
+		int index = 2 * (q - SMALLEST_POWER_OF_TEN);
+		long high = multiplyHigh(w, powers[index]);
+		long low = w * powers[index];
+
+		if ((high & 0x1ff) == 0x1ff) {
+			long high2 = multiplyHigh(w, powers[index + 1]);
+			low += high2;
+			if (lessThanUnsigned(low, high2)) {
+				high++;
+			}
+		}
+
+		if (low == -1L && (q < -27 || q > 55)) {
+			return Double.NaN;
+		}
+
+		int upperBit = (int) (high >>> 63);
+		long mantissa = high >>> (upperBit + 9);
+		int power2 = ((217706 * q) >> 16) + 63 + upperBit - lz + 1023;
+
+		if (power2 <= 0) {
+			if (-power2 + 1 >= 64) {
+				return 0.0;
+			}
+			mantissa >>>= -power2 + 1;
+			mantissa += mantissa & 1;
+			mantissa >>>= 1;
+			power2 = mantissa < 1L << 52 ? 0 : 1;
+			return Double.longBitsToDouble(mantissa | (long) power2 << 52);
+		}
+
+		if (!lessThanUnsigned(1, low) && q >= -4 && q <= 23 && (mantissa & 3) == 1
+				&& mantissa << (upperBit + 9) == high) {
+			mantissa &= ~1L;
+		}
+
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+		if (mantissa >= 2L << 52) {
+			mantissa = 1L << 52;
+			power2++;
+		}
+		mantissa &= ~(1L << 52);
+
+		if (power2 >= 0x7ff) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		return Double.longBitsToDouble(mantissa | (long) power2 << 52);
+	}
+
+	private static boolean lessThanUnsigned(long a, long b) {
+		return a + Long.MIN_VALUE < b + Long.MIN_VALUE;
+	}
+
+	/**
+	 * Returns the upper 64 bits of the unsigned 128 bit product.
+	 */
+	private static long multiplyHigh(long a, long b) {
+		long aLow = a & 0xffffffffL;
+		long aHigh = a >>> 32;
+		long bLow = b & 0xffffffffL;
+		long bHigh = b >>> 32;
+
+		long lowLow = aLow * bLow;
+		long highLow = aHigh * bLow;
+		long lowHigh = aLow * bHigh;
+		long highHigh = aHigh * bHigh;
+
+		long cross = (lowLow >>> 32) + (highLow & 0xffffffffL) + lowHigh;
+		return highHigh + (highLow >>> 32) + (cross >>> 32);
+	}
+
+	/**
+	 * The 128 bit approximations of the powers of five, computed on first use.
+	 */
+	private static final class PowersOfFive {
+
+		static final long[] TABLE = compute();
+
+		private static long[] compute() {
+			BigInteger five = BigInteger.valueOf(5);
+			long[] table = new long[2 * (LARGEST_POWER_OF_TEN - SMALLEST_POWER_OF_TEN + 1)];
+
+			for (int q = SMALLEST_POWER_OF_TEN; q <= LARGEST_POWER_OF_TEN; q++) {
+				BigInteger c;
+				if (q < 0) {
+					BigInteger power = five.pow(-q);
+					int z = power.bitLength();
+					int b = q >= -27 ? z + 127 : 2 * z + 128;
+					c = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+				}
+				else {
+					c = five.pow(q);
+				}
+
+				int shift = 128 - c.bitLength();
+				c = shift >= 0 ? c.shiftLeft(shift) : c.shiftRight(-shift);
+
+				int index = 2 * (q - SMALLEST_POWER_OF_TEN);
+				table[index] = c.shiftRight(64).longValue();
+				table[index + 1] = c.longValue();
+			}
+
+			return table;
+		}
+	}
+}
@@ -0,0 +1,457 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.nio.ByteBuffer;
+
+import com.mictale.jsonite.JsonValue;
+import com.mictale.jsonite.SourcePosition;
+
+/**
+ * Produces JSON nodes from UTF-8 encoded bytes in memory in two stages.
+ * <p>
+ * The first stage finds all structural bytes of a block of input with bitwise operations on
+ * <code>long</code> words, see {@link StructuralIndex}. The second stage only visits these
+ * offsets and creates a {@link Token} for each of them. Whitespace is never looked at in the
+ * second stage and the contents of strings are only read to decode them.
+ * <p>
+ * The produced {@link Token}s are identical to those of a {@link JsonUtf8StreamProducer} with
+ * source positions switched off, so this producer can replace it for input that is already in
+ * memory. All tokens report {@link SourcePosition#UNSPECIFIED}, errors report the offset of the
+ * offending byte.
+ *
+ * @author michael@mictale.com
+ */
+public final class JsonIndexProducer implements Producer {
+
+	private final byte[] bytes;
+
+	private final int offset;
+
+	private final int limit;
+
+	private boolean reuseTokens;
+
+	private SymbolTable symbols;
+
+	private boolean internNames = true;
+
+	/**
+	 * The decoded contents of the last string.
+	 */
+	private char[] text = new char[64];
+
+	/**
+	 * The offset after the last scalar.
+	 */
+	private int end;
+
+	private final NumberParser number = new NumberParser();
+
+	private final NumberText numberText = new NumberText();
+
+	public JsonIndexProducer(byte[] bytes) {
+		this(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Initializes a producer that parses a range of a byte array in place.
+	 *
+	 * @param bytes contains the JSON content.
+	 * @param offset is the index of the first byte to parse.
+	 * @param length is the number of bytes to parse.
+	 */
+	public JsonIndexProducer(byte[] bytes, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > bytes.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		this.bytes = bytes;
+		this.offset = offset;
+		this.limit = offset + length;
+	}
+
+	/**
+	 * Initializes a producer that parses the remaining bytes of a {@link ByteBuffer}.
+	 * <p>
+	 * Heap buffers are parsed in place, direct buffers are copied to the heap first. The
+	 * position of the specified buffer is not modified.
+	 *
+	 * @param buffer contains the JSON content.
+	 */
+	public JsonIndexProducer(ByteBuffer buffer) {
+		if (buffer.hasArray()) {
+			this.bytes = buffer.array();
+			this.offset = buffer.arrayOffset() + buffer.position();
+		}
+		else {
+			this.bytes = new byte[buffer.remaining()];
+			buffer.duplicate().get(bytes);
+			this.offset = 0;
+		}
+		this.limit = offset + buffer.remaining();
+	}
+
+	/**
+	 * Specifies if a single {@link Token} should be reused for all events.
+	 *
+	 * @param reuseTokens is <code>true</code> to reuse tokens.
+	 * @see JsonStreamProducer#setReuseTokens(boolean)
+	 */
+	public void setReuseTokens(boolean reuseTokens) {
+		this.reuseTokens = reuseTokens;
+	}
+
+	/**
+	 * Specifies the table used to find canonical member names.
+	 *
+	 * @param symbols is the table or <code>null</code> to create a new string for every name.
+	 * @see JsonStreamProducer#setSymbolTable(SymbolTable)
+	 */
+	public void setSymbolTable(SymbolTable symbols) {
+		this.symbols = symbols;
+		this.internNames = symbols != null;
+	}
+
+	@Override
+	public void copyTo(Consumer consumer) {
+		StructuralIndex index = new StructuralIndex(bytes, offset, limit - offset);
+		Token token = reuseTokens ? new Token() : null;
+
+		int i;
+		while ((i = index.next()) >= 0) {
+			TokenType type;
+			JsonValue value = null;
+			switch (bytes[i]) {
+			case JsonSyntax.OBJECT_BEGIN:
+				type = TokenType.START_OBJECT;
+				break;
+			case JsonSyntax.OBJECT_END:
+				type = TokenType.END_OBJECT;
+				break;
+			case JsonSyntax.ARRAY_BEGIN:
+				type = TokenType.START_ARRAY;
+				break;
+			case JsonSyntax.ARRAY_END:
+				type = TokenType.END_ARRAY;
+				break;
+			case JsonSyntax.SEPARATOR:
+			case JsonSyntax.OBJECT_MEMBER_SEPARATOR:
+				continue;
+			case JsonSyntax.STRING_QUOTE:
+				int next = index.peek();
+				int length = parseString(i + 1, next < 0 ? limit : next);
+				if (next >= 0 && bytes[next] == JsonSyntax.OBJECT_MEMBER_SEPARATOR) {
+					type = TokenType.MEMBER_NAME;
+					value = internNames ? lookupName(length) : JsonValue.of(new String(text, 0, length));
+				}
+				else {
+					type = TokenType.PRIMITIVE;
+					value = JsonValue.of(new String(text, 0, length));
+				}
+				break;
+			default:
+				type = TokenType.PRIMITIVE;
+				value = parseScalar(i);
+				break;
+			}
+
+			consumer.append(token != null
+					? token.set(type, value, SourcePosition.UNSPECIFIED)
+					: new Token(type, value, SourcePosition.UNSPECIFIED));
+		}
+	}
+
+	private JsonValue lookupName(int length) {
+		if (symbols == null) {
+			symbols = new SymbolTable();
+		}
+		return symbols.lookup(text, length);
+	}
+
+	private void throwUnexpected(String expected, int i) {
+		String found = i >= limit ? "end of stream" : String.valueOf((char) (bytes[i] & 0xff));
+		throw new BrokenStreamException("Expected " + expected + " found " + found + " at offset " + (i - offset));
+	}
+
+	private void throwMalformed(int i) {
+		throw new BrokenStreamException("Malformed UTF-8 input at offset " + (i - offset));
+	}
+
+	private int continuation(int i) {
+		if (i >= limit || !Utf8.isContinuation(bytes[i])) {
+			throwMalformed(i);
+		}
+		return bytes[i] & 0x3f;
+	}
+
+	/**
+	 * Decodes a string into {@link #text}.
+	 *
+	 * @param i is the offset after the opening quote.
+	 * @param bound is an offset after the closing quote, which limits the length of the string.
+	 * @return the number of decoded characters.
+	 */
+	private int parseString(int i, int bound) {
+		// No byte decodes to more than one character, except four byte sequences to two
+		if (text.length < bound - i) {
+			text = new char[Math.max(text.length * 2, bound - i)];
+		}
+		char[] t = text;
+		int n = 0;
+		while (true) {
+			int b;
+			while (i < limit && (b = bytes[i]) >= 0 && b != JsonSyntax.STRING_QUOTE && b != JsonSyntax.STRING_ESCAPE) {
+				t[n++] = (char) b;
+				i++;
+			}
+			if (i >= limit) {
+				throwUnexpected("'\"'", i);
+			}
+
+			b = bytes[i++];
+			if (b == JsonSyntax.STRING_QUOTE) {
+				return n;
+			}
+			else if (b == JsonSyntax.STRING_ESCAPE) {
+				if (i >= limit) {
+					throwUnexpected("escape", i);
+				}
+				switch (bytes[i++]) {
+				case JsonSyntax.STRING_QUOTE:
+					t[n++] = JsonSyntax.STRING_QUOTE;
+					break;
+				case JsonSyntax.STRING_ESCAPE:
+					t[n++] = JsonSyntax.STRING_ESCAPE;
+					break;
+				case JsonSyntax.ESCAPE_SOLIDUS:
+					t[n++] = JsonSyntax.ESCAPE_SOLIDUS;
+					break;
+				case JsonSyntax.ESCAPE_BACKSPACE:
+					t[n++] = '\b';
+					break;
+				case JsonSyntax.ESCAPE_FEED:
+					t[n++] = '\f';
+					break;
+				case JsonSyntax.ESCAPE_NEWLINE:
+					t[n++] = '\n';
+					break;
+				case JsonSyntax.ESCAPE_RETURN:
+					t[n++] = '\r';
+					break;
+				case JsonSyntax.ESCAPE_TAB:
+					t[n++] = '\t';
+					break;
+				case 'u':
+					int ch = 0;
+					for (int end = i + 4; i < end; i++) {
+						int digit = i < limit ? Character.digit(bytes[i], 16) : -1;
+						if (digit < 0) {
+							throwUnexpected("hex digit", i);
+						}
+						ch = ch << 4 | digit;
+					}
+					t[n++] = (char) ch;
+					break;
+				default:
+					break;
+				}
+			}
+			else if (b >= 0) {
+				t[n++] = (char) b;
+			}
+			else {
+				int lead = b & 0xff;
+				int start = i - 1;
+				int extra = Utf8.continuations(lead);
+				if (extra < 0) {
+					throwMalformed(start);
+				}
+				int codePoint = Utf8.leadBits(lead, extra);
+				for (int end = i + extra; i < end; i++) {
+					codePoint = codePoint << 6 | continuation(i);
+				}
+				if (!Utf8.isValid(codePoint, extra)) {
+					throwMalformed(start);
+				}
+				if (extra == 3) {
+					t[n++] = Character.highSurrogate(codePoint);
+					t[n++] = Character.lowSurrogate(codePoint);
+				}
+				else {
+					t[n++] = (char) codePoint;
+				}
+			}
+		}
+	}
+
+	private boolean isDigit(int i) {
+		return i < limit && bytes[i] >= '0' && bytes[i] <= '9';
+	}
+
+	/**
+	 * Checks that a number or literal is not followed by anything but white space or syntax.
+	 */
+	private void checkEnd(int i) {
+		if (i < limit) {
+			switch (bytes[i]) {
+			case ' ':
+			case '\t':
+			case '\r':
+			case '\n':
+			case JsonSyntax.SEPARATOR:
+			case JsonSyntax.OBJECT_MEMBER_SEPARATOR:
+			case JsonSyntax.OBJECT_BEGIN:
+			case JsonSyntax.OBJECT_END:
+			case JsonSyntax.ARRAY_BEGIN:
+			case JsonSyntax.ARRAY_END:
+			case JsonSyntax.STRING_QUOTE:
+				break;
+			default:
+				throwUnexpected("separator", i);
+			}
+		}
+	}
+
+	private JsonValue parseScalar(int i) {
+		JsonValue value;
+		switch (bytes[i]) {
+		case 't':
+			value = parseLiteral(i, JsonSyntax.BOOLEAN_TRUE, JsonValue.TRUE);
+			break;
+		case 'f':
+			value = parseLiteral(i, JsonSyntax.BOOLEAN_FALSE, JsonValue.FALSE);
+			break;
+		case 'n':
+			value = parseLiteral(i, JsonSyntax.NULL, JsonValue.NULL);
+			break;
+		default:
+			value = parseNumber(i);
+			break;
+		}
+		checkEnd(end);
+		return value;
+	}
+
+	private JsonValue parseLiteral(int i, String literal, JsonValue value) {
+		for (int j = 0; j < literal.length(); j++) {
+			if (i + j >= limit || bytes[i + j] != literal.charAt(j)) {
+				throwUnexpected(literal, i + j);
+			}
+		}
+		end = i + literal.length();
+		return value;
+	}
+
+	/**
+	 * Parses a number like the {@link JsonTokenizer}, so both produce identical values.
+	 */
+	private JsonValue parseNumber(int start) {
+		int i = start;
+		number.reset();
+		if (bytes[i] == JsonSyntax.NUMBER_SIGN) {
+			number.negate();
+			i++;
+		}
+		if (!isDigit(i)) {
+			throwUnexpected("digit", i);
+		}
+
+		do {
+			number.integerDigit(bytes[i++]);
+		} while (isDigit(i));
+
+		if (i < limit && bytes[i] == JsonSyntax.NUMBER_DECIMAL) {
+			number.decimalPoint();
+			i++;
+			while (isDigit(i)) {
+				number.fractionDigit(bytes[i++]);
+			}
+		}
+
+		if (i < limit && (bytes[i] == JsonSyntax.NUMBER_ENGINEERING || bytes[i] == JsonSyntax.NUMBER_ENGINEERING_UPPER)) {
+			number.startExponent();
+			i++;
+
+			if (i < limit && (bytes[i] == JsonSyntax.NUMBER_SIGN || bytes[i] == JsonSyntax.NUMBER_EXPONENT_SIGN)) {
+				if (bytes[i] == JsonSyntax.NUMBER_SIGN) {
+					number.negateExponent();
+				}
+				i++;
+			}
+
+			if (!isDigit(i)) {
+				throwUnexpected("digit", i);
+			}
+
+			do {
+				number.exponentDigit(bytes[i++]);
+			} while (isDigit(i));
+		}
+
+		end = i;
+
+		numberText.start = start;
+		numberText.end = i;
+		try {
+			return number.toValue(numberText);
+		} catch (NumberFormatException e) {
+			throw new BrokenStreamException("Number out of range at offset " + (start - offset));
+		}
+	}
+
+	/**
+	 * The text of the last number, which is only copied when the number is too large or too precise
+	 * for the fast conversion.
+	 */
+	private final class NumberText implements CharSequence {
+
+		private int start;
+
+		private int end;
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+			return (char) bytes[start + index];
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			if (from < 0 || to > end - start || from > to) {
+				throw new IndexOutOfBoundsException();
+			}
+			return toString().substring(from, to);
+		}
+
+		@Override
+		public String toString() {
+			char[] chars = new char[end - start];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = (char) bytes[start + i];
+			}
+			return new String(chars);
+		}
+	}
+}
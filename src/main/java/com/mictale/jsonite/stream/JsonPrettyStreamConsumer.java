@@ -17,16 +17,16 @@ public class JsonPrettyStreamConsumer extends JsonStreamConsumer {
     }
 
     protected void newLine() throws IOException {
-        writer.write("\n");
+        write('\n');
 
         for (int i = 0; i < indent; i++) {
-            writer.write(SPACES);
+            write(SPACES);
         }
     }
 
     @Override
     protected void space() throws IOException {
-        writer.write(" ");
+        write(' ');
     }
 
     protected void addIndent() throws IOException {
@@ -0,0 +1,767 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.nio.ByteBuffer;
+
+import com.mictale.jsonite.JsonNumber;
+import com.mictale.jsonite.JsonValue;
+import com.mictale.jsonite.SourcePosition;
+
+/**
+ * Parses UTF-8 encoded JSON that arrives in chunks of any size.
+ * <p>
+ * Instead of reading from a source, this parser is fed with {@link #feed(byte[], int, int)}
+ * or {@link #feed(ByteBuffer)} whenever input is available, for example from a non-blocking
+ * channel. It appends every {@link Token} to its {@link Consumer} as soon as the token is
+ * complete and returns when the chunk is used up, it never waits for more input. A chunk may
+ * end anywhere, even within a string, a number, an escape sequence or a multi-byte character.
+ * Everything needed to continue is kept in the parser, only the decoded contents of the current
+ * string or number are buffered. Call {@link #endOfInput()} after the last chunk to complete a
+ * value at the very end and to check that the input does not end within a string.
+ * <p>
+ * The produced {@link Token}s are identical to those of a {@link JsonUtf8StreamProducer} that
+ * reads all chunks at once, including their source positions. Like that producer, this parser
+ * checks the syntax of single tokens but leaves the structure to the consumer.
+ * <p>
+ * Scalars and strings are only complete when the next byte is known, so a value at the very
+ * end of a chunk is appended with the next chunk. An instance is not thread-safe.
+ *
+ * @author michael@mictale.com
+ */
+public final class JsonPushParser {
+
+	private static final int EOS = -1;
+
+	/**
+	 * The largest block copied from a direct buffer at once.
+	 */
+	private static final int COPY_SIZE = 8 * 1024;
+
+	/**
+	 * Between tokens.
+	 */
+	private static final int VALUE = 0;
+
+	/**
+	 * After a closing quote, the next byte that is not white space makes it a name or a value.
+	 */
+	private static final int AFTER_STRING = 1;
+
+	private static final int STRING = 2;
+
+	/**
+	 * After a backslash within a string.
+	 */
+	private static final int ESCAPE = 3;
+
+	/**
+	 * Within the hex digits of a <code>\\u</code> escape sequence.
+	 */
+	private static final int UNICODE = 4;
+
+	/**
+	 * Within a multi-byte character of a string.
+	 */
+	private static final int UTF8 = 5;
+
+	/**
+	 * Within or right after <code>true</code>, <code>false</code>, <code>null</code> or <code>NaN</code>.
+	 */
+	private static final int LITERAL = 6;
+
+	/**
+	 * After the sign of a number.
+	 */
+	private static final int SIGN = 7;
+
+	private static final int INTEGER = 8;
+
+	private static final int FRACTION = 9;
+
+	/**
+	 * After the <code>e</code> of a number.
+	 */
+	private static final int EXPONENT_START = 10;
+
+	/**
+	 * After the sign of an exponent.
+	 */
+	private static final int EXPONENT_SIGN = 11;
+
+	private static final int EXPONENT = 12;
+
+	/**
+	 * After the end of the input or an error.
+	 */
+	private static final int CLOSED = 13;
+
+	private final Consumer consumer;
+
+	private int state = VALUE;
+
+	private boolean trackPositions = true;
+
+	private int line;
+
+	private int column;
+
+	private int position;
+
+	private SymbolTable symbols;
+
+	private boolean internNames = true;
+
+	/**
+	 * The decoded contents of the current string.
+	 */
+	private char[] text = new char[64];
+
+	private int textLength;
+
+	/**
+	 * The characters of the current number.
+	 */
+	private final StringBuilder buffer = new StringBuilder();
+
+	/**
+	 * The code point or <code>\\u</code> escape decoded so far.
+	 */
+	private int codePoint;
+
+	/**
+	 * The number of bytes or hex digits of {@link #codePoint} still missing.
+	 */
+	private int missing;
+
+	/**
+	 * The total number of continuation bytes of the current multi-byte character.
+	 */
+	private int extra;
+
+	private String literal;
+
+	/**
+	 * The value of {@link #literal} or <code>null</code> for <code>NaN</code>.
+	 */
+	private JsonValue literalValue;
+
+	/**
+	 * The number of characters of {@link #literal} matched so far.
+	 */
+	private int matched;
+
+	private final NumberParser number = new NumberParser();
+
+	private byte[] copy;
+
+	/**
+	 * Initializes a parser.
+	 *
+	 * @param consumer receives the tokens.
+	 */
+	public JsonPushParser(Consumer consumer) {
+		this.consumer = consumer;
+	}
+
+	/**
+	 * Specifies if source positions should be tracked, which is the default.
+	 *
+	 * @param trackPositions is <code>false</code> to switch tracking off.
+	 * @see JsonStreamProducer#setTrackPositions(boolean)
+	 */
+	public void setTrackPositions(boolean trackPositions) {
+		this.trackPositions = trackPositions;
+	}
+
+	/**
+	 * Specifies the table used to find canonical member names.
+	 *
+	 * @param symbols is the table or <code>null</code> to create a new string for every name.
+	 * @see JsonStreamProducer#setSymbolTable(SymbolTable)
+	 */
+	public void setSymbolTable(SymbolTable symbols) {
+		this.symbols = symbols;
+		this.internNames = symbols != null;
+	}
+
+	/**
+	 * Parses the next chunk of input.
+	 *
+	 * @param bytes contains the chunk, which is not referenced after this method returns.
+	 * @param offset is the index of the first byte of the chunk.
+	 * @param length is the number of bytes in the chunk.
+	 * @throws BrokenStreamException if the input is illegal or the consumer fails.
+	 * @throws IllegalStateException if the end of the input has been reached or an error occurred.
+	 */
+	public void feed(byte[] bytes, int offset, int length) throws BrokenStreamException {
+		if (offset < 0 || length < 0 || offset + length > bytes.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (state == CLOSED) {
+			throw new IllegalStateException("The parser is closed");
+		}
+
+		int limit = offset + length;
+		int i = offset;
+		try {
+			while (i < limit) {
+				// Runs of plain text are taken in one go
+				if (state == STRING) {
+					i = appendAscii(bytes, i, limit);
+				}
+				else if (state == VALUE || state == AFTER_STRING) {
+					i = skipBlanks(bytes, i, limit);
+				}
+				if (i < limit) {
+					int b = bytes[i++] & 0xff;
+					if (trackPositions) {
+						nextPosition(b);
+					}
+					while (!step(b)) {
+						// The byte ended a token and is looked at again
+					}
+				}
+			}
+		} catch (RuntimeException e) {
+			state = CLOSED;
+			throw e;
+		}
+	}
+
+	/**
+	 * Parses the remaining bytes of a {@link ByteBuffer} as the next chunk of input.
+	 * <p>
+	 * The position of the buffer is moved to its limit.
+	 *
+	 * @param buffer contains the chunk.
+	 * @throws BrokenStreamException if the input is illegal or the consumer fails.
+	 * @throws IllegalStateException if the end of the input has been reached or an error occurred.
+	 */
+	public void feed(ByteBuffer buffer) throws BrokenStreamException {
+		if (buffer.hasArray()) {
+			feed(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			buffer.position(buffer.limit());
+		}
+		else {
+			if (copy == null) {
+				copy = new byte[COPY_SIZE];
+			}
+			while (buffer.hasRemaining()) {
+				int n = Math.min(copy.length, buffer.remaining());
+				buffer.get(copy, 0, n);
+				feed(copy, 0, n);
+			}
+		}
+	}
+
+	/**
+	 * Signals that all input has been fed and completes the last token.
+	 *
+	 * @throws BrokenStreamException if the input ends within a token or the consumer fails.
+	 * @throws IllegalStateException if the end of the input has been reached or an error occurred.
+	 */
+	public void endOfInput() throws BrokenStreamException {
+		if (state == CLOSED) {
+			throw new IllegalStateException("The parser is closed");
+		}
+
+		try {
+			if (trackPositions) {
+				nextPosition(EOS);
+			}
+			while (!step(EOS)) {
+				// A completed token leaves nothing to do at the end
+			}
+		} finally {
+			state = CLOSED;
+		}
+	}
+
+	/**
+	 * Advances the position like {@link Utf8Tokenizer} does. Columns count UTF-16 characters,
+	 * so continuation bytes do not count while four byte sequences count twice.
+	 */
+	private void nextPosition(int b) {
+		if (b == '\n') {
+			line++;
+			column = 0;
+		}
+		else if (!Utf8.isContinuation(b)) {
+			column += b >= 0xf0 ? 2 : 1;
+		}
+
+		position++;
+	}
+
+	private void throwOutOfRange() {
+		if (trackPositions) {
+			throw new BrokenStreamException("Number out of range at line " + line + ", position " + column);
+		}
+		else {
+			throw new BrokenStreamException("Number out of range");
+		}
+	}
+
+	private void throwUnexpected(String expected, int b) {
+		String found = b == EOS ? "end of stream" : String.valueOf((char) b);
+		if (trackPositions) {
+			throw new BrokenStreamException("Expected " + expected + " found " + found + " at line " + line + ", position " + column);
+		}
+		else {
+			throw new BrokenStreamException("Expected " + expected + " found " + found);
+		}
+	}
+
+	private void throwMalformed() {
+		if (trackPositions) {
+			throw new BrokenStreamException("Malformed UTF-8 input at line " + line + ", position " + column);
+		}
+		else {
+			throw new BrokenStreamException("Malformed UTF-8 input");
+		}
+	}
+
+	private void append(TokenType type, JsonValue value) {
+		consumer.append(trackPositions
+				? new Token(type, value, position, line, column)
+				: new Token(type, value, SourcePosition.UNSPECIFIED));
+	}
+
+	private void put(char ch) {
+		if (textLength == text.length) {
+			ensureText(textLength + 1);
+		}
+		text[textLength++] = ch;
+	}
+
+	private void ensureText(int capacity) {
+		if (capacity > text.length) {
+			char[] larger = new char[Math.max(text.length * 2, capacity)];
+			System.arraycopy(text, 0, larger, 0, textLength);
+			text = larger;
+		}
+	}
+
+	/**
+	 * Copies the run of ASCII bytes of a string that need no further inspection.
+	 */
+	private int appendAscii(byte[] bytes, int from, int limit) {
+		int end = TextScanner.endOfAscii(bytes, from, limit);
+		int n = end - from;
+		if (n > 0) {
+			ensureText(textLength + n);
+			for (int i = from; i < end; i++) {
+				text[textLength++] = (char) bytes[i];
+			}
+			if (trackPositions) {
+				column += n;
+				position += n;
+			}
+		}
+		return end;
+	}
+
+	private int skipBlanks(byte[] bytes, int from, int limit) {
+		int end = TextScanner.endOfBlanks(bytes, from, limit);
+		if (trackPositions) {
+			column += end - from;
+			position += end - from;
+		}
+		return end;
+	}
+
+	private static boolean isDigit(int b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private void startLiteral(String literal, JsonValue value) {
+		this.literal = literal;
+		this.literalValue = value;
+		this.matched = 1;
+		state = LITERAL;
+	}
+
+	private void startNumber() {
+		buffer.setLength(0);
+		number.reset();
+	}
+
+	/**
+	 * Processes a single byte or the end of the input.
+	 *
+	 * @return <code>false</code> if the byte ended a token and must be processed again.
+	 */
+	private boolean step(int b) {
+		switch (state) {
+		case VALUE:
+			return value(b);
+		case AFTER_STRING:
+			return afterString(b);
+		case STRING:
+			string(b);
+			return true;
+		case ESCAPE:
+			escape(b);
+			return true;
+		case UNICODE:
+			unicode(b);
+			return true;
+		case UTF8:
+			utf8(b);
+			return true;
+		case LITERAL:
+			return literal(b);
+		case CLOSED:
+			return true;
+		default:
+			return number(b);
+		}
+	}
+
+	private boolean value(int b) {
+		switch (b) {
+		case EOS:
+		case JsonSyntax.SEPARATOR:
+		case ' ':
+		case '\t':
+		case '\r':
+		case '\n':
+			break;
+		case JsonSyntax.OBJECT_BEGIN:
+			append(TokenType.START_OBJECT, null);
+			break;
+		case JsonSyntax.OBJECT_END:
+			append(TokenType.END_OBJECT, null);
+			break;
+		case JsonSyntax.ARRAY_BEGIN:
+			append(TokenType.START_ARRAY, null);
+			break;
+		case JsonSyntax.ARRAY_END:
+			append(TokenType.END_ARRAY, null);
+			break;
+		case JsonSyntax.STRING_QUOTE:
+			textLength = 0;
+			state = STRING;
+			break;
+		case 't':
+			startLiteral(JsonSyntax.BOOLEAN_TRUE, JsonValue.TRUE);
+			break;
+		case 'f':
+			startLiteral(JsonSyntax.BOOLEAN_FALSE, JsonValue.FALSE);
+			break;
+		case 'n':
+			startLiteral(JsonSyntax.NULL, JsonValue.NULL);
+			break;
+		case 'N':
+			startLiteral("NaN", null);
+			break;
+		case JsonSyntax.NUMBER_SIGN:
+			startNumber();
+			number.negate();
+			buffer.append((char) b);
+			state = SIGN;
+			break;
+		default:
+			if (!isDigit(b)) {
+				throwUnexpected("value", b);
+			}
+			startNumber();
+			state = INTEGER;
+			return false;
+		}
+		return true;
+	}
+
+	private boolean afterString(int b) {
+		switch (b) {
+		case ' ':
+		case '\t':
+		case '\r':
+		case '\n':
+			return true;
+		case JsonSyntax.OBJECT_MEMBER_SEPARATOR:
+			append(TokenType.MEMBER_NAME, internNames ? lookupName() : JsonValue.of(new String(text, 0, textLength)));
+			state = VALUE;
+			return true;
+		default:
+			append(TokenType.PRIMITIVE, JsonValue.of(new String(text, 0, textLength)));
+			state = VALUE;
+			return false;
+		}
+	}
+
+	private JsonValue lookupName() {
+		if (symbols == null) {
+			symbols = new SymbolTable();
+		}
+		return symbols.lookup(text, textLength);
+	}
+
+	private void string(int b) {
+		switch (b) {
+		case EOS:
+			throwUnexpected("'\"'", b);
+			break;
+		case JsonSyntax.STRING_QUOTE:
+			state = AFTER_STRING;
+			break;
+		case JsonSyntax.STRING_ESCAPE:
+			state = ESCAPE;
+			break;
+		default:
+			if (b < 0x80) {
+				put((char) b);
+			}
+			else {
+				int n = Utf8.continuations(b);
+				if (n < 0) {
+					throwMalformed();
+				}
+				startUtf8(Utf8.leadBits(b, n), n);
+			}
+			break;
+		}
+	}
+
+	private void startUtf8(int bits, int n) {
+		codePoint = bits;
+		missing = n;
+		extra = n;
+		state = UTF8;
+	}
+
+	private void utf8(int b) {
+		if (!Utf8.isContinuation(b)) {
+			throwMalformed();
+		}
+		codePoint = codePoint << 6 | (b & 0x3f);
+		if (--missing > 0) {
+			return;
+		}
+
+		if (!Utf8.isValid(codePoint, extra)) {
+			throwMalformed();
+		}
+
+		if (extra == 3) {
+			put(Character.highSurrogate(codePoint));
+			put(Character.lowSurrogate(codePoint));
+		}
+		else {
+			put((char) codePoint);
+		}
+		state = STRING;
+	}
+
+	private void escape(int b) {
+		state = STRING;
+		switch (b) {
+		case EOS:
+			throwUnexpected("'\"'", b);
+			break;
+		case JsonSyntax.STRING_QUOTE:
+			put(JsonSyntax.STRING_QUOTE);
+			break;
+		case JsonSyntax.STRING_ESCAPE:
+			put(JsonSyntax.STRING_ESCAPE);
+			break;
+		case JsonSyntax.ESCAPE_SOLIDUS:
+			put(JsonSyntax.ESCAPE_SOLIDUS);
+			break;
+		case JsonSyntax.ESCAPE_BACKSPACE:
+			put('\b');
+			break;
+		case JsonSyntax.ESCAPE_FEED:
+			put('\f');
+			break;
+		case JsonSyntax.ESCAPE_NEWLINE:
+			put('\n');
+			break;
+		case JsonSyntax.ESCAPE_RETURN:
+			put('\r');
+			break;
+		case JsonSyntax.ESCAPE_TAB:
+			put('\t');
+			break;
+		case 'u':
+			codePoint = 0;
+			missing = 4;
+			state = UNICODE;
+			break;
+		default:
+			// Unknown escapes are dropped like the other producers do
+			break;
+		}
+	}
+
+	private void unicode(int b) {
+		int digit = b == EOS ? -1 : Character.digit(b, 16);
+		if (digit < 0) {
+			throwUnexpected("hex digit", b);
+		}
+		codePoint = codePoint << 4 | digit;
+		if (--missing == 0) {
+			put((char) codePoint);
+			state = STRING;
+		}
+	}
+
+	private boolean literal(int b) {
+		if (matched < literal.length()) {
+			if (b != literal.charAt(matched)) {
+				throwUnexpected(literal, b);
+			}
+			matched++;
+			return true;
+		}
+
+		// The literal is complete with the byte that follows it
+		checkEnd(b);
+		// Not a number is not a legal value, creating it fails like it does for the other producers
+		append(TokenType.PRIMITIVE, literalValue != null ? literalValue : JsonNumber.of(Double.NaN));
+		state = VALUE;
+		return false;
+	}
+
+	/**
+	 * Checks that a number or literal is not followed by anything but white space or syntax.
+	 */
+	private void checkEnd(int b) {
+		switch (b) {
+		case EOS:
+		case ' ':
+		case '\t':
+		case '\r':
+		case '\n':
+		case JsonSyntax.SEPARATOR:
+		case JsonSyntax.OBJECT_MEMBER_SEPARATOR:
+		case JsonSyntax.OBJECT_BEGIN:
+		case JsonSyntax.OBJECT_END:
+		case JsonSyntax.ARRAY_BEGIN:
+		case JsonSyntax.ARRAY_END:
+		case JsonSyntax.STRING_QUOTE:
+			break;
+		default:
+			throwUnexpected("separator", b);
+		}
+	}
+
+	private void digit(int b) {
+		buffer.append((char) b);
+		if (state == FRACTION) {
+			number.fractionDigit(b);
+		}
+		else {
+			number.integerDigit(b);
+		}
+	}
+
+	/**
+	 * Advances through a number like the {@link JsonTokenizer} does, so both produce identical values.
+	 */
+	private boolean number(int b) {
+		switch (state) {
+		case SIGN:
+			if (b == 'N') {
+				startLiteral("NaN", null);
+				return true;
+			}
+			if (!isDigit(b)) {
+				throwUnexpected("digit", b);
+			}
+			state = INTEGER;
+			digit(b);
+			return true;
+		case INTEGER:
+			if (isDigit(b)) {
+				digit(b);
+				return true;
+			}
+			if (b == JsonSyntax.NUMBER_DECIMAL) {
+				number.decimalPoint();
+				buffer.append((char) b);
+				state = FRACTION;
+				return true;
+			}
+			break;
+		case FRACTION:
+			if (isDigit(b)) {
+				digit(b);
+				return true;
+			}
+			break;
+		case EXPONENT_START:
+			if (b == JsonSyntax.NUMBER_SIGN || b == JsonSyntax.NUMBER_EXPONENT_SIGN) {
+				if (b == JsonSyntax.NUMBER_SIGN) {
+					number.negateExponent();
+				}
+				buffer.append((char) b);
+				state = EXPONENT_SIGN;
+				return true;
+			}
+			firstExponentDigit(b);
+			return true;
+		case EXPONENT_SIGN:
+			firstExponentDigit(b);
+			return true;
+		default:
+			if (isDigit(b)) {
+				exponentDigit(b);
+				return true;
+			}
+			appendNumber(b);
+			return false;
+		}
+
+		if (b == JsonSyntax.NUMBER_ENGINEERING || b == JsonSyntax.NUMBER_ENGINEERING_UPPER) {
+			number.startExponent();
+			buffer.append((char) b);
+			state = EXPONENT_START;
+			return true;
+		}
+		appendNumber(b);
+		return false;
+	}
+
+	private void firstExponentDigit(int b) {
+		if (!isDigit(b)) {
+			throwUnexpected("digit", b);
+		}
+		state = EXPONENT;
+		exponentDigit(b);
+	}
+
+	private void exponentDigit(int b) {
+		buffer.append((char) b);
+		number.exponentDigit(b);
+	}
+
+	private void appendNumber(int b) {
+		checkEnd(b);
+
+		JsonValue value = null;
+		try {
+			value = number.toValue(buffer);
+		} catch (NumberFormatException e) {
+			throwOutOfRange();
+		}
+		append(TokenType.PRIMITIVE, value);
+		state = VALUE;
+	}
+}
@@ -0,0 +1,375 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.io.InputStream;
+import java.io.Reader;
+
+import com.mictale.jsonite.JsonValue;
+import com.mictale.jsonite.SourcePosition;
+
+/**
+ * Reads JSON content one token at a time.
+ * <p>
+ * A reader is a cursor over the same tokenizer used by {@link JsonStreamProducer} and
+ * {@link JsonUtf8StreamProducer}. Unlike a {@link Producer}, the caller pulls tokens and may
+ * stop at any time. The typed accessors such as {@link #nextString()} and {@link #nextLong()}
+ * read values without creating a {@link Token} or a {@link JsonValue}.
+ * <p>
+ * Here is how you read a single member of an object:
+ *
+ * <pre>
+ * JsonReader reader = new JsonReader("{\"id\": 42, \"tags\": [1, 2]}");
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *     if (reader.nextName().equals("id")) {
+ *         return reader.nextLong();
+ *     }
+ *     reader.skipValue();
+ * }
+ * </pre>
+ *
+ * @author michael@mictale.com
+ */
+public final class JsonReader {
+
+	private final JsonTokenizer tokenizer;
+
+	/**
+	 * Set if the tokenizer holds a token that has not been consumed.
+	 */
+	private boolean peeked;
+
+	private JsonReader(JsonTokenizer tokenizer) {
+		this.tokenizer = tokenizer;
+	}
+
+	public JsonReader(Reader reader) {
+		this(new CharTokenizer(reader, JsonTokenizer.DEFAULT_BUFFER_SIZE));
+	}
+
+	public JsonReader(String json) {
+		this(new CharTokenizer(json));
+	}
+
+	/**
+	 * Initializes a reader for UTF-8 encoded input.
+	 *
+	 * @param in is the source of the JSON content.
+	 */
+	public JsonReader(InputStream in) {
+		this(new Utf8Tokenizer(in, JsonTokenizer.DEFAULT_BUFFER_SIZE));
+	}
+
+	/**
+	 * Initializes a reader for UTF-8 encoded input.
+	 *
+	 * @param bytes contains the JSON content.
+	 */
+	public JsonReader(byte[] bytes) {
+		this(new Utf8Tokenizer(bytes, 0, bytes.length));
+	}
+
+	/**
+	 * Specifies if source positions should be tracked, which is the default.
+	 *
+	 * @param trackPositions is <code>false</code> to switch tracking off.
+	 * @see JsonStreamProducer#setTrackPositions(boolean)
+	 */
+	public void setTrackPositions(boolean trackPositions) {
+		tokenizer.setTrackPositions(trackPositions);
+	}
+
+	/**
+	 * Specifies the table used to find canonical member names.
+	 *
+	 * @param symbols is the table or <code>null</code> to create a new string for every name.
+	 * @see JsonStreamProducer#setSymbolTable(SymbolTable)
+	 */
+	public void setSymbolTable(SymbolTable symbols) {
+		tokenizer.setSymbolTable(symbols);
+	}
+
+	/**
+	 * Retrieves the type of the next token without consuming it.
+	 *
+	 * @return the type of the next token or {@link TokenType#UNDEFINED} at the end of the input.
+	 * @throws BrokenStreamException if the input cannot be read or contains illegal data.
+	 */
+	public TokenType peek() throws BrokenStreamException {
+		if (!peeked) {
+			tokenizer.next();
+			peeked = true;
+		}
+
+		return tokenizer.getTokenType();
+	}
+
+	/**
+	 * Consumes the next token.
+	 *
+	 * @return the type of the token or {@link TokenType#UNDEFINED} at the end of the input.
+	 * @throws BrokenStreamException if the input cannot be read or contains illegal data.
+	 */
+	public TokenType next() throws BrokenStreamException {
+		TokenType type = peek();
+		peeked = false;
+		return type;
+	}
+
+	/**
+	 * Checks if the current object or array has more members.
+	 *
+	 * @return <code>true</code> if the next token neither ends a composite nor the input.
+	 */
+	public boolean hasNext() {
+		TokenType type = peek();
+		return type != TokenType.END_OBJECT && type != TokenType.END_ARRAY && type != TokenType.UNDEFINED;
+	}
+
+	/**
+	 * Retrieves the position of the last token that has been read.
+	 *
+	 * @return the source position.
+	 */
+	public SourcePosition getPosition() {
+		return tokenizer.getPosition();
+	}
+
+	private BrokenStreamException unexpected(String expected) {
+		SourcePosition p = tokenizer.getPosition();
+		return new BrokenStreamException("Expected " + expected + " found " + tokenizer.getTokenType()
+				+ " at line " + p.getLine() + ", position " + p.getColumn());
+	}
+
+	private void expect(TokenType type) {
+		if (next() != type) {
+			throw unexpected(type.toString());
+		}
+	}
+
+	private JsonTokenizer.Kind nextPrimitive(String expected) {
+		if (next() != TokenType.PRIMITIVE) {
+			throw unexpected(expected);
+		}
+
+		return tokenizer.getKind();
+	}
+
+	public void beginObject() {
+		expect(TokenType.START_OBJECT);
+	}
+
+	public void endObject() {
+		expect(TokenType.END_OBJECT);
+	}
+
+	public void beginArray() {
+		expect(TokenType.START_ARRAY);
+	}
+
+	public void endArray() {
+		expect(TokenType.END_ARRAY);
+	}
+
+	/**
+	 * Consumes the name of the next object member.
+	 *
+	 * @return the member name.
+	 * @throws BrokenStreamException if the next token is not a {@link TokenType#MEMBER_NAME}.
+	 */
+	public String nextName() {
+		expect(TokenType.MEMBER_NAME);
+		return tokenizer.getName();
+	}
+
+	/**
+	 * Consumes the next string value.
+	 *
+	 * @return the string value.
+	 * @throws BrokenStreamException if the next token is not a string.
+	 */
+	public String nextString() {
+		if (nextPrimitive("string") != JsonTokenizer.Kind.STRING) {
+			throw unexpected("string");
+		}
+
+		return tokenizer.getString();
+	}
+
+	/**
+	 * Consumes the next number as a <code>long</code>.
+	 *
+	 * @return the number value.
+	 * @throws BrokenStreamException if the next token is not a number that fits into a <code>long</code>.
+	 */
+	public long nextLong() {
+		switch (nextPrimitive("number")) {
+		case LONG:
+			return tokenizer.getLong();
+		case DOUBLE:
+			double d = tokenizer.getDouble();
+			if ((long) d == d) {
+				return (long) d;
+			}
+			throw unexpected("long");
+		case BIG:
+			throw unexpected("long");
+		default:
+			throw unexpected("number");
+		}
+	}
+
+	/**
+	 * Consumes the next number as a <code>double</code>.
+	 *
+	 * @return the number value.
+	 * @throws BrokenStreamException if the next token is not a number.
+	 */
+	public double nextDouble() {
+		switch (nextPrimitive("number")) {
+		case LONG:
+			return tokenizer.getLong();
+		case DOUBLE:
+			return tokenizer.getDouble();
+		case BIG:
+			return tokenizer.getBig().doubleValue();
+		default:
+			throw unexpected("number");
+		}
+	}
+
+	/**
+	 * Consumes the next boolean value.
+	 *
+	 * @return the boolean value.
+	 * @throws BrokenStreamException if the next token is not a boolean.
+	 */
+	public boolean nextBoolean() {
+		if (nextPrimitive("boolean") != JsonTokenizer.Kind.CONSTANT || !tokenizer.getConstant().isBoolean()) {
+			throw unexpected("boolean");
+		}
+
+		return tokenizer.getConstant().booleanValue();
+	}
+
+	/**
+	 * Consumes the next <code>null</code> literal.
+	 *
+	 * @throws BrokenStreamException if the next token is not <code>null</code>.
+	 */
+	public void nextNull() {
+		if (nextPrimitive("null") != JsonTokenizer.Kind.CONSTANT || !tokenizer.getConstant().isNull()) {
+			throw unexpected("null");
+		}
+	}
+
+	/**
+	 * Consumes the next value including all of its children.
+	 * <p>
+	 * If the next token is a member name, the name and its value are skipped.
+	 *
+	 * @throws BrokenStreamException if there is no value to skip.
+	 */
+	public void skipValue() {
+		if (peek() == TokenType.MEMBER_NAME) {
+			next();
+		}
+
+		int depth = 0;
+		do {
+			switch (next()) {
+			case START_OBJECT:
+			case START_ARRAY:
+				depth++;
+				break;
+			case END_OBJECT:
+			case END_ARRAY:
+				if (depth == 0) {
+					throw unexpected("value");
+				}
+				depth--;
+				break;
+			case MEMBER_NAME:
+			case PRIMITIVE:
+				break;
+			default:
+				throw unexpected("value");
+			}
+		} while (depth > 0);
+	}
+
+	/**
+	 * Consumes the next value including all of its children into a {@link JsonValue}.
+	 *
+	 * @return the value.
+	 * @throws BrokenStreamException if there is no value to read.
+	 */
+	public JsonValue nextValue() {
+		switch (peek()) {
+		case PRIMITIVE:
+			next();
+			return tokenizer.getValue();
+		case START_OBJECT:
+		case START_ARRAY:
+			JsonValueConsumer consumer = new JsonValueConsumer();
+			copyValueTo(consumer);
+			return consumer.getValue();
+		default:
+			next();
+			throw unexpected("value");
+		}
+	}
+
+	/**
+	 * Consumes the next value including all of its children and appends its tokens to a
+	 * {@link Consumer}, without creating the value as a whole.
+	 *
+	 * @param consumer receives the tokens.
+	 * @throws BrokenStreamException if there is no value to read.
+	 */
+	public void copyValueTo(Consumer consumer) {
+		int depth = 0;
+		do {
+			TokenType type = next();
+			switch (type) {
+			case START_OBJECT:
+			case START_ARRAY:
+				depth++;
+				break;
+			case END_OBJECT:
+			case END_ARRAY:
+				if (depth == 0) {
+					throw unexpected("value");
+				}
+				depth--;
+				break;
+			case MEMBER_NAME:
+				if (depth == 0) {
+					throw unexpected("value");
+				}
+				break;
+			case UNDEFINED:
+				throw unexpected("value");
+			default:
+				break;
+			}
+			consumer.append(new Token(type, tokenizer.getValue(), tokenizer.getPosition()));
+		} while (depth > 0);
+	}
+}
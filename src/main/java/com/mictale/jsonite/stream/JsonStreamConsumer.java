@@ -29,20 +29,181 @@ import com.mictale.jsonite.JsonString;
 
 /**
  * Consumes {@link Token}s by writing them to a specified {@link Writer}.
+ * <p>
+ * Output is collected in an internal buffer that is passed to the writer in large chunks,
+ * whenever a top level value is complete, when the buffer is full and when {@link #flush()}
+ * is called. A document that is still open is therefore held back by at most the buffer size,
+ * so call {@link #flush()} if a slowly produced document must reach the writer sooner.
+ * Subclasses write through {@link #write(char)} and {@link #write(String)} to keep the order
+ * of the output.
+ * <p>
+ * Control characters below <code>0x20</code> without a short escape are written as
+ * <code>&#92;u00XX</code>, as the JSON grammar does not allow them in strings.
  * 
  * @author michael@mictale.com
  */
 public class JsonStreamConsumer implements Consumer, JsonVisitor {
 
+	private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+	/**
+	 * The character that follows the backslash for every ASCII character that must be escaped
+	 * or <code>0</code> if the character is written as it is.
+	 */
+	static final char[] ESCAPES = new char[128];
+
+	static {
+		for (int ch = 0; ch < 0x20; ch++) {
+			ESCAPES[ch] = 'u';
+		}
+		ESCAPES[JsonSyntax.STRING_QUOTE] = JsonSyntax.STRING_QUOTE;
+		ESCAPES[JsonSyntax.STRING_ESCAPE] = JsonSyntax.STRING_ESCAPE;
+		ESCAPES[JsonSyntax.ESCAPE_SOLIDUS] = JsonSyntax.ESCAPE_SOLIDUS;
+		ESCAPES['\b'] = JsonSyntax.ESCAPE_BACKSPACE;
+		ESCAPES['\f'] = JsonSyntax.ESCAPE_FEED;
+		ESCAPES['\n'] = JsonSyntax.ESCAPE_NEWLINE;
+		ESCAPES['\r'] = JsonSyntax.ESCAPE_RETURN;
+		ESCAPES['\t'] = JsonSyntax.ESCAPE_TAB;
+	}
+
+	static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
 	protected final Writer writer;
 
+	private final char[] buffer;
+
+	/**
+	 * Holds a part of a string while it is scanned for characters that must be escaped.
+	 */
+	private final char[] text = new char[256];
+
+	private int count;
+
+	/**
+	 * The number of open objects and arrays.
+	 */
+	private int depth;
+
 	/**
 	 * Separator control.
 	 */
 	private boolean valueWritten;
 
+	private boolean lineDelimited;
+
 	public JsonStreamConsumer(Writer writer) {
+		this(writer, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Initializes a consumer with a specific buffer size.
+	 *
+	 * @param writer receives the output.
+	 * @param bufferSize is the number of characters collected before they are written.
+	 */
+	public JsonStreamConsumer(Writer writer, int bufferSize) {
+		if (bufferSize < NumberFormatter.MAX_LENGTH) {
+			throw new IllegalArgumentException("Illegal buffer size: " + bufferSize);
+		}
 		this.writer = writer;
+		this.buffer = new char[bufferSize];
+	}
+
+	/**
+	 * Specifies if top level values are written as newline delimited JSON.
+	 * <p>
+	 * Every top level value is then followed by a line feed instead of being separated from the
+	 * next one by a comma, and the output is only passed on when the buffer is full or
+	 * {@link #flush()} is called, so a long sequence of small documents is written in large
+	 * blocks. Call {@link #flush()} after the last document.
+	 *
+	 * @param lineDelimited is <code>true</code> to write one document per line.
+	 */
+	public void setLineDelimited(boolean lineDelimited) {
+		this.lineDelimited = lineDelimited;
+	}
+
+	/**
+	 * Passes all buffered output to the writer and flushes it.
+	 *
+	 * @throws BrokenStreamException if the writer fails.
+	 */
+	public void flush() throws BrokenStreamException {
+		try {
+			flushBuffer();
+			writer.flush();
+		} catch (IOException e) {
+			throw new BrokenStreamException(e);
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		if (count > 0) {
+			writer.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+
+	/**
+	 * Makes sure that the buffer has room for the specified number of characters.
+	 */
+	private void require(int n) throws IOException {
+		if (count + n > buffer.length) {
+			flushBuffer();
+		}
+	}
+
+	protected final void write(char ch) throws IOException {
+		if (count == buffer.length) {
+			flushBuffer();
+		}
+		buffer[count++] = ch;
+	}
+
+	protected final void write(String s) throws IOException {
+		write(s, 0, s.length());
+	}
+
+	/**
+	 * Copies a range of characters in bulk.
+	 */
+	private void write(String s, int start, int end) throws IOException {
+		int length = end - start;
+		if (length > buffer.length - count) {
+			flushBuffer();
+			if (length > buffer.length) {
+				writer.write(s, start, length);
+				return;
+			}
+		}
+		s.getChars(start, end, buffer, count);
+		count += length;
+	}
+
+	private void write(char[] chars, int start, int end) throws IOException {
+		int length = end - start;
+		if (length > buffer.length - count) {
+			flushBuffer();
+			if (length > buffer.length) {
+				writer.write(chars, start, length);
+				return;
+			}
+		}
+		System.arraycopy(chars, start, buffer, count, length);
+		count += length;
+	}
+
+	private void writeEscape(char ch) throws IOException {
+		require(6);
+		char escape = ESCAPES[ch];
+		buffer[count++] = JsonSyntax.STRING_ESCAPE;
+		buffer[count++] = escape;
+		if (escape == 'u') {
+			buffer[count++] = '0';
+			buffer[count++] = '0';
+			buffer[count++] = HEX_DIGITS[ch >> 4];
+			buffer[count++] = HEX_DIGITS[ch & 0xf];
+		}
 	}
 
 	protected void newLine() throws IOException {
@@ -59,7 +220,7 @@ public class JsonStreamConsumer implements Consumer, JsonVisitor {
 
     private void appendSeparator() throws IOException {
         if (valueWritten) {
-            writer.write(JsonSyntax.SEPARATOR);
+            write(JsonSyntax.SEPARATOR);
             valueWritten = false;
             newLine();
         }
@@ -71,32 +232,36 @@ public class JsonStreamConsumer implements Consumer, JsonVisitor {
 			switch (token.getTokenType()) {
 			case START_ARRAY:
 				appendSeparator();
-				writer.write(JsonSyntax.ARRAY_BEGIN);
+				write(JsonSyntax.ARRAY_BEGIN);
 				addIndent();
+				depth++;
 				break;
 
 			case END_ARRAY:
 				removeIndent();
-				writer.write(JsonSyntax.ARRAY_END);
+				write(JsonSyntax.ARRAY_END);
 				valueWritten = true;
+				depth--;
 				break;
 
 			case START_OBJECT:
 				appendSeparator();
-				writer.write(JsonSyntax.OBJECT_BEGIN);
+				write(JsonSyntax.OBJECT_BEGIN);
 				addIndent();
+				depth++;
 				break;
 
 			case END_OBJECT:
 				removeIndent();
-				writer.write(JsonSyntax.OBJECT_END);
+				write(JsonSyntax.OBJECT_END);
 				valueWritten = true;
+				depth--;
 				break;
 
 			case MEMBER_NAME:
 				appendSeparator();
 				token.getValue().accept(this);
-				writer.write(JsonSyntax.OBJECT_MEMBER_SEPARATOR);
+				write(JsonSyntax.OBJECT_MEMBER_SEPARATOR);
                 space();
 				break;
 
@@ -109,6 +274,16 @@ public class JsonStreamConsumer implements Consumer, JsonVisitor {
 			default:
 				throw new AssertionError(token.getTokenType());
 			}
+
+			if (depth <= 0) {
+				if (lineDelimited) {
+					write('\n');
+					valueWritten = false;
+				}
+				else {
+					flushBuffer();
+				}
+			}
 		} catch (IOException e) {
 			throw new BrokenStreamException(e);
 		}
@@ -129,44 +304,24 @@ public class JsonStreamConsumer implements Consumer, JsonVisitor {
 		String value = string.stringValue();
 
 		try {
-			writer.write(JsonSyntax.STRING_QUOTE);
-
-			for (int i = 0; i < value.length(); i++) {
-				char ch = value.charAt(i);
-				switch (ch) {
-				case JsonSyntax.STRING_QUOTE:
-				case JsonSyntax.STRING_ESCAPE:
-				case JsonSyntax.ESCAPE_SOLIDUS:
-					writer.write(JsonSyntax.STRING_ESCAPE);
-					writer.write(ch);
-					break;
-				case '\b':
-					writer.write(JsonSyntax.STRING_ESCAPE);
-					writer.write(JsonSyntax.ESCAPE_BACKSPACE);
-					break;
-				case '\f':
-					writer.write(JsonSyntax.STRING_ESCAPE);
-					writer.write(JsonSyntax.ESCAPE_FEED);
-					break;
-				case '\n':
-					writer.write(JsonSyntax.STRING_ESCAPE);
-					writer.write(JsonSyntax.ESCAPE_NEWLINE);
-					break;
-				case '\r':
-					writer.write(JsonSyntax.STRING_ESCAPE);
-					writer.write(JsonSyntax.ESCAPE_RETURN);
-					break;
-				case '\t':
-					writer.write(JsonSyntax.STRING_ESCAPE);
-					writer.write(JsonSyntax.ESCAPE_TAB);
-					break;
-				default:
-					writer.write(ch);
-					break;
+			write(JsonSyntax.STRING_QUOTE);
+
+			int length = value.length();
+			for (int offset = 0; offset < length; offset += text.length) {
+				int n = Math.min(text.length, length - offset);
+				value.getChars(offset, offset + n, text, 0);
+
+				int start = 0;
+				int i;
+				while ((i = TextScanner.indexOfEscape(text, start, n)) < n) {
+					write(text, start, i);
+					writeEscape(text[i]);
+					start = i + 1;
 				}
+				write(text, start, n);
 			}
 
-			writer.write(JsonSyntax.STRING_QUOTE);
+			write(JsonSyntax.STRING_QUOTE);
 		} catch (IOException e) {
 			throw new BrokenStreamException(e);
 		}
@@ -175,7 +330,7 @@ public class JsonStreamConsumer implements Consumer, JsonVisitor {
 	@Override
 	public void visit(JsonBoolean bool) {
 		try {
-			writer.write(bool.booleanValue() ? JsonSyntax.BOOLEAN_TRUE : JsonSyntax.BOOLEAN_FALSE);
+			write(bool.booleanValue() ? JsonSyntax.BOOLEAN_TRUE : JsonSyntax.BOOLEAN_FALSE);
 		}
 		catch(IOException e) {
 			throw new BrokenStreamException(e);
@@ -185,7 +340,17 @@ public class JsonStreamConsumer implements Consumer, JsonVisitor {
 	@Override
 	public void visit(JsonNumber number) {
 		try {
-			writer.write(number.stringValue());
+			if (number.isDouble()) {
+				require(NumberFormatter.MAX_LENGTH);
+				count = NumberFormatter.formatDouble(number.doubleValue(), buffer, count);
+			}
+			else if (number.isLong()) {
+				require(NumberFormatter.MAX_LENGTH);
+				count = NumberFormatter.formatLong(number.longValue(), buffer, count);
+			}
+			else {
+				write(number.stringValue());
+			}
 		}
 		catch(IOException e) {
 			throw new BrokenStreamException(e);
@@ -195,7 +360,7 @@ public class JsonStreamConsumer implements Consumer, JsonVisitor {
 	@Override
 	public void visit(JsonNull nul) {
 		try {
-			writer.write(JsonSyntax.NULL);
+			write(JsonSyntax.NULL);
 		}
 		catch(IOException e) {
 			throw new BrokenStreamException(e);
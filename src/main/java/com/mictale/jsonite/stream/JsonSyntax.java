@@ -64,5 +64,7 @@ interface JsonSyntax {
 
 	char NUMBER_SIGN = '-';
 
+	char NUMBER_EXPONENT_SIGN = '+';
+
 	char NUMBER_DECIMAL = '.';
 }
@@ -0,0 +1,605 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import com.mictale.jsonite.JsonNumber;
+import com.mictale.jsonite.JsonString;
+import com.mictale.jsonite.JsonValue;
+import com.mictale.jsonite.SourcePosition;
+
+/**
+ * Splits JSON text into tokens on demand.
+ * <p>
+ * Every call to {@link #next()} scans exactly one token and keeps its type, position and
+ * value in primitive fields. A {@link JsonValue} is only created when {@link #getValue()}
+ * is called. Subclasses supply the input by implementing {@link #skip()}, {@link #skipWs()}
+ * and {@link #parseString()}.
+ *
+ * @author michael@mictale.com
+ */
+abstract class JsonTokenizer {
+
+	protected static final int EOS = -1;
+
+	protected static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+	/**
+	 * The kind of value held by a {@link TokenType#PRIMITIVE} or {@link TokenType#MEMBER_NAME}.
+	 */
+	enum Kind {
+		NONE, STRING, LONG, DOUBLE, BIG, CONSTANT
+	}
+
+	protected int line;
+
+	protected int column;
+
+	protected int position;
+
+	protected int lastChar;
+
+	/**
+	 * Specifies if {@link #line}, {@link #column} and {@link #position} are maintained.
+	 */
+	protected boolean trackPositions = true;
+
+	/**
+	 * The decoded contents of the last string.
+	 */
+	protected char[] text = new char[64];
+
+	protected int textLength;
+
+	private final StringBuilder buffer = new StringBuilder();
+
+	private final NumberParser number = new NumberParser();
+
+	private TokenType lastNodeType = TokenType.UNDEFINED;
+
+	private boolean started;
+
+	private boolean running = true;
+
+	private boolean produced;
+
+	private TokenType tokenType = TokenType.UNDEFINED;
+
+	private Kind kind = Kind.NONE;
+
+	private int tokenPosition;
+
+	private int tokenLine;
+
+	private int tokenColumn;
+
+	private long longValue;
+
+	private double doubleValue;
+
+	/**
+	 * A {@link BigInteger} or {@link BigDecimal} that does not fit into a primitive.
+	 */
+	private Number bigValue;
+
+	private JsonValue constant;
+
+	/**
+	 * The value of the current token once it has been created.
+	 */
+	private JsonValue value;
+
+	private final CharSequence textView = new TextView();
+
+	/**
+	 * The canonical member names, created on first use unless names are not interned.
+	 */
+	private SymbolTable symbols;
+
+	private boolean internNames = true;
+
+	/**
+	 * Reads the next character into {@link #lastChar} and advances the position.
+	 *
+	 * @return the next character or {@link #EOS}.
+	 */
+	protected abstract int skip() throws IOException;
+
+	/**
+	 * Reads the next character that is not white space into {@link #lastChar}.
+	 *
+	 * @return the next character or {@link #EOS}.
+	 */
+	protected abstract int skipWs() throws IOException;
+
+	/**
+	 * Decodes the string that starts at the current quote into {@link #text} and skips
+	 * the white space that follows it.
+	 */
+	protected abstract void parseString() throws IOException;
+
+	private void throwOutOfRange() {
+		if (trackPositions) {
+			throw new BrokenStreamException("Number out of range at line " + line + ", position " + column);
+		}
+		else {
+			throw new BrokenStreamException("Number out of range");
+		}
+	}
+
+	protected final void throwUnexpected(String expected, String found) {
+		if (trackPositions) {
+			throw new BrokenStreamException("Expected " + expected + " found " + found + " at line " + line + ", position " + column);
+		}
+		else {
+			throw new BrokenStreamException("Expected " + expected + " found " + found);
+		}
+	}
+
+	/**
+	 * Specifies if source positions should be tracked.
+	 * <p>
+	 * Without tracking, tokens report {@link SourcePosition#UNSPECIFIED} and error
+	 * messages carry no position.
+	 *
+	 * @param trackPositions is <code>false</code> to switch tracking off.
+	 */
+	final void setTrackPositions(boolean trackPositions) {
+		this.trackPositions = trackPositions;
+	}
+
+	final void setSymbolTable(SymbolTable symbols) {
+		this.symbols = symbols;
+		this.internNames = symbols != null;
+	}
+
+	protected final void put(char ch) {
+		if (textLength == text.length) {
+			ensureText(textLength + 1);
+		}
+		text[textLength++] = ch;
+	}
+
+	protected final void ensureText(int capacity) {
+		if (capacity > text.length) {
+			char[] larger = new char[Math.max(text.length * 2, capacity)];
+			System.arraycopy(text, 0, larger, 0, textLength);
+			text = larger;
+		}
+	}
+
+	/**
+	 * Reads the four hex digits of a <code>\\u</code> escape sequence.
+	 */
+	protected final void parseUnicodeEscape() throws IOException {
+		int ch = 0;
+		for (int i = 0; i < 4; i++) {
+			int digit = Character.digit(skip(), 16);
+			if (digit < 0) {
+				throwUnexpected("hex digit", String.valueOf((char)lastChar));
+			}
+			ch = ch << 4 | digit;
+		}
+		put((char) ch);
+	}
+
+	private void append(TokenType nodeType, Kind kind) {
+		this.tokenType = nodeType;
+		this.kind = kind;
+		this.tokenPosition = position;
+		this.tokenLine = line;
+		this.tokenColumn = column;
+		this.lastNodeType = nodeType;
+		this.produced = true;
+	}
+
+	private void appendConstant(JsonValue value) {
+		constant = value;
+		append(TokenType.PRIMITIVE, Kind.CONSTANT);
+	}
+
+	private void eat(String expected) throws IOException {
+		for (int i = 0; i < expected.length(); i++) {
+			if (lastChar != expected.charAt(i)) {
+				throwUnexpected(expected, String.valueOf((char)lastChar));
+			}
+
+			skip();
+		}
+	}
+
+	private static boolean isDigit(int ch) {
+		return ch >= '0' && ch <= '9';
+	}
+
+	/**
+	 * Parses a number and appends it.
+	 * <p>
+	 * The digits are accumulated into a <code>long</code> while they are scanned. The characters
+	 * are only turned into a {@link String} for numbers that do not fit into a <code>long</code>
+	 * or have too many digits to be converted to a <code>double</code> directly.
+	 */
+	private void parseNumber() throws IOException {
+		buffer.setLength(0);
+		number.reset();
+
+		if (lastChar == JsonSyntax.NUMBER_SIGN) {
+			number.negate();
+			buffer.append((char) lastChar);
+			skip();
+		}
+
+		if (!isDigit(lastChar)) {
+			if ('N' == lastChar) {
+				eat("NaN");
+				doubleValue = Double.NaN;
+				append(TokenType.PRIMITIVE, Kind.DOUBLE);
+			}
+			return;
+		}
+
+		do {
+			buffer.append((char) lastChar);
+			number.integerDigit(lastChar);
+			skip();
+		} while (isDigit(lastChar));
+
+		if (lastChar == JsonSyntax.NUMBER_DECIMAL) {
+			number.decimalPoint();
+			buffer.append((char) lastChar);
+			skip();
+
+			while (isDigit(lastChar)) {
+				buffer.append((char) lastChar);
+				number.fractionDigit(lastChar);
+				skip();
+			}
+		}
+
+		if (lastChar == JsonSyntax.NUMBER_ENGINEERING || lastChar == JsonSyntax.NUMBER_ENGINEERING_UPPER) {
+			number.startExponent();
+			buffer.append((char) lastChar);
+			skip();
+
+			if (lastChar == JsonSyntax.NUMBER_SIGN || lastChar == JsonSyntax.NUMBER_EXPONENT_SIGN) {
+				if (lastChar == JsonSyntax.NUMBER_SIGN) {
+					number.negateExponent();
+				}
+				buffer.append((char) lastChar);
+				skip();
+			}
+
+			if (!isDigit(lastChar)) {
+				throwUnexpected("digit", lastChar == EOS ? "end of stream" : String.valueOf((char) lastChar));
+			}
+
+			do {
+				buffer.append((char) lastChar);
+				number.exponentDigit(lastChar);
+				skip();
+			} while (isDigit(lastChar));
+		}
+
+		if (number.isReal()) {
+			double d = number.toDouble(buffer);
+			if (Double.isInfinite(d)) {
+				try {
+					bigValue = number.toBig(buffer);
+				} catch (NumberFormatException e) {
+					throwOutOfRange();
+				}
+				append(TokenType.PRIMITIVE, Kind.BIG);
+			}
+			else {
+				doubleValue = d;
+				append(TokenType.PRIMITIVE, Kind.DOUBLE);
+			}
+		}
+		else if (number.isLong()) {
+			longValue = number.longValue();
+			append(TokenType.PRIMITIVE, Kind.LONG);
+		}
+		else {
+			bigValue = number.toBig(buffer);
+			append(TokenType.PRIMITIVE, Kind.BIG);
+		}
+	}
+
+	private boolean parseAny() throws IOException {
+		end: while (true) {
+			switch (lastChar) {
+			case EOS:
+				return false;
+			case JsonSyntax.SEPARATOR:
+			case ' ':
+			case '\t':
+			case '\r':
+			case '\n':
+				skipWs();
+				break;
+			case JsonSyntax.OBJECT_BEGIN:
+				append(TokenType.START_OBJECT, Kind.NONE);
+				break end;
+			case JsonSyntax.OBJECT_END:
+				append(TokenType.END_OBJECT, Kind.NONE);
+				break end;
+			case JsonSyntax.ARRAY_BEGIN:
+				append(TokenType.START_ARRAY, Kind.NONE);
+				break end;
+			case JsonSyntax.ARRAY_END:
+				append(TokenType.END_ARRAY, Kind.NONE);
+				break end;
+			case JsonSyntax.STRING_QUOTE:
+				textLength = 0;
+				parseString();
+				if (lastChar == JsonSyntax.OBJECT_MEMBER_SEPARATOR) {
+					append(TokenType.MEMBER_NAME, Kind.STRING);
+				} else {
+					append(TokenType.PRIMITIVE, Kind.STRING);
+				}
+				break end;
+			case 't':
+				eat(JsonSyntax.BOOLEAN_TRUE);
+				appendConstant(JsonValue.TRUE);
+				break end;
+			case 'f':
+				eat(JsonSyntax.BOOLEAN_FALSE);
+				appendConstant(JsonValue.FALSE);
+				break end;
+			case 'n':
+				eat(JsonSyntax.NULL);
+				appendConstant(JsonValue.NULL);
+				break end;
+			default:
+				parseNumber();
+				break end;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Scans according to the last token, a step may or may not produce a token.
+	 *
+	 * @return <code>false</code> if the end of the input has been reached.
+	 */
+	private boolean step() throws IOException {
+		switch (lastNodeType) {
+		case START_OBJECT:
+			skipWs();
+			return parseAny();
+		case MEMBER_NAME:
+			if (lastChar != JsonSyntax.OBJECT_MEMBER_SEPARATOR) {
+				throwUnexpected("':'", String.valueOf((char)lastChar));
+			}
+			skipWs();
+			return parseAny();
+		case END_OBJECT:
+			skipWs();
+			return parseAny();
+		case START_ARRAY:
+			skipWs();
+			switch (lastChar) {
+			case JsonSyntax.ARRAY_END:
+				append(TokenType.END_ARRAY, Kind.NONE);
+				return true;
+			default:
+				return parseAny();
+			}
+		case END_ARRAY:
+			skipWs();
+			return parseAny();
+		case PRIMITIVE:
+			return parseAny();
+		case UNDEFINED:
+			return false;
+		default:
+			throw new AssertionError();
+		}
+	}
+
+	/**
+	 * Scans the next token.
+	 *
+	 * @return the type of the token or {@link TokenType#UNDEFINED} at the end of the input.
+	 * @throws BrokenStreamException if the input cannot be read or contains illegal data.
+	 */
+	final TokenType next() throws BrokenStreamException {
+		produced = false;
+		value = null;
+
+		try {
+			if (!started) {
+				started = true;
+				skipWs();
+				running = parseAny();
+			}
+
+			while (running && !produced) {
+				running = step();
+			}
+		} catch (IOException e) {
+			throw new BrokenStreamException("Failed to parse stream", e);
+		}
+
+		if (!produced) {
+			tokenType = TokenType.UNDEFINED;
+			kind = Kind.NONE;
+		}
+
+		return tokenType;
+	}
+
+	/**
+	 * Scans all remaining tokens and appends them to the specified {@link Consumer}.
+	 *
+	 * @param consumer receives the tokens.
+	 * @param reuseTokens specifies if a single {@link Token} should be reused for all events.
+	 */
+	final void copyTo(Consumer consumer, boolean reuseTokens) {
+		if (reuseTokens) {
+			Token token = new Token(this);
+			while (next() != TokenType.UNDEFINED) {
+				consumer.append(token);
+			}
+		}
+		else {
+			while (next() != TokenType.UNDEFINED) {
+				consumer.append(trackPositions
+						? new Token(tokenType, getValue(), tokenPosition, tokenLine, tokenColumn)
+						: new Token(tokenType, getValue(), SourcePosition.UNSPECIFIED));
+			}
+		}
+	}
+
+	final TokenType getTokenType() {
+		return tokenType;
+	}
+
+	final Kind getKind() {
+		return kind;
+	}
+
+	final String getString() {
+		return new String(text, 0, textLength);
+	}
+
+	/**
+	 * Retrieves the current member name, which is canonical unless names are not interned.
+	 *
+	 * @return the name.
+	 */
+	final String getName() {
+		return internNames ? lookupName().stringValue() : getString();
+	}
+
+	private JsonString lookupName() {
+		if (symbols == null) {
+			symbols = new SymbolTable();
+		}
+		return symbols.lookup(text, textLength);
+	}
+
+	/**
+	 * Retrieves a view of the text of the current token that is only valid until the next token.
+	 *
+	 * @return the text.
+	 */
+	final CharSequence getText() {
+		return textView;
+	}
+
+	final long getLong() {
+		return longValue;
+	}
+
+	final double getDouble() {
+		return doubleValue;
+	}
+
+	final Number getBig() {
+		return bigValue;
+	}
+
+	final JsonValue getConstant() {
+		return constant;
+	}
+
+	/**
+	 * Retrieves the value of the current token, the value is created on the first call.
+	 *
+	 * @return the value or <code>null</code> if the token has no value.
+	 */
+	final JsonValue getValue() {
+		if (value == null) {
+			switch (kind) {
+			case STRING:
+				value = tokenType == TokenType.MEMBER_NAME && internNames ? lookupName() : JsonValue.of(getString());
+				break;
+			case LONG:
+				value = JsonNumber.of(longValue);
+				break;
+			case DOUBLE:
+				value = JsonNumber.of(doubleValue);
+				break;
+			case BIG:
+				value = JsonNumber.of(bigValue);
+				break;
+			case CONSTANT:
+				value = constant;
+				break;
+			default:
+				break;
+			}
+		}
+
+		return value;
+	}
+
+	final SourcePosition getPosition() {
+		return trackPositions ? new SourcePosition(tokenPosition, tokenLine, tokenColumn) : SourcePosition.UNSPECIFIED;
+	}
+
+	final int getTokenPosition() {
+		return trackPositions ? tokenPosition : -1;
+	}
+
+	final int getTokenLine() {
+		return trackPositions ? tokenLine : -1;
+	}
+
+	final int getTokenColumn() {
+		return trackPositions ? tokenColumn : -1;
+	}
+
+	/**
+	 * A read-only view of {@link JsonTokenizer#text}.
+	 */
+	private final class TextView implements CharSequence {
+
+		@Override
+		public int length() {
+			return textLength;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= textLength) {
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+			return text[index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if (start < 0 || end > textLength || start > end) {
+				throw new IndexOutOfBoundsException();
+			}
+			return new String(text, start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return getString();
+		}
+	}
+}
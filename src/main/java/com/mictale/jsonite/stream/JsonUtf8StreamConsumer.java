@@ -0,0 +1,470 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import com.mictale.jsonite.JsonArray;
+import com.mictale.jsonite.JsonBoolean;
+import com.mictale.jsonite.JsonNull;
+import com.mictale.jsonite.JsonNumber;
+import com.mictale.jsonite.JsonObject;
+import com.mictale.jsonite.JsonString;
+
+/**
+ * Consumes {@link Token}s by writing them as UTF-8 encoded bytes.
+ * <p>
+ * This consumer writes to an {@link OutputStream}, a {@link WritableByteChannel} or a
+ * {@link ByteBuffer} without a charset encoder in between. The output is identical to the
+ * output of a {@link JsonStreamConsumer} encoded as UTF-8.
+ * <p>
+ * Bytes are collected in a reusable buffer that is drained whenever it is full, a top level
+ * value is complete or {@link #flush()} is called. A {@link ByteBuffer} target, heap or direct,
+ * is written in place, there is no intermediate buffer. Channels can be served from a direct
+ * buffer that the bytes are encoded into, so that the channel does not need to copy them again.
+ *
+ * @author michael@mictale.com
+ */
+public final class JsonUtf8StreamConsumer implements Consumer, JsonVisitor {
+
+	private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+	private static final byte[] TRUE = ascii(JsonSyntax.BOOLEAN_TRUE);
+
+	private static final byte[] FALSE = ascii(JsonSyntax.BOOLEAN_FALSE);
+
+	private static final byte[] NULL = ascii(JsonSyntax.NULL);
+
+	private final OutputStream out;
+
+	private final WritableByteChannel channel;
+
+	/**
+	 * The buffer that receives the output, it is either the caller's buffer or the buffer
+	 * that is written to {@link #channel}. It is <code>null</code> for streams.
+	 */
+	private final ByteBuffer target;
+
+	/**
+	 * The backing array of {@link #target} or the buffer for a stream. It is <code>null</code>
+	 * if {@link #target} is direct and receives the bytes by absolute puts.
+	 */
+	private final byte[] bytes;
+
+	/**
+	 * The offset of the first byte of {@link #target} in {@link #bytes}.
+	 */
+	private final int offset;
+
+	private int count;
+
+	private final int limit;
+
+	private final char[] numberBuffer = new char[NumberFormatter.MAX_LENGTH];
+
+	/**
+	 * The number of open objects and arrays.
+	 */
+	private int depth;
+
+	/**
+	 * Separator control.
+	 */
+	private boolean valueWritten;
+
+	private boolean lineDelimited;
+
+	/**
+	 * Initializes a consumer that writes blocks of 8 KB to an {@link OutputStream}.
+	 *
+	 * @param out receives the output.
+	 */
+	public JsonUtf8StreamConsumer(OutputStream out) {
+		this(out, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Initializes a consumer that writes blocks of the specified size to an {@link OutputStream}.
+	 *
+	 * @param out receives the output.
+	 * @param bufferSize is the number of bytes collected before they are written.
+	 */
+	public JsonUtf8StreamConsumer(OutputStream out, int bufferSize) {
+		checkBufferSize(bufferSize);
+		this.out = out;
+		this.channel = null;
+		this.target = null;
+		this.bytes = new byte[bufferSize];
+		this.offset = 0;
+		this.limit = bufferSize;
+	}
+
+	/**
+	 * Initializes a consumer that writes blocks of 8 KB in a heap buffer to a
+	 * {@link WritableByteChannel}.
+	 *
+	 * @param channel receives the output.
+	 */
+	public JsonUtf8StreamConsumer(WritableByteChannel channel) {
+		this(channel, DEFAULT_BUFFER_SIZE, false);
+	}
+
+	/**
+	 * Initializes a consumer that writes blocks of the specified size to a {@link WritableByteChannel}.
+	 *
+	 * @param channel receives the output.
+	 * @param bufferSize is the number of bytes collected before they are written.
+	 * @param direct specifies if the blocks are encoded into a direct buffer.
+	 */
+	public JsonUtf8StreamConsumer(WritableByteChannel channel, int bufferSize, boolean direct) {
+		checkBufferSize(bufferSize);
+		this.out = null;
+		this.channel = channel;
+		this.target = direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+		this.bytes = direct ? null : target.array();
+		this.offset = 0;
+		this.limit = bufferSize;
+	}
+
+	/**
+	 * Initializes a consumer that writes into the specified buffer.
+	 * <p>
+	 * The output starts at the position of the buffer and the position is advanced whenever
+	 * the output is drained. A {@link BrokenStreamException} is thrown if the output does
+	 * not fit into the buffer.
+	 *
+	 * @param buffer receives the output.
+	 */
+	public JsonUtf8StreamConsumer(ByteBuffer buffer) {
+		this.out = null;
+		this.channel = null;
+		this.target = buffer;
+		this.bytes = buffer.hasArray() ? buffer.array() : null;
+		this.offset = buffer.hasArray() ? buffer.arrayOffset() : 0;
+		this.count = offset + buffer.position();
+		this.limit = offset + buffer.limit();
+	}
+
+	private static void checkBufferSize(int bufferSize) {
+		if (bufferSize < NumberFormatter.MAX_LENGTH) {
+			throw new IllegalArgumentException("Illegal buffer size: " + bufferSize);
+		}
+	}
+
+	private static byte[] ascii(String s) {
+		byte[] b = new byte[s.length()];
+		for (int i = 0; i < b.length; i++) {
+			b[i] = (byte) s.charAt(i);
+		}
+		return b;
+	}
+
+	/**
+	 * Specifies if top level values are written as newline delimited JSON.
+	 * <p>
+	 * Every top level value is then followed by a line feed instead of being separated from the
+	 * next one by a comma, and output to a stream or channel is only passed on when the buffer is
+	 * full or {@link #flush()} is called, so a long sequence of small documents is written in
+	 * large blocks. Call {@link #flush()} after the last document.
+	 *
+	 * @param lineDelimited is <code>true</code> to write one document per line.
+	 */
+	public void setLineDelimited(boolean lineDelimited) {
+		this.lineDelimited = lineDelimited;
+	}
+
+	/**
+	 * Passes all buffered output to the target and flushes it.
+	 *
+	 * @throws BrokenStreamException if the target fails or a buffer overflows.
+	 */
+	public void flush() throws BrokenStreamException {
+		try {
+			drain();
+			if (out != null) {
+				out.flush();
+			}
+		} catch (IOException e) {
+			throw new BrokenStreamException(e);
+		}
+	}
+
+	/**
+	 * Passes the buffered bytes to the target.
+	 */
+	private void drain() throws IOException {
+		if (out != null) {
+			out.write(bytes, 0, count);
+			count = 0;
+		}
+		else if (channel != null) {
+			target.clear();
+			target.limit(count);
+			while (target.hasRemaining()) {
+				channel.write(target);
+			}
+			count = 0;
+		}
+		else {
+			target.position(count - offset);
+		}
+	}
+
+	/**
+	 * Makes sure that the buffer has room for the specified number of bytes.
+	 */
+	private void require(int n) throws IOException {
+		if (limit - count < n) {
+			drain();
+			if (limit - count < n) {
+				throw new BrokenStreamException("Buffer overflow");
+			}
+		}
+	}
+
+	/**
+	 * Stores a byte without checking for room.
+	 */
+	private void put(int b) {
+		if (bytes != null) {
+			bytes[count++] = (byte) b;
+		}
+		else {
+			target.put(count++, (byte) b);
+		}
+	}
+
+	private void write(byte b) throws IOException {
+		if (count == limit) {
+			require(1);
+		}
+		put(b);
+	}
+
+	private void write(char ch) throws IOException {
+		write((byte) ch);
+	}
+
+	private void write(byte[] b) throws IOException {
+		int start = 0;
+		while (start < b.length) {
+			if (count == limit) {
+				require(1);
+			}
+			int n = Math.min(b.length - start, limit - count);
+			if (bytes != null) {
+				System.arraycopy(b, start, bytes, count, n);
+				count += n;
+			}
+			else {
+				for (int i = start; i < start + n; i++) {
+					put(b[i]);
+				}
+			}
+			start += n;
+		}
+	}
+
+	private void writeAscii(char[] chars, int length) throws IOException {
+		require(length);
+		for (int i = 0; i < length; i++) {
+			put(chars[i]);
+		}
+	}
+
+	private void writeEscape(char ch) throws IOException {
+		require(6);
+		put(JsonSyntax.STRING_ESCAPE);
+		char escape = ch < JsonStreamConsumer.ESCAPES.length ? JsonStreamConsumer.ESCAPES[ch] : 'u';
+		put(escape);
+		if (escape == 'u') {
+			put(JsonStreamConsumer.HEX_DIGITS[ch >> 12]);
+			put(JsonStreamConsumer.HEX_DIGITS[ch >> 8 & 0xf]);
+			put(JsonStreamConsumer.HEX_DIGITS[ch >> 4 & 0xf]);
+			put(JsonStreamConsumer.HEX_DIGITS[ch & 0xf]);
+		}
+	}
+
+	private void appendSeparator() throws IOException {
+		if (valueWritten) {
+			write(JsonSyntax.SEPARATOR);
+			valueWritten = false;
+		}
+	}
+
+	@Override
+	public void append(Token token) throws BrokenStreamException {
+		try {
+			switch (token.getTokenType()) {
+			case START_ARRAY:
+				appendSeparator();
+				write(JsonSyntax.ARRAY_BEGIN);
+				depth++;
+				break;
+
+			case END_ARRAY:
+				write(JsonSyntax.ARRAY_END);
+				valueWritten = true;
+				depth--;
+				break;
+
+			case START_OBJECT:
+				appendSeparator();
+				write(JsonSyntax.OBJECT_BEGIN);
+				depth++;
+				break;
+
+			case END_OBJECT:
+				write(JsonSyntax.OBJECT_END);
+				valueWritten = true;
+				depth--;
+				break;
+
+			case MEMBER_NAME:
+				appendSeparator();
+				token.getValue().accept(this);
+				write(JsonSyntax.OBJECT_MEMBER_SEPARATOR);
+				break;
+
+			case PRIMITIVE:
+				appendSeparator();
+				token.getValue().accept(this);
+				valueWritten = true;
+				break;
+
+			default:
+				throw new AssertionError(token.getTokenType());
+			}
+
+			if (depth <= 0) {
+				if (lineDelimited) {
+					write((byte) '\n');
+					valueWritten = false;
+				}
+				if (!lineDelimited || out == null && channel == null) {
+					drain();
+				}
+			}
+		} catch (IOException e) {
+			throw new BrokenStreamException(e);
+		}
+	}
+
+	@Override
+	public void visit(JsonObject obj) {
+		assert false;
+	}
+
+	@Override
+	public void visit(JsonArray arr) {
+		assert false;
+	}
+
+	@Override
+	public void visit(JsonString string) {
+		String value = string.stringValue();
+
+		try {
+			write(JsonSyntax.STRING_QUOTE);
+
+			int length = value.length();
+			for (int i = 0; i < length; i++) {
+				char ch = value.charAt(i);
+				if (ch < 0x80) {
+					if (JsonStreamConsumer.ESCAPES[ch] != 0) {
+						writeEscape(ch);
+					}
+					else {
+						if (count == limit) {
+							require(1);
+						}
+						put(ch);
+					}
+				}
+				else if (ch < 0x800) {
+					require(2);
+					put(0xc0 | ch >> 6);
+					put(0x80 | ch & 0x3f);
+				}
+				else if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(ch, value.charAt(++i));
+					require(4);
+					put(0xf0 | codePoint >> 18);
+					put(0x80 | codePoint >> 12 & 0x3f);
+					put(0x80 | codePoint >> 6 & 0x3f);
+					put(0x80 | codePoint & 0x3f);
+				}
+				else if (Character.isSurrogate(ch)) {
+					// An unpaired surrogate cannot be encoded, keep it as an escape
+					writeEscape(ch);
+				}
+				else {
+					require(3);
+					put(0xe0 | ch >> 12);
+					put(0x80 | ch >> 6 & 0x3f);
+					put(0x80 | ch & 0x3f);
+				}
+			}
+
+			write(JsonSyntax.STRING_QUOTE);
+		} catch (IOException e) {
+			throw new BrokenStreamException(e);
+		}
+	}
+
+	@Override
+	public void visit(JsonBoolean bool) {
+		try {
+			write(bool.booleanValue() ? TRUE : FALSE);
+		}
+		catch(IOException e) {
+			throw new BrokenStreamException(e);
+		}
+	}
+
+	@Override
+	public void visit(JsonNumber number) {
+		try {
+			if (number.isDouble()) {
+				writeAscii(numberBuffer, NumberFormatter.formatDouble(number.doubleValue(), numberBuffer, 0));
+			}
+			else if (number.isLong()) {
+				writeAscii(numberBuffer, NumberFormatter.formatLong(number.longValue(), numberBuffer, 0));
+			}
+			else {
+				write(ascii(number.stringValue()));
+			}
+		}
+		catch(IOException e) {
+			throw new BrokenStreamException(e);
+		}
+	}
+
+	@Override
+	public void visit(JsonNull nul) {
+		try {
+			write(NULL);
+		}
+		catch(IOException e) {
+			throw new BrokenStreamException(e);
+		}
+	}
+}
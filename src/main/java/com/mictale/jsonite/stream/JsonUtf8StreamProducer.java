@@ -0,0 +1,136 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.mictale.jsonite.SourcePosition;
+
+/**
+ * Produces JSON nodes from UTF-8 encoded bytes.
+ * <p>
+ * This producer reads from a <code>byte[]</code>, an {@link InputStream}, a {@link ByteBuffer}
+ * or a memory mapped {@link FileChannel} without a preceding charset decoder. Only the contents
+ * of strings are decoded, all other syntax is scanned as bytes. The produced {@link Token}s are
+ * identical to those of a {@link JsonStreamProducer} reading the decoded characters, except that
+ * {@link SourcePosition#getPosition()} counts bytes rather than characters.
+ *
+ * @author michael@mictale.com
+ */
+public final class JsonUtf8StreamProducer implements Producer {
+
+	private final JsonTokenizer tokenizer;
+
+	private boolean reuseTokens;
+
+	public JsonUtf8StreamProducer(InputStream in) {
+		this(in, JsonTokenizer.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Initializes a producer that reads blocks of the specified size from an {@link InputStream}.
+	 *
+	 * @param in is the source of the JSON content.
+	 * @param bufferSize is the number of bytes read at once.
+	 */
+	public JsonUtf8StreamProducer(InputStream in, int bufferSize) {
+		this.tokenizer = new Utf8Tokenizer(in, bufferSize);
+	}
+
+	public JsonUtf8StreamProducer(byte[] bytes) {
+		this(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Initializes a producer that parses a range of a byte array in place.
+	 *
+	 * @param bytes contains the JSON content.
+	 * @param offset is the index of the first byte to parse.
+	 * @param length is the number of bytes to parse.
+	 */
+	public JsonUtf8StreamProducer(byte[] bytes, int offset, int length) {
+		this.tokenizer = new Utf8Tokenizer(bytes, offset, length);
+	}
+
+	/**
+	 * Initializes a producer that parses the remaining bytes of a {@link ByteBuffer}.
+	 * <p>
+	 * Heap and direct buffers are both parsed in place. The position of the specified buffer is
+	 * not modified.
+	 *
+	 * @param buffer contains the JSON content.
+	 */
+	public JsonUtf8StreamProducer(ByteBuffer buffer) {
+		this.tokenizer = new Utf8Tokenizer(buffer);
+	}
+
+	/**
+	 * Initializes a producer that parses a file through a memory mapping.
+	 * <p>
+	 * The file is mapped read-only in regions of at most 1 GB, so files beyond the 2 GB limit
+	 * of a single {@link java.nio.MappedByteBuffer} are supported. Each region is scanned in place,
+	 * only the contents of strings are copied to the heap. The caller remains responsible
+	 * for closing the channel.
+	 *
+	 * @param channel is the file that contains the JSON content.
+	 */
+	public JsonUtf8StreamProducer(FileChannel channel) {
+		this(channel, Utf8Tokenizer.DEFAULT_MAP_SIZE);
+	}
+
+	JsonUtf8StreamProducer(FileChannel channel, int mapSize) {
+		this.tokenizer = new Utf8Tokenizer(channel, mapSize);
+	}
+
+	/**
+	 * Specifies if a single {@link Token} should be reused for all events.
+	 *
+	 * @param reuseTokens is <code>true</code> to reuse tokens.
+	 * @see JsonStreamProducer#setReuseTokens(boolean)
+	 */
+	public void setReuseTokens(boolean reuseTokens) {
+		this.reuseTokens = reuseTokens;
+	}
+
+	/**
+	 * Specifies if source positions should be tracked, which is the default.
+	 *
+	 * @param trackPositions is <code>false</code> to switch tracking off.
+	 * @see JsonStreamProducer#setTrackPositions(boolean)
+	 */
+	public void setTrackPositions(boolean trackPositions) {
+		tokenizer.setTrackPositions(trackPositions);
+	}
+
+	/**
+	 * Specifies the table used to find canonical member names.
+	 *
+	 * @param symbols is the table or <code>null</code> to create a new string for every name.
+	 * @see JsonStreamProducer#setSymbolTable(SymbolTable)
+	 */
+	public void setSymbolTable(SymbolTable symbols) {
+		tokenizer.setSymbolTable(symbols);
+	}
+
+	@Override
+	public void copyTo(Consumer consumer) {
+		tokenizer.copyTo(consumer, reuseTokens);
+	}
+}
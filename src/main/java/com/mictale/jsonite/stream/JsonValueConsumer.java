@@ -23,9 +23,13 @@ import com.mictale.jsonite.JsonArray;
 import com.mictale.jsonite.JsonException;
 import com.mictale.jsonite.JsonObject;
 import com.mictale.jsonite.JsonValue;
+import com.mictale.jsonite.ObjectShape;
 
 /**
  * Consumes a {@link JsonValue} and all its children.
+ * <p>
+ * All objects created by a consumer share their member names through one tree of
+ * {@link ObjectShape}s, so a large array of records stores every name only once.
  * 
  * @author michael@mictale.com
  */
@@ -36,6 +40,8 @@ public final class JsonValueConsumer implements Consumer {
 	private JsonValue last;
 	
 	private final Stack<JsonValue> path = new Stack<>();
+
+	private final ObjectShape shapes = ObjectShape.root();
 	
 	private void appendValue(JsonValue value) {
 		if (!path.isEmpty()) {
@@ -62,7 +68,7 @@ public final class JsonValueConsumer implements Consumer {
 	public void append(Token token) {
 		switch(token.getTokenType()) {
 		case START_OBJECT:
-			appendValue(last = new JsonObject());
+			appendValue(last = new JsonObject(shapes));
 			break;
 		case START_ARRAY:
 			appendValue(last = new JsonArray());
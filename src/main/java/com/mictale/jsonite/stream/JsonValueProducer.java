@@ -26,6 +26,7 @@ import com.mictale.jsonite.JsonNumber;
 import com.mictale.jsonite.JsonObject;
 import com.mictale.jsonite.JsonString;
 import com.mictale.jsonite.JsonValue;
+import com.mictale.jsonite.SourcePosition;
 
 /**
  * Produces a hierarchy of {@link JsonValue}s from a stream.
@@ -37,10 +38,31 @@ public final class JsonValueProducer implements Producer, JsonVisitor {
 	private Consumer consumer;
 	
 	private final JsonValue value;
+
+	/**
+	 * The token handed to the consumer for every event or <code>null</code> if
+	 * every event creates a new token.
+	 */
+	private Token token;
 	
 	public JsonValueProducer(JsonValue value) {
 		this.value = value;
 	}
+
+	/**
+	 * Specifies if a single {@link Token} should be reused for all events.
+	 * <p>
+	 * Consumers must not keep a reference to a reused token.
+	 * 
+	 * @param reuseTokens is <code>true</code> to reuse tokens.
+	 */
+	public void setReuseTokens(boolean reuseTokens) {
+		this.token = reuseTokens ? new Token() : null;
+	}
+
+	private void append(TokenType tokenType, JsonValue value, SourcePosition position) {
+		consumer.append(token == null ? new Token(tokenType, value, position) : token.set(tokenType, value, position));
+	}
 	
 	@Override
 	public void copyTo(Consumer consumer) {
@@ -50,45 +72,45 @@ public final class JsonValueProducer implements Producer, JsonVisitor {
 
 	@Override
 	public void visit(JsonObject obj) {
-		consumer.append(new Token(TokenType.START_OBJECT, obj, obj.getPosition()));
+		append(TokenType.START_OBJECT, obj, obj.getPosition());
 		
 		for (Map.Entry<String, JsonValue> entry : obj.entrySet()) {
 			JsonValue value = entry.getValue();
-			consumer.append(new Token(TokenType.MEMBER_NAME, JsonString.of(entry.getKey()), value.getPosition()));
+			append(TokenType.MEMBER_NAME, JsonString.of(entry.getKey()), value.getPosition());
 			value.accept(this);
 		}
 
-		consumer.append(new Token(TokenType.END_OBJECT, obj, obj.getPosition()));
+		append(TokenType.END_OBJECT, obj, obj.getPosition());
 	}
 
 	@Override
 	public void visit(JsonArray arr) {
-		consumer.append(new Token(TokenType.START_ARRAY, arr, arr.getPosition()));
+		append(TokenType.START_ARRAY, arr, arr.getPosition());
 		
 		for (JsonValue element : arr) {
 			element.accept(this);
 		}
 
-		consumer.append(new Token(TokenType.END_ARRAY, arr, arr.getPosition()));
+		append(TokenType.END_ARRAY, arr, arr.getPosition());
 	}
 
 	@Override
 	public void visit(JsonString string) {
-		consumer.append(new Token(TokenType.PRIMITIVE, string, string.getPosition()));
+		append(TokenType.PRIMITIVE, string, string.getPosition());
 	}
 
 	@Override
 	public void visit(JsonBoolean bool) {
-		consumer.append(new Token(TokenType.PRIMITIVE, bool, bool.getPosition()));
+		append(TokenType.PRIMITIVE, bool, bool.getPosition());
 	}
 
 	@Override
 	public void visit(JsonNumber number) {
-		consumer.append(new Token(TokenType.PRIMITIVE, number, number.getPosition()));
+		append(TokenType.PRIMITIVE, number, number.getPosition());
 	}
 
 	@Override
 	public void visit(JsonNull nul) {
-		consumer.append(new Token(TokenType.PRIMITIVE, nul, nul.getPosition()));
+		append(TokenType.PRIMITIVE, nul, nul.getPosition());
 	}
 }
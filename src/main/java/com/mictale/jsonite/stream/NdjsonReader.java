@@ -0,0 +1,143 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.mictale.jsonite.JsonValue;
+
+/**
+ * Reads a sequence of JSON documents, one per line, as in newline delimited JSON.
+ * <p>
+ * The documents are read one at a time, either as a {@link JsonValue} through the
+ * {@link Iterator} interface or as tokens with {@link #copyNextTo(Consumer)}. Only the current
+ * document and a block of input are held in memory, so inputs of any size can be read. Like
+ * the other parsers, the reader is lenient and accepts any white space between documents, not
+ * only line feeds, so <code>{}{}</code> or <code>1 2</code> on a single line are read as two
+ * documents. Member names are interned in one {@link SymbolTable} for all documents.
+ * <p>
+ * Here is how you process a log:
+ *
+ * <pre>
+ * NdjsonReader reader = new NdjsonReader(in);
+ * while (reader.hasNext()) {
+ *     JsonValue entry = reader.next();
+ *     ...
+ * }
+ * </pre>
+ *
+ * The caller remains responsible for closing the input.
+ *
+ * @author michael@mictale.com
+ */
+public final class NdjsonReader implements Iterator<JsonValue> {
+
+	private final JsonReader reader;
+
+	/**
+	 * Initializes a reader for character input.
+	 *
+	 * @param reader is the source of the documents.
+	 */
+	public NdjsonReader(Reader reader) {
+		this.reader = new JsonReader(reader);
+	}
+
+	/**
+	 * Initializes a reader for UTF-8 encoded input.
+	 *
+	 * @param in is the source of the documents.
+	 */
+	public NdjsonReader(InputStream in) {
+		this.reader = new JsonReader(in);
+	}
+
+	/**
+	 * Specifies if source positions should be tracked, which is the default.
+	 * <p>
+	 * Lines are counted from the start of the input, so positions tell the line of a document.
+	 *
+	 * @param trackPositions is <code>false</code> to switch tracking off.
+	 * @see JsonStreamProducer#setTrackPositions(boolean)
+	 */
+	public void setTrackPositions(boolean trackPositions) {
+		reader.setTrackPositions(trackPositions);
+	}
+
+	/**
+	 * Specifies the table used to find canonical member names.
+	 *
+	 * @param symbols is the table or <code>null</code> to create a new string for every name.
+	 * @see JsonStreamProducer#setSymbolTable(SymbolTable)
+	 */
+	public void setSymbolTable(SymbolTable symbols) {
+		reader.setSymbolTable(symbols);
+	}
+
+	/**
+	 * Checks if there is another document.
+	 *
+	 * @return <code>true</code> if the input has not ended.
+	 * @throws BrokenStreamException if the input cannot be read.
+	 */
+	@Override
+	public boolean hasNext() throws BrokenStreamException {
+		return reader.peek() != TokenType.UNDEFINED;
+	}
+
+	/**
+	 * Reads the next document.
+	 *
+	 * @return the document.
+	 * @throws NoSuchElementException if there are no more documents.
+	 * @throws BrokenStreamException if the input cannot be read or the document is illegal.
+	 */
+	@Override
+	public JsonValue next() throws BrokenStreamException {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return reader.nextValue();
+	}
+
+	/**
+	 * Appends the tokens of the next document to a {@link Consumer}.
+	 * <p>
+	 * The document is not created as a whole, so even a single large document can be passed on
+	 * in bounded memory.
+	 *
+	 * @param consumer receives the tokens.
+	 * @return <code>false</code> if there are no more documents.
+	 * @throws BrokenStreamException if the input cannot be read or the document is illegal.
+	 */
+	public boolean copyNextTo(Consumer consumer) throws BrokenStreamException {
+		if (!hasNext()) {
+			return false;
+		}
+		reader.copyValueTo(consumer);
+		return true;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
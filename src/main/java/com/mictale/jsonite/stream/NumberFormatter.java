@@ -0,0 +1,351 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.math.BigInteger;
+
+/**
+ * Writes numbers as characters into an array without creating a {@link String}.
+ * <p>
+ * Doubles are written with the shortest decimal that reads back to the same value,
+ * computed by Giulietti's Schubfach algorithm. The layout follows {@link Double#toString(double)}:
+ * plain notation between 10<sup>-3</sup> and 10<sup>7</sup>, computerized scientific notation
+ * otherwise.
+ *
+ * @author michael@mictale.com
+ */
+final class NumberFormatter {
+
+	/**
+	 * The largest number of characters written for a single number.
+	 */
+	static final int MAX_LENGTH = 32;
+
+	private static final char[] DIGIT_TENS = new char[100];
+
+	private static final char[] DIGIT_ONES = new char[100];
+
+	static {
+		for (int i = 0; i < 100; i++) {
+			DIGIT_TENS[i] = (char) ('0' + i / 10);
+			DIGIT_ONES[i] = (char) ('0' + i % 10);
+		}
+	}
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+
+	static {
+		long p = 1;
+		for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = p;
+			p *= 10;
+		}
+	}
+
+	private static final char[] MIN_LONG = "-9223372036854775808".toCharArray();
+
+	private static final int Q_MIN = -1074;
+
+	private static final long C_MIN = 1L << 52;
+
+	private static final int C_TINY = 3;
+
+	private static final int K_MIN = -324;
+
+	private static final int K_MAX = 292;
+
+	private static final long MASK_63 = (1L << 63) - 1;
+
+	private NumberFormatter() {
+	}
+
+	/**
+	 * Writes a <code>long</code> in decimal notation.
+	 *
+	 * @param value is the number to write.
+	 * @param buffer receives the characters, it must have room for {@link #MAX_LENGTH} characters.
+	 * @param offset is the index of the first character.
+	 * @return the index after the last character.
+	 */
+	static int formatLong(long value, char[] buffer, int offset) {
+		if (value == Long.MIN_VALUE) {
+			System.arraycopy(MIN_LONG, 0, buffer, offset, MIN_LONG.length);
+			return offset + MIN_LONG.length;
+		}
+
+		if (value < 0) {
+			buffer[offset++] = '-';
+			value = -value;
+		}
+
+		int end = offset + digitCount(value);
+		writeDigits(value, buffer, end);
+		return end;
+	}
+
+	private static int digitCount(long value) {
+		int n = 1;
+		while (n < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[n]) {
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Writes the digits of a non-negative value right to left, two at a time.
+	 */
+	private static void writeDigits(long value, char[] buffer, int end) {
+		int i = end;
+		while (value >= 100) {
+			int r = (int) (value % 100);
+			value /= 100;
+			buffer[--i] = DIGIT_ONES[r];
+			buffer[--i] = DIGIT_TENS[r];
+		}
+
+		int r = (int) value;
+		buffer[--i] = DIGIT_ONES[r];
+		if (r >= 10) {
+			buffer[--i] = DIGIT_TENS[r];
+		}
+	}
+
+	/**
+	 * Writes a finite <code>double</code> with the fewest digits that identify it uniquely.
+	 *
+	 * @param value is the number to write.
+	 * @param buffer receives the characters, it must have room for {@link #MAX_LENGTH} characters.
+	 * @param offset is the index of the first character.
+	 * @return the index after the last character.
+	 */
+	static int formatDouble(double value, char[] buffer, int offset) {
+		long bits = Double.doubleToRawLongBits(value);
+		long t = bits & (1L << 52) - 1;
+		int bq = (int) (bits >>> 52) & 0x7ff;
+
+		if (bq == 0x7ff) {
+			throw new IllegalArgumentException("Only finite floating point accepted: " + value);
+		}
+
+		if (bits < 0) {
+			buffer[offset++] = '-';
+		}
+
+		if (bq != 0) {
+			int mq = -Q_MIN + 1 - bq;
+			long c = C_MIN | t;
+			if (0 < mq && mq < 53) {
+				long f = c >> mq;
+				if (f << mq == c) {
+					return write(f, 0, buffer, offset);
+				}
+			}
+			return toDecimal(-mq, c, 0, buffer, offset);
+		}
+
+		if (t != 0) {
+			return t < C_TINY ? toDecimal(Q_MIN, 10 * t, -1, buffer, offset) : toDecimal(Q_MIN, t, 0, buffer, offset);
+		}
+
+		buffer[offset++] = '0';
+		buffer[offset++] = '.';
+		buffer[offset++] = '0';
+		return offset;
+	}
+
+	/**
+	 * Finds the shortest decimal in the rounding interval of <code>c * 2^q</code>.
+	 */
+	private static int toDecimal(int q, long c, int dk, char[] buffer, int offset) {
+		int out = (int) c & 1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+		if (c != C_MIN || q == Q_MIN) {
+			cbl = cb - 2;
+			k = floorLog10Pow2(q);
+		}
+		else {
+			cbl = cb - 1;
+			k = floorLog10ThreeQuartersPow2(q);
+		}
+		int h = q + floorLog2Pow10(-k) + 2;
+
+		long[] g = PowersOfTen.TABLE;
+		int index = 2 * (k - K_MIN);
+		long g1 = g[index];
+		long g0 = g[index + 1];
+
+		long vb = roundToOdd(g1, g0, cb << h);
+		long vbl = roundToOdd(g1, g0, cbl << h);
+		long vbr = roundToOdd(g1, g0, cbr << h);
+
+		long s = vb >> 2;
+		if (s >= 100) {
+			long sp10 = 10 * multiplyHigh(s, 115292150460684698L << 4);
+			long tp10 = sp10 + 10;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+			if (upin != wpin) {
+				return write(upin ? sp10 : tp10, k, buffer, offset);
+			}
+		}
+
+		long t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (t << 2) + out <= vbr;
+		if (uin != win) {
+			return write(uin ? s : t, k + dk, buffer, offset);
+		}
+
+		long cmp = vb - (s + t << 1);
+		return write(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk, buffer, offset);
+	}
+
+	/**
+	 * Writes <code>f * 10^e</code> in the layout of {@link Double#toString(double)}.
+	 */
+	private static int write(long f, int e, char[] buffer, int offset) {
+		while (f % 10 == 0) {
+			f /= 10;
+			e++;
+		}
+
+		int length = digitCount(f);
+
+		// The decimal exponent of the first digit
+		int exponent = e + length - 1;
+
+		if (exponent >= -3 && exponent < 7) {
+			if (exponent < 0) {
+				buffer[offset++] = '0';
+				buffer[offset++] = '.';
+				for (int i = exponent + 1; i < 0; i++) {
+					buffer[offset++] = '0';
+				}
+				int end = offset + length;
+				writeDigits(f, buffer, end);
+				return end;
+			}
+
+			if (e >= 0) {
+				int end = offset + length;
+				writeDigits(f, buffer, end);
+				for (int i = 0; i < e; i++) {
+					buffer[end++] = '0';
+				}
+				buffer[end++] = '.';
+				buffer[end++] = '0';
+				return end;
+			}
+
+			// Write the digits one position to the right and move the integer part back
+			int end = offset + length + 1;
+			writeDigits(f, buffer, end);
+			int integers = exponent + 1;
+			System.arraycopy(buffer, offset + 1, buffer, offset, integers);
+			buffer[offset + integers] = '.';
+			return end;
+		}
+
+		int end = offset + length + 1;
+		writeDigits(f, buffer, end);
+		buffer[offset] = buffer[offset + 1];
+		buffer[offset + 1] = '.';
+		if (length == 1) {
+			buffer[end++] = '0';
+		}
+
+		buffer[end++] = 'E';
+		return formatLong(exponent, buffer, end);
+	}
+
+	private static int floorLog10Pow2(int e) {
+		return (int) (e * 661971961083L >> 41);
+	}
+
+	private static int floorLog10ThreeQuartersPow2(int e) {
+		return (int) (e * 661971961083L - 274743187321L >> 41);
+	}
+
+	private static int floorLog2Pow10(int e) {
+		return (int) (e * 913124641741L >> 38);
+	}
+
+	private static long roundToOdd(long g1, long g0, long cp) {
+		long x1 = multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | (z & MASK_63) + MASK_63 >>> 63;
+	}
+
+	/**
+	 * Returns the upper 64 bits of the 128 bit product of two non-negative values.
+	 */
+	private static long multiplyHigh(long a, long b) {
+		long aLow = a & 0xffffffffL;
+		long aHigh = a >>> 32;
+		long bLow = b & 0xffffffffL;
+		long bHigh = b >>> 32;
+
+		long lowLow = aLow * bLow;
+		long highLow = aHigh * bLow;
+		long lowHigh = aLow * bHigh;
+		long highHigh = aHigh * bHigh;
+
+		long cross = (lowLow >>> 32) + (highLow & 0xffffffffL) + lowHigh;
+		return highHigh + (highLow >>> 32) + (cross >>> 32);
+	}
+
+	/**
+	 * The 126 bit approximations of the powers of ten, split into two 63 bit halves and
+	 * computed on first use.
+	 */
+	private static final class PowersOfTen {
+
+		static final long[] TABLE = compute();
+
+		private static long[] compute() {
+			long[] table = new long[2 * (K_MAX - K_MIN + 1)];
+
+			for (int k = K_MIN; k <= K_MAX; k++) {
+				int e = -k;
+				BigInteger g;
+				if (e >= 0) {
+					BigInteger p = BigInteger.TEN.pow(e);
+					int shift = 126 - p.bitLength();
+					g = shift >= 0 ? p.shiftLeft(shift) : p.shiftRight(-shift);
+				}
+				else {
+					BigInteger p = BigInteger.TEN.pow(-e);
+					g = BigInteger.ONE.shiftLeft(125 + p.bitLength()).divide(p);
+				}
+				g = g.add(BigInteger.ONE);
+
+				int index = 2 * (k - K_MIN);
+				table[index] = g.shiftRight(63).longValue();
+				table[index + 1] = g.longValue() & MASK_63;
+			}
+
+			return table;
+		}
+	}
+}
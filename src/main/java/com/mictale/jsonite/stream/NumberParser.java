@@ -0,0 +1,302 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+
+import com.mictale.jsonite.JsonNumber;
+import com.mictale.jsonite.JsonValue;
+
+/**
+ * Accumulates the digits of a JSON number and turns them into a value, so that all parsers
+ * produce identical values.
+ * <p>
+ * The parsers check the syntax and report every digit to one of the <code>xxxDigit()</code>
+ * methods. The first {@link #MAX_DIGITS} significant digits are kept as an unsigned significand,
+ * a decimal exponent accounts for the digits that are dropped or follow the decimal point.
+ * Integers that fit become a <code>long</code>, real numbers a <code>double</code> converted by
+ * the {@link FastDoubleParser}. Only what does not fit is converted from the text of the number.
+ * <p>
+ * An instance is reused for all numbers of a parser, see {@link #reset()}.
+ *
+ * @author michael@mictale.com
+ */
+final class NumberParser {
+
+	/**
+	 * The number of decimal digits that always fit into an unsigned <code>long</code>.
+	 */
+	static final int MAX_DIGITS = 19;
+
+	/**
+	 * Exponents are not accumulated beyond this, the result is zero or infinite anyway.
+	 */
+	static final int MAX_EXPONENT = 100000;
+
+	private boolean negative;
+
+	/**
+	 * The first {@link #MAX_DIGITS} significant digits as an unsigned value.
+	 */
+	private long significand;
+
+	/**
+	 * The number of significant digits in {@link #significand}.
+	 */
+	private int digits;
+
+	/**
+	 * The decimal exponent of {@link #significand} without the explicit exponent.
+	 */
+	private int scale;
+
+	private boolean truncated;
+
+	private boolean real;
+
+	private boolean negativeExponent;
+
+	/**
+	 * The explicit exponent, which stops growing at {@link #MAX_EXPONENT}.
+	 */
+	private int exponent;
+
+	/**
+	 * Prepares for the next number.
+	 */
+	void reset() {
+		negative = false;
+		significand = 0;
+		digits = 0;
+		scale = 0;
+		truncated = false;
+		real = false;
+		negativeExponent = false;
+		exponent = 0;
+	}
+
+	/**
+	 * Reports the minus sign in front of the number.
+	 */
+	void negate() {
+		negative = true;
+	}
+
+	/**
+	 * Reports a digit before the decimal point.
+	 */
+	void integerDigit(int ch) {
+		if (digits < MAX_DIGITS) {
+			significand = significand * 10 + (ch - '0');
+			if (significand != 0) {
+				digits++;
+			}
+		}
+		else {
+			truncated = true;
+			scale++;
+		}
+	}
+
+	/**
+	 * Reports the decimal point.
+	 */
+	void decimalPoint() {
+		real = true;
+	}
+
+	/**
+	 * Reports a digit after the decimal point.
+	 */
+	void fractionDigit(int ch) {
+		if (digits < MAX_DIGITS) {
+			significand = significand * 10 + (ch - '0');
+			if (significand != 0) {
+				digits++;
+			}
+			scale--;
+		}
+		else {
+			truncated = true;
+		}
+	}
+
+	/**
+	 * Reports the <code>e</code> or <code>E</code> that starts the exponent.
+	 */
+	void startExponent() {
+		real = true;
+	}
+
+	/**
+	 * Reports the minus sign in front of the exponent.
+	 */
+	void negateExponent() {
+		negativeExponent = true;
+	}
+
+	/**
+	 * Reports a digit of the exponent.
+	 */
+	void exponentDigit(int ch) {
+		if (exponent < MAX_EXPONENT) {
+			exponent = exponent * 10 + (ch - '0');
+		}
+	}
+
+	/**
+	 * Checks if the number has a fraction or an exponent.
+	 */
+	boolean isReal() {
+		return real;
+	}
+
+	/**
+	 * Checks if an integer fits into a <code>long</code>.
+	 */
+	boolean isLong() {
+		return !truncated && (digits < MAX_DIGITS || significand >= 0 || negative && significand == Long.MIN_VALUE);
+	}
+
+	/**
+	 * Retrieves the value of an integer that fits into a <code>long</code>.
+	 */
+	long longValue() {
+		return negative ? -significand : significand;
+	}
+
+	/**
+	 * Converts a real number to the nearest <code>double</code>.
+	 *
+	 * @param text is the number as it appeared in the input, which is only read when the
+	 *            significand and exponent are not enough.
+	 * @return the value, which is infinite if it does not fit into a <code>double</code>.
+	 */
+	double toDouble(CharSequence text) {
+		double d = truncated ? Double.NaN : FastDoubleParser.toDouble(significand, scale + (negativeExponent ? -exponent : exponent));
+		if (Double.isNaN(d)) {
+			return Double.parseDouble(text.toString());
+		}
+		return negative ? -d : d;
+	}
+
+	/**
+	 * Converts a number that fits neither into a <code>long</code> nor into a <code>double</code>.
+	 *
+	 * @param text is the number as it appeared in the input.
+	 * @return a {@link BigDecimal} for real numbers, a {@link BigInteger} otherwise.
+	 * @throws NumberFormatException if the exponent does not fit into a {@link BigDecimal}.
+	 */
+	Number toBig(CharSequence text) {
+		return real ? new BigDecimal(text.toString()) : new BigInteger(text.toString());
+	}
+
+	/**
+	 * Converts the number into a value.
+	 *
+	 * @param text is the number as it appeared in the input, which is only read when the
+	 *            significand and exponent are not enough.
+	 * @return the value.
+	 * @throws NumberFormatException if the exponent does not fit into a {@link BigDecimal}.
+	 */
+	JsonValue toValue(CharSequence text) {
+		if (real) {
+			double d = toDouble(text);
+			return Double.isInfinite(d) ? JsonNumber.of(toBig(text)) : JsonNumber.of(d);
+		}
+		else if (isLong()) {
+			return JsonNumber.of(longValue());
+		}
+		else {
+			return JsonNumber.of(toBig(text));
+		}
+	}
+
+	/**
+	 * Parses a number in standard JSON syntax.
+	 * <p>
+	 * This is for parsers outside of this package, which call it by reflection.
+	 *
+	 * @param chars contains the number.
+	 * @param offset is the offset of the first character of the number.
+	 * @param length is the number of characters.
+	 * @return the value.
+	 * @throws BrokenStreamException if the characters are not a number or out of range.
+	 */
+	static JsonValue parse(char[] chars, int offset, int length) throws BrokenStreamException {
+		NumberParser number = new NumberParser();
+		int end = offset + length;
+		int i = offset;
+		if (i < end && chars[i] == JsonSyntax.NUMBER_SIGN) {
+			number.negate();
+			i++;
+		}
+		if (!isDigit(chars, i, end)) {
+			throwUnexpected(chars, i, end, offset);
+		}
+		do {
+			number.integerDigit(chars[i++]);
+		} while (isDigit(chars, i, end));
+
+		if (i < end && chars[i] == JsonSyntax.NUMBER_DECIMAL) {
+			number.decimalPoint();
+			i++;
+			while (isDigit(chars, i, end)) {
+				number.fractionDigit(chars[i++]);
+			}
+		}
+
+		if (i < end && (chars[i] == JsonSyntax.NUMBER_ENGINEERING || chars[i] == JsonSyntax.NUMBER_ENGINEERING_UPPER)) {
+			number.startExponent();
+			i++;
+			if (i < end && (chars[i] == JsonSyntax.NUMBER_SIGN || chars[i] == JsonSyntax.NUMBER_EXPONENT_SIGN)) {
+				if (chars[i] == JsonSyntax.NUMBER_SIGN) {
+					number.negateExponent();
+				}
+				i++;
+			}
+			if (!isDigit(chars, i, end)) {
+				throwUnexpected(chars, i, end, offset);
+			}
+			do {
+				number.exponentDigit(chars[i++]);
+			} while (isDigit(chars, i, end));
+		}
+
+		if (i < end) {
+			throwUnexpected(chars, i, end, offset);
+		}
+
+		try {
+			return number.toValue(CharBuffer.wrap(chars, offset, length));
+		} catch (NumberFormatException e) {
+			throw new BrokenStreamException("Number out of range");
+		}
+	}
+
+	private static boolean isDigit(char[] chars, int i, int end) {
+		return i < end && chars[i] >= '0' && chars[i] <= '9';
+	}
+
+	private static void throwUnexpected(char[] chars, int i, int end, int offset) {
+		String found = i < end ? String.valueOf(chars[i]) : "end of number";
+		throw new BrokenStreamException("Expected digit found " + found + " at offset " + (i - offset));
+	}
+}
@@ -0,0 +1,257 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * The offsets of all structural bytes of UTF-8 encoded JSON.
+ * <p>
+ * The input is scanned in blocks of 64 bytes. Every block is read as eight <code>long</code>
+ * words and compared against the interesting bytes a word at a time, which yields one 64 bit
+ * mask per kind of byte with one bit per byte of the block. Escaped quotes and the contents of
+ * strings are then masked out with a few bitwise operations on these masks, without looking
+ * at single bytes again.
+ * <p>
+ * The index contains the offset of every bracket, colon and comma outside of strings, of every
+ * opening quote and of the first byte of every number or literal. It is built for a window of
+ * blocks at a time while it is read, so its memory does not grow with the input.
+ *
+ * @author michael@mictale.com
+ */
+final class StructuralIndex {
+
+	static final int BLOCK_SIZE = 64;
+
+	/**
+	 * The number of blocks scanned into the index at once.
+	 */
+	private static final int WINDOW = 256;
+
+	private static final long ONES = 0x0101010101010101L;
+
+	private static final long HIGH = 0x8080808080808080L;
+
+	private static final long LOW = 0x7f7f7f7f7f7f7f7fL;
+
+	/**
+	 * Gathers the high bit of every byte into the highest byte.
+	 */
+	private static final long GATHER = 0x0002040810204081L;
+
+	private final byte[] bytes;
+
+	private final int limit;
+
+	private final ByteBuffer words;
+
+	/**
+	 * The last partial block, padded with spaces.
+	 */
+	private final ByteBuffer tail = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * The offset of the next block to scan.
+	 */
+	private int block;
+
+	private int[] offsets = new int[WINDOW * 8];
+
+	private int count;
+
+	private int next;
+
+	/**
+	 * Specifies if the first byte of the next block is escaped.
+	 */
+	private boolean escaped;
+
+	/**
+	 * All bits set if the next block starts within a string.
+	 */
+	private long inString;
+
+	/**
+	 * Set if the byte before the next block ends a value.
+	 */
+	private long boundary = 1;
+
+	StructuralIndex(byte[] bytes, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > bytes.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		this.bytes = bytes;
+		this.block = offset;
+		this.limit = offset + length;
+		this.words = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Retrieves the next offset without moving past it.
+	 *
+	 * @return the offset or <code>-1</code> at the end of the input.
+	 * @throws BrokenStreamException if the input ends within a string.
+	 */
+	int peek() {
+		while (next == count) {
+			if (block >= limit) {
+				return -1;
+			}
+			scan();
+		}
+		return offsets[next];
+	}
+
+	/**
+	 * Retrieves the next offset and moves past it.
+	 *
+	 * @return the offset or <code>-1</code> at the end of the input.
+	 * @throws BrokenStreamException if the input ends within a string.
+	 */
+	int next() {
+		int offset = peek();
+		if (offset >= 0) {
+			next++;
+		}
+		return offset;
+	}
+
+	private void scan() {
+		count = 0;
+		next = 0;
+		int end = Math.min(limit, block + WINDOW * BLOCK_SIZE);
+		for (; block + BLOCK_SIZE <= end; block += BLOCK_SIZE) {
+			scan(words, block, block);
+		}
+		if (block < end) {
+			tail.clear();
+			tail.put(bytes, block, end - block);
+			while (tail.hasRemaining()) {
+				tail.put((byte) ' ');
+			}
+			scan(tail, 0, block);
+			block = end;
+		}
+		if (block >= limit && inString != 0) {
+			throw new BrokenStreamException("Expected '\"' found end of stream");
+		}
+	}
+
+	/**
+	 * Finds the bytes that are zero.
+	 *
+	 * @return a word with the high bit set in every zero byte.
+	 */
+	private static long zero(long x) {
+		return ~((x & LOW) + LOW | x | LOW);
+	}
+
+	private static long equal(long word, int b) {
+		return zero(word ^ b * ONES);
+	}
+
+	/**
+	 * Finds the bytes that are below a value, which must be at most <code>0x80</code>.
+	 */
+	private static long below(long word, int b) {
+		return ~((word & LOW) + (0x80 - b) * ONES | word) & HIGH;
+	}
+
+	/**
+	 * Turns the high bits of the bytes of a word into the eight low bits.
+	 */
+	private static long gather(long mask) {
+		return mask * GATHER >>> 56;
+	}
+
+	/**
+	 * Computes for every bit if an odd number of bits is set up to and including it.
+	 */
+	private static long prefixXor(long x) {
+		x ^= x << 1;
+		x ^= x << 2;
+		x ^= x << 4;
+		x ^= x << 8;
+		x ^= x << 16;
+		x ^= x << 32;
+		return x;
+	}
+
+	private void scan(ByteBuffer source, int index, int base) {
+		long quotes = 0;
+		long backslashes = 0;
+		long operators = 0;
+		long spaces = 0;
+		for (int i = 0; i < BLOCK_SIZE; i += 8) {
+			long word = source.getLong(index + i);
+			// Brackets and braces only differ in one bit
+			long brackets = word | 0x2020202020202020L;
+			quotes |= gather(equal(word, '"')) << i;
+			backslashes |= gather(equal(word, '\\')) << i;
+			operators |= gather(equal(brackets, '{') | equal(brackets, '}') | equal(word, ':') | equal(word, ',')) << i;
+			spaces |= gather(below(word, 0x21)) << i;
+		}
+
+		long escapes = 0;
+		if (backslashes != 0 || escaped) {
+			escapes = escapes(backslashes);
+		}
+		quotes &= ~escapes;
+
+		long strings = prefixXor(quotes) ^ inString;
+		inString = strings >> 63;
+
+		long ends = spaces | operators | quotes & ~strings;
+		long scalars = ~(spaces | operators | quotes | strings) & (ends << 1 | boundary);
+		boundary = ends >>> 63;
+
+		long structurals = operators & ~strings | quotes & strings | scalars;
+		if (count + Long.bitCount(structurals) > offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		while (structurals != 0) {
+			offsets[count++] = base + Long.numberOfTrailingZeros(structurals);
+			structurals &= structurals - 1;
+		}
+	}
+
+	/**
+	 * Finds the bytes that follow an unescaped backslash.
+	 */
+	private long escapes(long backslashes) {
+		long escapes = 0;
+		if (escaped) {
+			escapes = 1;
+			backslashes &= ~1L;
+			escaped = false;
+		}
+		while (backslashes != 0) {
+			int i = Long.numberOfTrailingZeros(backslashes);
+			if (i == 63) {
+				escaped = true;
+				break;
+			}
+			escapes |= 2L << i;
+			// The escaped byte cannot escape anything itself
+			backslashes &= ~(3L << i);
+		}
+		return escapes;
+	}
+}
@@ -0,0 +1,128 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import com.mictale.jsonite.JsonString;
+import com.mictale.jsonite.JsonValue;
+
+/**
+ * Canonical instances of member names.
+ * <p>
+ * Producers look up every member name in a symbol table before they create a value for it,
+ * so a large input that repeats the same names holds only one {@link JsonString} per name.
+ * A hit allocates nothing.
+ * <p>
+ * The table has a fixed number of slots and a name replaces whatever name was stored in its
+ * slot before, which keeps the table bounded no matter how many distinct names are seen.
+ * Names longer than {@link #MAX_NAME_LENGTH} are never stored.
+ * <p>
+ * A symbol table can be shared between producers and threads. Slots are read and written
+ * without locks, which is safe because a {@link JsonString} is immutable.
+ *
+ * @author michael@mictale.com
+ */
+public final class SymbolTable {
+
+	/**
+	 * The longest name that is stored in a table.
+	 */
+	public static final int MAX_NAME_LENGTH = 64;
+
+	private static final int DEFAULT_CAPACITY = 256;
+
+	private final JsonString[] symbols;
+
+	private final int mask;
+
+	/**
+	 * Creates a table with a small number of slots, as used by a single producer.
+	 */
+	public SymbolTable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a table with a specific number of slots.
+	 *
+	 * @param capacity is the number of slots, it is rounded up to a power of two.
+	 */
+	public SymbolTable(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.symbols = new JsonString[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Retrieves the number of slots.
+	 *
+	 * @return the capacity.
+	 */
+	public int capacity() {
+		return symbols.length;
+	}
+
+	/**
+	 * Retrieves the canonical instance for a name.
+	 *
+	 * @param chars holds the name.
+	 * @param length is the number of characters of the name.
+	 * @return the canonical name or a new instance if the name is too long to be stored.
+	 */
+	JsonString lookup(char[] chars, int length) {
+		if (length > MAX_NAME_LENGTH) {
+			return create(chars, length);
+		}
+
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + chars[i];
+		}
+
+		int slot = (hash ^ hash >>> 16) & mask;
+		JsonString symbol = symbols[slot];
+		if (symbol != null && symbol.hashCode() == hash && matches(symbol.stringValue(), chars, length)) {
+			return symbol;
+		}
+
+		symbol = create(chars, length);
+		symbols[slot] = symbol;
+		return symbol;
+	}
+
+	private static JsonString create(char[] chars, int length) {
+		return (JsonString) JsonValue.of(new String(chars, 0, length));
+	}
+
+	private static boolean matches(String s, char[] chars, int length) {
+		if (s.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (s.charAt(i) != chars[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
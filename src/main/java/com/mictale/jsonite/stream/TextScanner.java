@@ -0,0 +1,147 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Finds the ends of the runs of text that need no inspection character by character.
+ * <p>
+ * The tokenizers copy the plain parts of strings and skip blanks in bulk, and the consumers
+ * write the parts of strings that need no escapes in bulk. This class holds the loops that find
+ * where these runs end. Each method returns the index of the first character in the range that
+ * does not belong to the run, or the end of the range if all of them do.
+ * <p>
+ * The JAR contains another version of this class for Java 17 and later that compares many
+ * characters at once. This version is the fallback for older runtimes.
+ *
+ * @author michael@mictale.com
+ */
+final class TextScanner {
+
+	private TextScanner() {
+	}
+
+	/**
+	 * Finds the first quote, backslash or line feed.
+	 */
+	static int endOfPlain(char[] chars, int from, int to) {
+		int i = from;
+		while (i < to) {
+			char ch = chars[i];
+			if (ch == JsonSyntax.STRING_QUOTE || ch == JsonSyntax.STRING_ESCAPE || ch == '\n') {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the first quote, backslash, line feed or byte that is not ASCII.
+	 */
+	static int endOfAscii(byte[] bytes, int from, int to) {
+		int i = from;
+		while (i < to) {
+			byte b = bytes[i];
+			if (b < 0 || b == JsonSyntax.STRING_QUOTE || b == JsonSyntax.STRING_ESCAPE || b == '\n') {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the first quote, backslash, line feed or byte that is not ASCII in a buffer.
+	 */
+	static int endOfAscii(ByteBuffer buffer, int from, int to) {
+		int i = from;
+		while (i < to) {
+			byte b = buffer.get(i);
+			if (b < 0 || b == JsonSyntax.STRING_QUOTE || b == JsonSyntax.STRING_ESCAPE || b == '\n') {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the first character that is not a space, tab or carriage return.
+	 * <p>
+	 * Line feeds end the run because they move the position to the next line.
+	 */
+	static int endOfBlanks(char[] chars, int from, int to) {
+		int i = from;
+		while (i < to) {
+			char ch = chars[i];
+			if (ch != ' ' && ch != '\t' && ch != '\r') {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the first byte that is not a space, tab or carriage return.
+	 */
+	static int endOfBlanks(byte[] bytes, int from, int to) {
+		int i = from;
+		while (i < to) {
+			byte b = bytes[i];
+			if (b != ' ' && b != '\t' && b != '\r') {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the first byte that is not a space, tab or carriage return in a buffer.
+	 */
+	static int endOfBlanks(ByteBuffer buffer, int from, int to) {
+		int i = from;
+		while (i < to) {
+			byte b = buffer.get(i);
+			if (b != ' ' && b != '\t' && b != '\r') {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the first character that must be escaped in a string, which is a control character,
+	 * a quote, a backslash or a slash.
+	 */
+	static int indexOfEscape(char[] chars, int from, int to) {
+		int i = from;
+		while (i < to) {
+			char ch = chars[i];
+			if (ch < JsonStreamConsumer.ESCAPES.length && JsonStreamConsumer.ESCAPES[ch] != 0) {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+}
@@ -17,6 +17,7 @@
  */
 package com.mictale.jsonite.stream;
 
+import com.mictale.jsonite.JsonType;
 import com.mictale.jsonite.JsonValue;
 import com.mictale.jsonite.SourcePosition;
 
@@ -24,16 +25,37 @@ import com.mictale.jsonite.SourcePosition;
  * A single element provided by a {@link Producer} and consumed by a
  * {@link Consumer}. A token is a combination of a {@link TokenType}
  * and a {@link JsonValue}.
+ * <p>
+ * Producers that are asked to reuse tokens hand the same instance to
+ * {@link Consumer#append(Token)} for every event and change its contents
+ * in between. Consumers must not keep a reference to a token after
+ * {@link Consumer#append(Token)} returns. The primitive accessors such as
+ * {@link #longValue()} or {@link #textValue()} read the content of a reused
+ * token without creating a {@link JsonValue}.
  * 
  * @author michael@mictale.com
  */
 public final class Token {
 	
-	private final TokenType tokenType;
+	private TokenType tokenType;
 	
-	private final JsonValue value;
+	private JsonValue value;
 
-	private final SourcePosition position;
+	private SourcePosition position;
+
+	/**
+	 * The primitive source position that {@link #position} is created from on demand.
+	 */
+	private int offset = -1;
+
+	private int line = -1;
+
+	private int column = -1;
+
+	/**
+	 * The tokenizer this instance is a view of or <code>null</code>.
+	 */
+	private final JsonTokenizer source;
 
     public Token(TokenType nodeType, JsonValue value) {
         this(nodeType, value, null);
@@ -43,6 +65,43 @@ public final class Token {
 		this.tokenType = nodeType;
 		this.value = value;
 		this.position = position;
+		this.source = null;
+	}
+
+	/**
+	 * Initializes a token that creates its {@link SourcePosition} only when it is requested.
+	 */
+	Token(TokenType nodeType, JsonValue value, int offset, int line, int column) {
+		this(nodeType, value, null);
+		this.offset = offset;
+		this.line = line;
+		this.column = column;
+	}
+
+	/**
+	 * Initializes a token that is reused by calling {@link #set(TokenType, JsonValue, SourcePosition)}.
+	 */
+	Token() {
+		this(TokenType.UNDEFINED, null, null);
+	}
+
+	/**
+	 * Initializes a token that always reflects the current token of a tokenizer.
+	 * 
+	 * @param source is the tokenizer to read from.
+	 */
+	Token(JsonTokenizer source) {
+		this.source = source;
+	}
+
+	Token set(TokenType nodeType, JsonValue value, SourcePosition position) {
+		this.tokenType = nodeType;
+		this.value = value;
+		this.position = position;
+		this.offset = -1;
+		this.line = -1;
+		this.column = -1;
+		return this;
 	}
 
 	/**
@@ -51,7 +110,7 @@ public final class Token {
 	 * @return the token type.
 	 */
 	public TokenType getTokenType() {
-		return tokenType;
+		return source == null ? tokenType : source.getTokenType();
 	}
 
 	/**
@@ -61,7 +120,103 @@ public final class Token {
 	 * @return the value of this token.
 	 */
 	public JsonValue getValue() {
-		return value;
+		return source == null ? value : source.getValue();
+	}
+
+	/**
+	 * Retrieves the type of the value without creating the value.
+	 * 
+	 * @return the type of the value or <code>null</code> if the value is not defined.
+	 */
+	public JsonType getValueType() {
+		if (source != null) {
+			switch (source.getKind()) {
+			case STRING:
+				return JsonType.STRING;
+			case LONG:
+			case DOUBLE:
+			case BIG:
+				return JsonType.NUMBER;
+			case CONSTANT:
+				return source.getConstant().getType();
+			default:
+				return null;
+			}
+		}
+
+		return value == null ? null : value.getType();
+	}
+
+	/**
+	 * Retrieves the value of a number token as a <code>long</code>.
+	 * 
+	 * @return the number value.
+	 * @see JsonValue#longValue()
+	 */
+	public long longValue() {
+		if (source != null) {
+			switch (source.getKind()) {
+			case LONG:
+				return source.getLong();
+			case DOUBLE:
+				return (long) source.getDouble();
+			default:
+				break;
+			}
+		}
+
+		return getValue().longValue();
+	}
+
+	/**
+	 * Retrieves the value of a number token as a <code>double</code>.
+	 * 
+	 * @return the number value.
+	 * @see JsonValue#doubleValue()
+	 */
+	public double doubleValue() {
+		if (source != null) {
+			switch (source.getKind()) {
+			case LONG:
+				return source.getLong();
+			case DOUBLE:
+				return source.getDouble();
+			default:
+				break;
+			}
+		}
+
+		return getValue().doubleValue();
+	}
+
+	/**
+	 * Retrieves the value of a boolean token.
+	 * 
+	 * @return the boolean value.
+	 * @see JsonValue#booleanValue()
+	 */
+	public boolean booleanValue() {
+		if (source != null && source.getKind() == JsonTokenizer.Kind.CONSTANT) {
+			return source.getConstant().booleanValue();
+		}
+
+		return getValue().booleanValue();
+	}
+
+	/**
+	 * Retrieves the text of a string or member name token.
+	 * <p>
+	 * The returned sequence of a reused token is only valid until the next token is produced.
+	 * 
+	 * @return the text.
+	 * @see JsonValue#stringValue()
+	 */
+	public CharSequence textValue() {
+		if (source != null && source.getKind() == JsonTokenizer.Kind.STRING) {
+			return source.getText();
+		}
+
+		return getValue().stringValue();
 	}
 
 	/**
@@ -70,11 +225,61 @@ public final class Token {
 	 * @return the source position.
 	 */
 	public SourcePosition getPosition() {
+		if (source != null) {
+			return source.getPosition();
+		}
+
+		if (position == null && line >= 0) {
+			position = new SourcePosition(offset, line, column);
+		}
+
 		return position;
 	}
+
+	/**
+	 * Retrieves the line of the source position without creating a {@link SourcePosition}.
+	 * 
+	 * @return the line or <code>-1</code> if the position is not known.
+	 * @see SourcePosition#getLine()
+	 */
+	public int getLine() {
+		if (source != null) {
+			return source.getTokenLine();
+		}
+
+		return position == null ? line : position.getLine();
+	}
+
+	/**
+	 * Retrieves the column of the source position without creating a {@link SourcePosition}.
+	 * 
+	 * @return the column or <code>-1</code> if the position is not known.
+	 * @see SourcePosition#getColumn()
+	 */
+	public int getColumn() {
+		if (source != null) {
+			return source.getTokenColumn();
+		}
+
+		return position == null ? column : position.getColumn();
+	}
+
+	/**
+	 * Retrieves the character offset of the source position without creating a {@link SourcePosition}.
+	 * 
+	 * @return the offset or <code>-1</code> if the position is not known.
+	 * @see SourcePosition#getPosition()
+	 */
+	public int getOffset() {
+		if (source != null) {
+			return source.getTokenPosition();
+		}
+
+		return position == null ? offset : position.getPosition();
+	}
 	
 	@Override
 	public String toString() {
-		return tokenType.toString() + ":" + value;
+		return getTokenType().toString() + ":" + getValue();
 	}
 }
@@ -1,8 +1,14 @@
 package com.mictale.jsonite.stream;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import com.mictale.jsonite.JsonValue;
 
@@ -41,6 +47,37 @@ public final class Transformation {
 		copy(consumer, new JsonStreamProducer(producer));
 	}
 	
+	/**
+	 * Copies the tokens from the specified UTF-8 encoded stream to the specified {@link Consumer}.
+	 * 
+	 * This implementation simply wraps the specified {@link InputStream} into a {@link Producer}
+	 * and calls {@link #copy(Consumer, Producer)}.
+	 * 
+	 * @param consumer is the consumer of the operation.
+	 * @param producer is the producer of the operation.
+	 * @throws BrokenStreamException
+	 */
+	public static void copy(Consumer consumer, InputStream producer) throws BrokenStreamException {
+		copy(consumer, new JsonUtf8StreamProducer(producer));
+	}
+
+	/**
+	 * Copies the tokens from the specified UTF-8 encoded file to the specified {@link Consumer}.
+	 * 
+	 * The file is memory mapped and parsed by a {@link JsonUtf8StreamProducer}.
+	 * 
+	 * @param consumer is the consumer of the operation.
+	 * @param producer is the file to parse.
+	 * @throws BrokenStreamException if the file cannot be read or contains illegal data.
+	 */
+	public static void copy(Consumer consumer, Path producer) throws BrokenStreamException {
+		try (FileChannel channel = FileChannel.open(producer, StandardOpenOption.READ)) {
+			copy(consumer, new JsonUtf8StreamProducer(channel));
+		} catch (IOException e) {
+			throw new BrokenStreamException("Failed to read " + producer, e);
+		}
+	}
+
 	/**
 	 * Parses the specified JSON string to the specified {@link Consumer}.
 	 * 
@@ -87,6 +124,33 @@ public final class Transformation {
         copy(new JsonStreamConsumer(consumer), new JsonValueProducer(value));
     }
 
+    /**
+     * Copies the specified {@link Producer} to the specified {@link OutputStream} as UTF-8.
+     *
+     * This implementation simply wraps the specified {@link OutputStream} into a
+     * {@link JsonUtf8StreamConsumer} and calls {@link #copy(Consumer, Producer)}.
+     *
+     * @param consumer is the consumer of this operation.
+     * @param producer is the producer of the operation.
+     * @throws BrokenStreamException
+     */
+    public static void copy(OutputStream consumer, Producer producer) throws BrokenStreamException {
+        JsonUtf8StreamConsumer c = new JsonUtf8StreamConsumer(consumer);
+        copy(c, producer);
+        c.flush();
+    }
+
+    /**
+     * Copies the specified {@link JsonValue} to the specified {@link OutputStream} as UTF-8.
+     *
+     * @param consumer is the consumer of this operation.
+     * @param value is the JSON value to copy.
+     * @throws BrokenStreamException
+     */
+    public static void copy(OutputStream consumer, JsonValue value) throws BrokenStreamException {
+        copy(consumer, new JsonValueProducer(value));
+    }
+
     public static void copy(Consumer consumer, JsonValue value) throws BrokenStreamException {
         copy(consumer, new JsonValueProducer(value));
     }
@@ -149,4 +213,39 @@ public final class Transformation {
 		copy(c, str);
 		return c.getValue();
 	}
+
+	/**
+	 * Parses UTF-8 encoded JSON content into a {@link JsonValue}.
+	 * 
+	 * @param in contains the JSON content.
+	 * @return the {@link JsonValue}.
+	 */
+	public static JsonValue parse(InputStream in) {
+		JsonValueConsumer c = new JsonValueConsumer();
+		copy(c, in);
+		return c.getValue();
+	}
+
+	/**
+	 * Parses UTF-8 encoded JSON content into a {@link JsonValue}.
+	 * 
+	 * @param bytes contains the JSON content.
+	 * @return the {@link JsonValue}.
+	 */
+	public static JsonValue parse(byte[] bytes) {
+		return asValue(new JsonUtf8StreamProducer(bytes));
+	}
+
+	/**
+	 * Parses a UTF-8 encoded JSON file into a {@link JsonValue}.
+	 * 
+	 * @param path is the file that contains the JSON content.
+	 * @return the {@link JsonValue}.
+	 * @see #copy(Consumer, Path)
+	 */
+	public static JsonValue parse(Path path) {
+		JsonValueConsumer c = new JsonValueConsumer();
+		copy(c, path);
+		return c.getValue();
+	}
 }
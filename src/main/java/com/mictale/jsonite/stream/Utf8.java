@@ -0,0 +1,92 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+/**
+ * Checks the structure of UTF-8 sequences for the parsers that decode bytes.
+ * <p>
+ * A lead byte announces one to three continuation bytes, each of which carries six bits of the
+ * code point. Sequences that are overlong, encode a surrogate or exceed
+ * {@link Character#MAX_CODE_POINT} are malformed.
+ *
+ * @author michael@mictale.com
+ */
+final class Utf8 {
+
+	private Utf8() {
+	}
+
+	/**
+	 * Finds the number of continuation bytes that follow a lead byte.
+	 *
+	 * @param lead is the unsigned value of the lead byte.
+	 * @return one to three or <code>-1</code> if the byte does not start a well-formed sequence.
+	 */
+	static int continuations(int lead) {
+		if (lead >= 0xf5) {
+			return -1;
+		}
+		else if (lead >= 0xf0) {
+			return 3;
+		}
+		else if (lead >= 0xe0) {
+			return 2;
+		}
+		else if (lead >= 0xc2) {
+			return 1;
+		}
+		else {
+			return -1;
+		}
+	}
+
+	/**
+	 * Extracts the bits of the code point from a lead byte.
+	 *
+	 * @param lead is the unsigned value of the lead byte.
+	 * @param continuations is the number of continuation bytes that follow.
+	 * @return the high bits of the code point.
+	 */
+	static int leadBits(int lead, int continuations) {
+		return lead & 0x3f >> continuations;
+	}
+
+	static boolean isContinuation(int b) {
+		return (b & 0xc0) == 0x80;
+	}
+
+	/**
+	 * Checks a decoded code point for the length of its sequence.
+	 *
+	 * @param codePoint is the decoded code point.
+	 * @param continuations is the number of continuation bytes it was decoded from.
+	 * @return <code>false</code> if the sequence is overlong, encodes a surrogate or a code point
+	 *         beyond {@link Character#MAX_CODE_POINT}.
+	 */
+	static boolean isValid(int codePoint, int continuations) {
+		switch (continuations) {
+		case 2:
+			return codePoint >= 0x800 && !Character.isSurrogate((char) codePoint);
+		case 3:
+			return codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT && codePoint <= Character.MAX_CODE_POINT;
+		default:
+			// Lead bytes of overlong two byte sequences are rejected by continuations()
+			return true;
+		}
+	}
+}
@@ -0,0 +1,361 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link JsonTokenizer} that scans UTF-8 encoded bytes.
+ * <p>
+ * Positions count bytes while columns count UTF-16 characters.
+ *
+ * @author michael@mictale.com
+ */
+final class Utf8Tokenizer extends JsonTokenizer {
+
+	static final int DEFAULT_MAP_SIZE = 1 << 30;
+
+	/**
+	 * The stream to read blocks from or <code>null</code>.
+	 */
+	private final InputStream in;
+
+	/**
+	 * The file to map into {@link #source} or <code>null</code>.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The largest region of {@link #channel} to map at once.
+	 */
+	private final int mapSize;
+
+	/**
+	 * The offset of the next region of {@link #channel} to map.
+	 */
+	private long mapped;
+
+	/**
+	 * The buffer that is scanned in place if it has no accessible array or <code>null</code>.
+	 */
+	private ByteBuffer source;
+
+	/**
+	 * The bytes that are scanned if there is no {@link #source}.
+	 */
+	private final byte[] bytes;
+
+	private int index;
+
+	private int limit;
+
+	Utf8Tokenizer(InputStream in, int bufferSize) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Illegal buffer size: " + bufferSize);
+		}
+		this.in = in;
+		this.channel = null;
+		this.mapSize = 0;
+		this.bytes = new byte[bufferSize];
+	}
+
+	Utf8Tokenizer(byte[] bytes, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > bytes.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		this.in = null;
+		this.channel = null;
+		this.mapSize = 0;
+		this.bytes = bytes;
+		this.index = offset;
+		this.limit = offset + length;
+	}
+
+	Utf8Tokenizer(ByteBuffer buffer) {
+		this.in = null;
+		this.channel = null;
+		this.mapSize = 0;
+		if (buffer.hasArray()) {
+			this.bytes = buffer.array();
+			this.index = buffer.arrayOffset() + buffer.position();
+			this.limit = buffer.arrayOffset() + buffer.limit();
+		}
+		else {
+			this.source = buffer.duplicate();
+			this.bytes = null;
+			this.index = buffer.position();
+			this.limit = buffer.limit();
+		}
+	}
+
+	Utf8Tokenizer(FileChannel channel, int mapSize) {
+		this.in = null;
+		this.channel = channel;
+		this.mapSize = mapSize;
+		this.bytes = null;
+	}
+
+	/**
+	 * Advances the position. Columns count UTF-16 characters, so continuation bytes do not
+	 * count while four byte sequences count twice.
+	 */
+	private void nextPosition() {
+		if (lastChar == '\n') {
+			line++;
+			column = 0;
+		}
+		else if (!Utf8.isContinuation(lastChar)) {
+			column += lastChar >= 0xf0 ? 2 : 1;
+		}
+
+		position++;
+	}
+
+	/**
+	 * Refills the buffer with the next block of bytes or maps the next region of the file.
+	 *
+	 * @return <code>false</code> if there are no more bytes.
+	 */
+	private boolean fill() throws IOException {
+		int n;
+		if (in != null) {
+			do {
+				n = in.read(bytes, 0, bytes.length);
+			} while (n == 0);
+		}
+		else if (map()) {
+			n = source.limit();
+		}
+		else {
+			n = EOS;
+		}
+
+		if (n < 0) {
+			return false;
+		}
+
+		index = 0;
+		limit = n;
+		return true;
+	}
+
+	/**
+	 * Maps the next region of the file into {@link #source}.
+	 *
+	 * @return <code>false</code> if the whole file has been mapped.
+	 */
+	private boolean map() throws IOException {
+		if (channel == null) {
+			return false;
+		}
+
+		long size = channel.size();
+		if (mapped >= size) {
+			return false;
+		}
+
+		long length = Math.min(size - mapped, mapSize);
+		source = channel.map(FileChannel.MapMode.READ_ONLY, mapped, length);
+		mapped += length;
+		return true;
+	}
+
+	private int read() throws IOException {
+		if (index == limit && !fill()) {
+			return EOS;
+		}
+
+		return bytes != null ? bytes[index++] & 0xff : source.get(index++) & 0xff;
+	}
+
+	@Override
+	protected int skipWs() throws IOException {
+		if (lastChar != EOS) {
+			lastChar = read();
+			if (trackPositions) {
+				nextPosition();
+			}
+			while (lastChar == ' ' || lastChar == '\r' || lastChar == '\n' || lastChar == '\t') {
+				skipBlanks();
+				lastChar = read();
+				if (trackPositions) {
+					nextPosition();
+				}
+			}
+		}
+
+		return lastChar;
+	}
+
+	/**
+	 * Skips the run of buffered blanks that indent the next line in one go.
+	 */
+	private void skipBlanks() {
+		int end = bytes != null ? TextScanner.endOfBlanks(bytes, index, limit) : TextScanner.endOfBlanks(source, index, limit);
+		if (trackPositions) {
+			column += end - index;
+			position += end - index;
+		}
+		index = end;
+	}
+
+	@Override
+	protected int skip() throws IOException {
+		if (lastChar != EOS) {
+			lastChar = read();
+			if (trackPositions) {
+				nextPosition();
+			}
+		}
+
+		return lastChar;
+	}
+
+	/**
+	 * Copies the run of buffered ASCII bytes that need no further inspection in one go.
+	 */
+	private void appendAscii() {
+		int start = index;
+		if (bytes != null) {
+			index = TextScanner.endOfAscii(bytes, index, limit);
+		}
+		else {
+			index = TextScanner.endOfAscii(source, index, limit);
+		}
+
+		int n = index - start;
+		if (n > 0) {
+			ensureText(textLength + n);
+			if (bytes != null) {
+				for (int i = start; i < index; i++) {
+					text[textLength++] = (char) bytes[i];
+				}
+			}
+			else {
+				for (int i = start; i < index; i++) {
+					text[textLength++] = (char) source.get(i);
+				}
+			}
+			lastChar = text[textLength - 1];
+			if (trackPositions) {
+				column += n;
+				position += n;
+			}
+		}
+	}
+
+	private void throwMalformed() {
+		if (trackPositions) {
+			throw new BrokenStreamException("Malformed UTF-8 input at line " + line + ", position " + column);
+		}
+		else {
+			throw new BrokenStreamException("Malformed UTF-8 input");
+		}
+	}
+
+	/**
+	 * Decodes the multi-byte sequence that starts with {@link #lastChar}.
+	 */
+	private void decode() throws IOException {
+		int lead = lastChar;
+		int extra = Utf8.continuations(lead);
+		if (extra < 0) {
+			throwMalformed();
+		}
+
+		int codePoint = Utf8.leadBits(lead, extra);
+		for (int i = 0; i < extra; i++) {
+			int b = skip();
+			if (!Utf8.isContinuation(b)) {
+				throwMalformed();
+			}
+			codePoint = codePoint << 6 | (b & 0x3f);
+		}
+
+		if (!Utf8.isValid(codePoint, extra)) {
+			throwMalformed();
+		}
+
+		if (extra == 3) {
+			put(Character.highSurrogate(codePoint));
+			put(Character.lowSurrogate(codePoint));
+		}
+		else {
+			put((char) codePoint);
+		}
+	}
+
+	@Override
+	protected void parseString() throws IOException {
+		while (true) {
+			appendAscii();
+			skip();
+
+			switch (lastChar) {
+			default:
+				if (lastChar < 0x80) {
+					put((char) lastChar);
+				}
+				else {
+					decode();
+				}
+				break;
+			case EOS:
+				throwUnexpected("'\"'", "end of stream");
+				break;
+			case JsonSyntax.STRING_QUOTE:
+				skipWs();
+				return;
+			case JsonSyntax.STRING_ESCAPE:
+				skipWs();
+				switch (lastChar) {
+				case JsonSyntax.STRING_QUOTE:
+					put(JsonSyntax.STRING_QUOTE);
+					break;
+				case JsonSyntax.STRING_ESCAPE:
+					put(JsonSyntax.STRING_ESCAPE);
+					break;
+				case JsonSyntax.ESCAPE_SOLIDUS:
+					put(JsonSyntax.ESCAPE_SOLIDUS);
+					break;
+				case JsonSyntax.ESCAPE_BACKSPACE:
+					put('\b');
+					break;
+				case JsonSyntax.ESCAPE_FEED:
+					put('\f');
+					break;
+				case JsonSyntax.ESCAPE_NEWLINE:
+					put('\n');
+					break;
+				case JsonSyntax.ESCAPE_RETURN:
+					put('\r');
+					break;
+				case JsonSyntax.ESCAPE_TAB:
+					put('\t');
+					break;
+				case 'u':
+					parseUnicodeEscape();
+					break;
+				}
+			}
+		}
+	}
+}
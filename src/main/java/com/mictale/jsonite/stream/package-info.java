@@ -15,10 +15,23 @@
  * <p>
  * This package provides common implementations for both {@link com.mictale.jsonite.stream.Producer}s
  * and {@link com.mictale.jsonite.stream.Consumer}s that can be used
- * out of the box. These are {@link com.mictale.jsonite.stream.JsonStreamConsumer} and
+ * out of the box. These are {@link com.mictale.jsonite.stream.JsonStreamConsumer},
+ * {@link com.mictale.jsonite.stream.JsonUtf8StreamConsumer} and
  * {@link com.mictale.jsonite.stream.JsonValueConsumer} to consume events and
- * {@link com.mictale.jsonite.stream.JsonStreamProducer} and {@link com.mictale.jsonite.stream.JsonValueProducer}
- * to produce events.
+ * {@link com.mictale.jsonite.stream.JsonStreamProducer}, {@link com.mictale.jsonite.stream.JsonUtf8StreamProducer}
+ * and {@link com.mictale.jsonite.stream.JsonValueProducer} to produce events. For large documents
+ * that are already in memory, {@link com.mictale.jsonite.stream.JsonIndexProducer} finds the
+ * structure of whole blocks of bytes at once.
+ * <p>
+ * To pull tokens one at a time instead of having them pushed to a
+ * {@link com.mictale.jsonite.stream.Consumer}, use a {@link com.mictale.jsonite.stream.JsonReader}.
+ * Input that arrives in chunks, for example from a non-blocking channel, is fed to a
+ * {@link com.mictale.jsonite.stream.JsonPushParser} as it arrives. Newline delimited JSON is read
+ * one document at a time by a {@link com.mictale.jsonite.stream.NdjsonReader} and written by the
+ * stream consumers with {@link com.mictale.jsonite.stream.JsonStreamConsumer#setLineDelimited(boolean)}.
+ * <p>
+ * Parsers return canonical member names from a {@link com.mictale.jsonite.stream.SymbolTable},
+ * which long running applications may share between parsers.
  * <p>
  * 
  * <h2>Stream Events</h2>
@@ -0,0 +1,212 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Finds the ends of the runs of text that need no inspection character by character.
+ * <p>
+ * This is the version of the class for Java 17 and later. If the application runs with
+ * <code>--add-modules jdk.incubator.vector</code>, whole vectors of characters are compared
+ * at once by {@link VectorScanner}. Otherwise bytes are compared eight at a time in a
+ * <code>long</code> word and characters one by one. Bytes in a {@link ByteBuffer} are always
+ * compared a word at a time. The remainder of a range that is too short for a vector or a word is
+ * always scanned one by one.
+ *
+ * @author michael@mictale.com
+ */
+final class TextScanner {
+
+	/**
+	 * Specifies if the vector API is available, the class is not even loaded otherwise.
+	 */
+	private static final boolean VECTORS = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private static final VarHandle BUFFER_LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private static final long ONES = 0x0101010101010101L;
+
+	private static final long HIGH = 0x8080808080808080L;
+
+	private static final long LOW = 0x7f7f7f7f7f7f7f7fL;
+
+	private TextScanner() {
+	}
+
+	/**
+	 * Finds the bytes of a word that are equal to a value.
+	 *
+	 * @return a word with the high bit set in every matching byte.
+	 */
+	private static long equal(long word, int b) {
+		long x = word ^ b * ONES;
+		return ~((x & LOW) + LOW | x | LOW);
+	}
+
+	/**
+	 * Finds the first quote, backslash or line feed.
+	 */
+	static int endOfPlain(char[] chars, int from, int to) {
+		int i = VECTORS ? VectorScanner.endOfPlain(chars, from, to) : from;
+		while (i < to) {
+			char ch = chars[i];
+			if (ch == JsonSyntax.STRING_QUOTE || ch == JsonSyntax.STRING_ESCAPE || ch == '\n') {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the first quote, backslash, line feed or byte that is not ASCII.
+	 */
+	static int endOfAscii(byte[] bytes, int from, int to) {
+		int i = from;
+		if (VECTORS) {
+			i = VectorScanner.endOfAscii(bytes, from, to);
+		}
+		else {
+			for (; i + 8 <= to; i += 8) {
+				long word = (long) LONGS.get(bytes, i);
+				long mask = (word | equal(word, JsonSyntax.STRING_QUOTE) | equal(word, JsonSyntax.STRING_ESCAPE) | equal(word, '\n')) & HIGH;
+				if (mask != 0) {
+					return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+				}
+			}
+		}
+		while (i < to) {
+			byte b = bytes[i];
+			if (b < 0 || b == JsonSyntax.STRING_QUOTE || b == JsonSyntax.STRING_ESCAPE || b == '\n') {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the first quote, backslash, line feed or byte that is not ASCII in a buffer.
+	 */
+	static int endOfAscii(ByteBuffer buffer, int from, int to) {
+		int i = from;
+		for (; i + 8 <= to; i += 8) {
+			long word = (long) BUFFER_LONGS.get(buffer, i);
+			long mask = (word | equal(word, JsonSyntax.STRING_QUOTE) | equal(word, JsonSyntax.STRING_ESCAPE) | equal(word, '\n')) & HIGH;
+			if (mask != 0) {
+				return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+			}
+		}
+		while (i < to) {
+			byte b = buffer.get(i);
+			if (b < 0 || b == JsonSyntax.STRING_QUOTE || b == JsonSyntax.STRING_ESCAPE || b == '\n') {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the first character that is not a space, tab or carriage return.
+	 * <p>
+	 * Line feeds end the run because they move the position to the next line.
+	 */
+	static int endOfBlanks(char[] chars, int from, int to) {
+		int i = VECTORS ? VectorScanner.endOfBlanks(chars, from, to) : from;
+		while (i < to) {
+			char ch = chars[i];
+			if (ch != ' ' && ch != '\t' && ch != '\r') {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the first byte that is not a space, tab or carriage return.
+	 */
+	static int endOfBlanks(byte[] bytes, int from, int to) {
+		int i = from;
+		if (VECTORS) {
+			i = VectorScanner.endOfBlanks(bytes, from, to);
+		}
+		else {
+			for (; i + 8 <= to; i += 8) {
+				long word = (long) LONGS.get(bytes, i);
+				long mask = ~(equal(word, ' ') | equal(word, '\t') | equal(word, '\r')) & HIGH;
+				if (mask != 0) {
+					return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+				}
+			}
+		}
+		while (i < to) {
+			byte b = bytes[i];
+			if (b != ' ' && b != '\t' && b != '\r') {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the first byte that is not a space, tab or carriage return in a buffer.
+	 */
+	static int endOfBlanks(ByteBuffer buffer, int from, int to) {
+		int i = from;
+		for (; i + 8 <= to; i += 8) {
+			long word = (long) BUFFER_LONGS.get(buffer, i);
+			long mask = ~(equal(word, ' ') | equal(word, '\t') | equal(word, '\r')) & HIGH;
+			if (mask != 0) {
+				return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+			}
+		}
+		while (i < to) {
+			byte b = buffer.get(i);
+			if (b != ' ' && b != '\t' && b != '\r') {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the first character that must be escaped in a string, which is a control character,
+	 * a quote, a backslash or a slash.
+	 */
+	static int indexOfEscape(char[] chars, int from, int to) {
+		int i = VECTORS ? VectorScanner.indexOfEscape(chars, from, to) : from;
+		while (i < to) {
+			char ch = chars[i];
+			if (ch < JsonStreamConsumer.ESCAPES.length && JsonStreamConsumer.ESCAPES[ch] != 0) {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+}
@@ -0,0 +1,117 @@
+/* Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mictale.jsonite.stream;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The loops of {@link TextScanner} over whole vectors.
+ * <p>
+ * Characters are loaded as <code>short</code> lanes, so comparisons with control characters
+ * must be unsigned. Every method returns the index of the first character that ends the run,
+ * or the index where the part of the range begins that is too short for another vector.
+ *
+ * @author michael@mictale.com
+ */
+final class VectorScanner {
+
+	private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+
+	private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+
+	private VectorScanner() {
+	}
+
+	static int endOfPlain(char[] chars, int from, int to) {
+		int i = from;
+		for (int bound = to - CHARS.length(); i <= bound; i += CHARS.length()) {
+			ShortVector v = ShortVector.fromCharArray(CHARS, chars, i);
+			VectorMask<Short> m = v.eq((short) JsonSyntax.STRING_QUOTE)
+					.or(v.eq((short) JsonSyntax.STRING_ESCAPE))
+					.or(v.eq((short) '\n'));
+			if (m.anyTrue()) {
+				return i + m.firstTrue();
+			}
+		}
+		return i;
+	}
+
+	static int endOfAscii(byte[] bytes, int from, int to) {
+		int i = from;
+		for (int bound = to - BYTES.length(); i <= bound; i += BYTES.length()) {
+			ByteVector v = ByteVector.fromArray(BYTES, bytes, i);
+			VectorMask<Byte> m = v.lt((byte) 0)
+					.or(v.eq((byte) JsonSyntax.STRING_QUOTE))
+					.or(v.eq((byte) JsonSyntax.STRING_ESCAPE))
+					.or(v.eq((byte) '\n'));
+			if (m.anyTrue()) {
+				return i + m.firstTrue();
+			}
+		}
+		return i;
+	}
+
+	static int endOfBlanks(char[] chars, int from, int to) {
+		int i = from;
+		for (int bound = to - CHARS.length(); i <= bound; i += CHARS.length()) {
+			ShortVector v = ShortVector.fromCharArray(CHARS, chars, i);
+			VectorMask<Short> m = v.eq((short) ' ')
+					.or(v.eq((short) '\t'))
+					.or(v.eq((short) '\r'))
+					.not();
+			if (m.anyTrue()) {
+				return i + m.firstTrue();
+			}
+		}
+		return i;
+	}
+
+	static int endOfBlanks(byte[] bytes, int from, int to) {
+		int i = from;
+		for (int bound = to - BYTES.length(); i <= bound; i += BYTES.length()) {
+			ByteVector v = ByteVector.fromArray(BYTES, bytes, i);
+			VectorMask<Byte> m = v.eq((byte) ' ')
+					.or(v.eq((byte) '\t'))
+					.or(v.eq((byte) '\r'))
+					.not();
+			if (m.anyTrue()) {
+				return i + m.firstTrue();
+			}
+		}
+		return i;
+	}
+
+	static int indexOfEscape(char[] chars, int from, int to) {
+		int i = from;
+		for (int bound = to - CHARS.length(); i <= bound; i += CHARS.length()) {
+			ShortVector v = ShortVector.fromCharArray(CHARS, chars, i);
+			VectorMask<Short> m = v.compare(VectorOperators.UNSIGNED_LT, (short) 0x20)
+					.or(v.eq((short) JsonSyntax.STRING_QUOTE))
+					.or(v.eq((short) JsonSyntax.STRING_ESCAPE))
+					.or(v.eq((short) JsonSyntax.ESCAPE_SOLIDUS));
+			if (m.anyTrue()) {
+				return i + m.firstTrue();
+			}
+		}
+		return i;
+	}
+}
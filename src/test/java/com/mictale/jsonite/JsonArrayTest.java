@@ -0,0 +1,268 @@
+package com.mictale.jsonite;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class JsonArrayTest {
+
+    private static final double EPSILON = 0;
+
+    @Test
+    public void testLongs() {
+        JsonArray arr = new JsonArray();
+        for (int i = 0; i < 100; i++) {
+            arr.add(JsonNumber.of(i * 1000000000000L));
+        }
+        assertThat(arr.size(), is(100));
+        assertThat(arr.get(3), is(JsonNumber.of(3000000000000L)));
+        assertThat(arr.get(0), is(JsonNumber.ZERO));
+        assertThat(arr.getLong(99), is(99000000000000L));
+        assertThat(arr.toLongArray()[42], is(42000000000000L));
+        assertThat(arr.toDoubleArray()[42], is(42e12));
+        assertThat(arr.toString(), startsWith("[0,1000000000000,"));
+    }
+
+    @Test
+    public void testDoubles() {
+        JsonArray arr = JsonArray.of(1, 2.5, -3);
+        assertThat(arr.get(0), is(JsonNumber.ONE));
+        assertThat(arr.get(1), is(JsonNumber.of(2.5)));
+        assertThat(arr.get(2), is(JsonNumber.of(-3)));
+        assertThat(arr.toDoubleArray(), is(new double[] {1, 2.5, -3}));
+        assertThat(arr.toLongArray(), is(new long[] {1, 2, -3}));
+        assertThat(arr.toString(), is("[1,2.5,-3]"));
+    }
+
+    @Test
+    public void testLargeLongsAreNotRounded() {
+        long large = (1L << 53) + 1;
+        JsonArray arr = JsonArray.of(large, 0.5);
+        assertThat(arr.get(0), is(JsonNumber.of(large)));
+        assertThat(arr.getLong(0), is(large));
+
+        arr = JsonArray.of(0.5, large, Long.MIN_VALUE);
+        assertThat(arr.get(1), is(JsonNumber.of(large)));
+        assertThat(arr.get(2), is(JsonNumber.of(Long.MIN_VALUE)));
+    }
+
+    @Test
+    public void testMixed() {
+        JsonArray arr = JsonArray.of(1, 2.5);
+        arr.add(JsonString.of("x"));
+        arr.add(JsonValue.NULL);
+        arr.add(JsonNumber.of(3));
+        assertThat(arr.toString(), is("[1,2.5,\"x\",null,3]"));
+        assertThat(arr.getDouble(1), is(2.5));
+        assertThat(arr.get(2), is(JsonString.of("x")));
+    }
+
+    @Test(expected = JsonConversionException.class)
+    public void testNotANumber() {
+        JsonArray.of(1, "x").toLongArray();
+    }
+
+    @Test
+    public void testPositionsAreKept() {
+        JsonValue value = JsonNumber.of(70000);
+        SourcePosition position = new SourcePosition(1, 2, 3);
+        value.setPosition(position);
+        JsonArray arr = JsonArray.of(1, 2);
+        arr.add(value);
+        assertThat(arr.get(2), sameInstance(value));
+        assertThat(arr.get(2).getPosition(), sameInstance(position));
+    }
+
+    @Test
+    public void testListOperations() {
+        JsonArray arr = JsonArray.of(1, 2, 3, 4);
+        arr.add(0, JsonNumber.of(0));
+        assertThat(arr.remove(2), is((JsonValue) JsonNumber.of(2)));
+        assertThat(arr.set(1, JsonNumber.of(1.5)), is((JsonValue) JsonNumber.of(1)));
+        assertThat(arr.toDoubleArray(), is(new double[] {0, 1.5, 3, 4}));
+        assertThat(arr.indexOf(JsonNumber.of(3)), is(2));
+        assertThat(arr.contains(JsonNumber.of(4)), is(true));
+        assertThat(arr.subList(1, 3).toString(), is("[1.5, 3]"));
+
+        Iterator<JsonValue> it = arr.iterator();
+        it.next();
+        it.remove();
+        assertThat(arr.toDoubleArray(), is(new double[] {1.5, 3, 4}));
+
+        List<JsonValue> copy = new ArrayList<>(arr);
+        Collections.reverse(arr);
+        Collections.reverse(copy);
+        assertThat(arr.toString(), is(JsonArray.of(copy.toArray(new JsonValue[0])).toString()));
+
+        arr.clear();
+        assertThat(arr.size(), is(0));
+        assertThat(arr.toLongArray().length, is(0));
+        arr.add(JsonString.of("a"));
+        assertThat(arr.size(), is(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        JsonArray.of(1, 2).get(2);
+    }
+
+    @Test
+    public void testCursor() {
+        JsonArray arr = JsonValue.parse("[1, 2.5, 3]").asArray();
+        double sum = 0;
+        while (arr.hasNext()) {
+            sum += arr.nextDouble();
+        }
+        assertThat(sum, closeTo(6.5, EPSILON));
+        arr.rewind();
+        assertThat(arr.nextLong(), is(1L));
+    }
+
+    @Test
+    public void testHeapSavings() {
+        JsonArray packed = new JsonArray();
+        List<JsonValue> boxed = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            JsonValue value = JsonNumber.of(i + 0.25);
+            packed.add(value);
+            boxed.add(value);
+        }
+        long packedSize = ObjectSizes.deepSize(packed, Collections.emptyList());
+        long boxedSize = ObjectSizes.deepSize(boxed, Collections.emptyList());
+        assertThat(packedSize + " vs " + boxedSize + " bytes", packedSize * 3, lessThanOrEqualTo(boxedSize));
+    }
+
+    @Test
+    public void testEqualsIsOrderSensitive() {
+        assertThat(JsonArray.of(1, 2, 3), is(JsonArray.of(1, 2, 3)));
+        assertThat(JsonArray.of(1, 2, 3), is(not(JsonArray.of(3, 2, 1))));
+        assertThat(JsonArray.of(1, 1, 2), is(not(JsonArray.of(1, 2, 2))));
+        assertThat(JsonArray.of(1, 2), is(not(JsonArray.of(1, 2, 3))));
+        assertThat(JsonArray.of("a", 1), is(not(JsonArray.of(1, "a"))));
+        assertThat(new JsonArray(), is(JsonArray.EMPTY));
+    }
+
+    @Test
+    public void testEqualsAcrossStorage() {
+        JsonArray longs = JsonArray.of(1, 2, 5000000000L);
+        JsonArray doubles = JsonArray.of(0.5, 1, 2, 5000000000L);
+        doubles.remove(0);
+        JsonArray values = JsonArray.of("x", 1, 2, 5000000000L);
+        values.remove(0);
+        assertThat(longs, is(doubles));
+        assertThat(doubles, is(longs));
+        assertThat(longs, is(values));
+        assertThat(values, is(doubles));
+        assertThat(longs.hashCode(), is(doubles.hashCode()));
+        assertThat(longs.hashCode(), is(values.hashCode()));
+
+        JsonArray large = JsonArray.of(0, (1L << 60) + 1);
+        assertThat(large, is(not(JsonArray.of(0, 1L << 60))));
+        assertThat(JsonArray.of(1.5, -2), is(not(JsonArray.of(1.5, 2))));
+        assertThat(JsonArray.of(1.5, -2).hashCode(), is(JsonArray.of("x", 1.5, -2).subList(1, 3).hashCode()));
+    }
+
+    @Test
+    public void testEqualsAcrossStorageUsesNumberSemantics() {
+        JsonArray longs = JsonArray.of(1, 9007199254740993L);
+        JsonArray doubles = JsonArray.of(0.5, 1, 9007199254740992.0);
+        doubles.remove(0);
+        assertThat(longs, is(not(doubles)));
+        assertThat(doubles, is(not(longs)));
+        assertThat(longs.get(1), is(not(doubles.get(1))));
+
+        JsonArray zero = JsonArray.of(1, 0);
+        JsonArray negativeZero = JsonArray.of(0.5, 1, -0.0);
+        negativeZero.remove(0);
+        assertThat(zero.equals(negativeZero), is(zero.get(1).equals(negativeZero.get(1))));
+        assertThat(negativeZero.equals(zero), is(zero.equals(negativeZero)));
+        if (zero.equals(negativeZero)) {
+            assertThat(zero.hashCode(), is(negativeZero.hashCode()));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testEqualsLargeArrays() {
+        JsonArray first = new JsonArray();
+        JsonArray second = new JsonArray();
+        for (int i = 0; i < 100000; i++) {
+            first.add(JsonString.of("s" + i));
+            second.add(JsonString.of("s" + i));
+        }
+        assertThat(first.equals(second), is(true));
+        second.set(99999, JsonString.of("other"));
+        assertThat(first.equals(second), is(false));
+    }
+
+    @Test
+    public void testHashCode() {
+        JsonArray arr = JsonValue.parse("[1, \"a\", [true, null], {\"k\": 2.5}]").asArray();
+        assertThat(arr.hashCode(), is(JsonValue.parse("[1, \"a\", [true, null], {\"k\": 2.5}]").hashCode()));
+        Set<JsonValue> set = new HashSet<>();
+        set.add(arr);
+        assertThat(set.contains(JsonValue.parse(arr.toString())), is(true));
+        int before = arr.hashCode();
+        arr.get(2).asArray().add(JsonNumber.of(1));
+        assertThat(arr.hashCode(), is(not(before)));
+    }
+
+    @Test
+    public void testWithIndex() {
+        JsonArray arr = JsonValue.parse("[1, [2], \"x\"]").asArray();
+        JsonArray copy = arr.withIndex(2, JsonString.of("y")).with(JsonNumber.of(4));
+        assertThat(arr.isFrozen(), is(true));
+        assertThat(copy.isFrozen(), is(true));
+        assertThat(arr, is(JsonValue.parse("[1, [2], \"x\"]")));
+        assertThat(copy, is(JsonValue.parse("[1, [2], \"y\", 4]")));
+        assertThat(copy.get(1), sameInstance(arr.get(1)));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testWithIndexOutOfBounds() {
+        JsonArray.of(1, 2).withIndex(2, JsonNumber.of(3));
+    }
+
+    @Test(timeout = 10000)
+    public void testWithLargeArray() {
+        Random random = new Random(7);
+        List<JsonValue> expected = new ArrayList<>();
+        JsonArray arr = new JsonArray();
+        for (int i = 0; i < 40000; i++) {
+            JsonValue value = JsonNumber.of(i);
+            if (expected.isEmpty() || random.nextBoolean()) {
+                expected.add(value);
+                arr = arr.with(value);
+            }
+            else {
+                int index = random.nextInt(expected.size());
+                expected.set(index, value);
+                arr = arr.withIndex(index, value);
+            }
+        }
+        assertThat(new ArrayList<>(arr), is(expected));
+    }
+
+    @Test
+    public void testWithKeepsElementsOfFrozenArray() {
+        JsonArray arr = JsonValue.parse("[1, 2, 3]").asArray().freeze();
+        Object elements = arr.objectValue();
+        JsonArray first = arr.withIndex(0, JsonNumber.of(4));
+        JsonArray second = first.with(JsonNumber.of(5));
+        // A frozen array may be shared between threads, so its elements are never replaced
+        assertThat(arr.objectValue(), sameInstance(elements));
+        assertThat(first.objectValue(), instanceOf(PersistentVector.class));
+        assertThat(new ArrayList<>(second), is(Arrays.<JsonValue>asList(JsonNumber.of(4), JsonNumber.of(2), JsonNumber.of(3), JsonNumber.of(5))));
+        assertThat(arr, is(JsonValue.parse("[1, 2, 3]")));
+    }
+}
@@ -2,10 +2,16 @@ package com.mictale.jsonite;
 
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+
 import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNot.not;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 public class JsonNumberTest {
 
@@ -19,4 +25,82 @@ public class JsonNumberTest {
         assertThat(JsonNumber.of(123).getType(), sameInstance(JsonType.NUMBER));
     }
 
+    @Test
+    public void testSmallIntegersAreCached() {
+        assertThat(JsonNumber.of(0), sameInstance(JsonNumber.ZERO));
+        assertThat(JsonNumber.of(1L), sameInstance(JsonNumber.ONE));
+        assertThat(JsonNumber.of(-1.0), sameInstance(JsonNumber.MINUS_ONE));
+        assertThat(JsonNumber.of(Integer.valueOf(1000)), sameInstance(JsonNumber.of(1000)));
+        assertThat(JsonNumber.of(-128), sameInstance(JsonNumber.of(-128L)));
+        assertThat(JsonValue.of((Object) Long.valueOf(42)), sameInstance(JsonNumber.of(42)));
+        assertThat(JsonValue.parse("[7]").asArray().get(0), sameInstance(JsonNumber.of(7)));
+        assertThat(JsonNumber.of(100000), not(sameInstance(JsonNumber.of(100000))));
+        assertThat(JsonNumber.of(100000), is(JsonNumber.of(100000)));
+    }
+
+    @Test
+    public void testPrimitiveOverloads() {
+        assertThat(JsonNumber.of(5000000000L).objectValue(), is((Object) 5000000000L));
+        assertThat(JsonNumber.of(2000000L).objectValue(), is((Object) 2000000));
+        assertThat(JsonNumber.of(3.0).objectValue(), is((Object) 3));
+        assertThat(JsonNumber.of(-0.0).objectValue(), is((Object) 0));
+        assertThat(JsonNumber.of(2.5).objectValue(), is((Object) 2.5));
+        assertThat(JsonNumber.of(1e300), is(JsonNumber.of(Double.valueOf(1e300))));
+        assertThat(JsonNumber.of(2.5f), is(JsonNumber.of(Float.valueOf(2.5f))));
+        assertThat(JsonNumber.of(Long.MIN_VALUE).longValue(), is(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testObjectSemantics() {
+        Object[] values = {0, 7, -100000, 5000000000L, Long.MIN_VALUE, 2.5, -1e-300, 1e300,
+                new BigInteger("123456789012345678901234567890"), new BigDecimal("1e400")};
+        for (Object value : values) {
+            JsonNumber number = JsonValue.of(value).asNumber();
+            Number expected = (Number) number.objectValue();
+            assertThat(number.objectValue(), is((Object) value));
+            assertThat(number.hashCode(), is(expected.hashCode()));
+            assertThat(number.stringValue(), is(expected.toString()));
+            assertThat(number.intValue(), is(expected.intValue()));
+            assertThat(number.longValue(), is(expected.longValue()));
+            assertThat(number.byteValue(), is(expected.byteValue()));
+            assertThat(number.shortValue(), is(expected.shortValue()));
+            assertThat(number.floatValue(), is(expected.floatValue()));
+            assertThat(number.doubleValue(), is(expected.doubleValue()));
+            assertThat(number.isLong(), is(value instanceof Integer || value instanceof Long));
+            assertThat(number.isDouble(), is(value instanceof Double));
+            assertThat(number, is(JsonValue.of(value)));
+        }
+        assertThat(JsonNumber.of(1), is(not(JsonNumber.of(1.5))));
+        assertThat(JsonNumber.of(5000000000L), is(not(JsonNumber.of(5000000000.5))));
+    }
+
+    @Test
+    public void testSingleObject() {
+        JsonValue number = JsonNumber.of(2.5);
+        long size = ObjectSizes.deepSize(number, Collections.singleton(number.getPosition()));
+        assertThat(size, lessThanOrEqualTo(32L));
+    }
+
+    @Test
+    public void testPositionOfSharedNumber() {
+        SourcePosition position = new SourcePosition(1, 2, 3);
+        try {
+            JsonValue.of(1).setPosition(position);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Expected, the instance is shared by all documents
+        }
+        assertThat(JsonNumber.of(1).getPosition(), sameInstance(SourcePosition.UNSPECIFIED));
+
+        JsonValue large = JsonNumber.of(100000);
+        large.setPosition(position);
+        assertThat(large.getPosition(), sameInstance(position));
+        assertThat(JsonNumber.of(100000).getPosition(), sameInstance(SourcePosition.UNSPECIFIED));
+    }
+
+    @Test(expected = JsonException.class)
+    public void testNaN() {
+        JsonNumber.of(Double.NaN);
+    }
+
 }
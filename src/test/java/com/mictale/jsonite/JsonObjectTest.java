@@ -2,6 +2,13 @@ package com.mictale.jsonite;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import static org.hamcrest.Matchers.*;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -119,5 +126,188 @@ public class JsonObjectTest {
         obj.remove("bar");
     }
 
+    private static JsonObject object(int size) {
+        JsonObject obj = new JsonObject();
+        for (int i = 0; i < size; i++) {
+            obj.put("key" + i, JsonNumber.of(i));
+        }
+        return obj;
+    }
+
+    @Test
+    public void testOrderAcrossThreshold() {
+        for (int size = 0; size <= CompactMap.THRESHOLD * 2; size++) {
+            JsonObject obj = object(size);
+            List<String> keys = new ArrayList<>(obj.keySet());
+            assertThat(keys.size(), is(size));
+            for (int i = 0; i < size; i++) {
+                assertThat(keys.get(i), is("key" + i));
+                assertThat(obj.get("key" + i), is(JsonNumber.of(i)));
+            }
+            assertThat(obj.containsKey("key" + size), is(false));
+        }
+    }
+
+    @Test
+    public void testRemoveKeepsOrder() {
+        JsonObject obj = object(5);
+        assertThat(obj.remove("key1"), is(JsonNumber.of(1)));
+        assertThat(obj.remove("key1"), is(nullValue()));
+        assertThat(new ArrayList<>(obj.keySet()), contains("key0", "key2", "key3", "key4"));
+
+        Iterator<Map.Entry<String, JsonValue>> it = obj.entrySet().iterator();
+        it.next();
+        it.remove();
+        assertThat(new ArrayList<>(obj.keySet()), contains("key2", "key3", "key4"));
+    }
+
+    @Test
+    public void testMapContract() {
+        for (int size : new int[] {3, 12}) {
+            JsonObject obj = object(size);
+            Map<String, JsonValue> expected = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                expected.put("key" + i, JsonNumber.of(i));
+            }
+            Map<?, ?> members = (Map<?, ?>) obj.objectValue();
+            assertThat(members.equals(expected), is(true));
+            assertThat(expected.equals(members), is(true));
+            assertThat(members.hashCode(), is(expected.hashCode()));
+            assertThat(members.toString(), is(expected.toString()));
+
+            for (Map.Entry<String, JsonValue> e : obj.entrySet()) {
+                e.setValue(JsonValue.TRUE);
+            }
+            assertThat(obj.get("key0"), is(JsonValue.TRUE));
+        }
+    }
+
+    @Test
+    public void testHeapSavings() {
+        for (int size = 1; size <= CompactMap.THRESHOLD; size++) {
+            JsonObject obj = new JsonObject();
+            Map<String, JsonValue> legacy = new LinkedHashMap<>();
+            List<Object> shared = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                String key = "key" + i;
+                JsonValue value = JsonNumber.of(i);
+                obj.put(key, value);
+                legacy.put(key, value);
+                shared.add(key);
+                shared.add(value);
+            }
+
+            long compact = ObjectSizes.deepSize(obj.objectValue(), shared);
+            long hashed = ObjectSizes.deepSize(legacy, shared);
+            String message = size + " members: " + compact + " vs " + hashed + " bytes";
+            assertThat(message, compact, lessThan(hashed));
+            if (size >= 3) {
+                assertThat(message, compact * 2, lessThanOrEqualTo(hashed));
+            }
+        }
+    }
+
+    @Test
+    public void testEqualsIgnoresOrder() {
+        JsonObject first = JsonValue.parse("{\"a\": 1, \"b\": [1, 2], \"c\": {\"d\": null}}").asObject();
+        JsonObject second = JsonValue.parse("{\"c\": {\"d\": null}, \"b\": [1, 2], \"a\": 1}").asObject();
+        assertThat(first, is(second));
+        assertThat(first.hashCode(), is(second.hashCode()));
+        assertThat(first, is(not(JsonValue.parse("{\"a\": 1, \"b\": [2, 1], \"c\": {\"d\": null}}"))));
+        assertThat(first, is(not(JsonValue.parse("{\"a\": 1, \"b\": [1, 2]}"))));
+    }
+
+    @Test
+    public void testEqualsAcrossStorage() {
+        ObjectShape shapes = ObjectShape.root();
+        for (int size : new int[] {3, 12, 100}) {
+            JsonObject compact = object(size);
+            JsonObject shaped = new JsonObject(shapes);
+            JsonObject other = new JsonObject(shapes);
+            for (int i = 0; i < size; i++) {
+                shaped.put("key" + i, JsonNumber.of(i));
+                other.put("key" + i, JsonNumber.of(i));
+            }
+            assertThat(shaped, is(compact));
+            assertThat(compact, is(shaped));
+            assertThat(shaped, is(other));
+            assertThat(shaped.hashCode(), is(compact.hashCode()));
+            assertThat(shaped.hashCode(), is(new LinkedHashMap<>(compact).hashCode()));
+
+            other.put("key0", JsonNumber.of(-1));
+            assertThat(shaped, is(not(other)));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testEqualsLargeObjects() {
+        JsonObject first = object(100000);
+        JsonObject second = object(100000);
+        assertThat(first.equals(second), is(true));
+        second.put("key5", JsonValue.TRUE);
+        assertThat(first.equals(second), is(false));
+    }
 
+    @Test
+    public void testWith() {
+        JsonObject obj = JsonValue.parse("{\"a\": {\"x\": 1}, \"b\": 2}").asObject();
+        JsonObject copy = obj.with("b", 3).with("c", "new");
+        assertThat(obj.isFrozen(), is(true));
+        assertThat(copy.isFrozen(), is(true));
+        assertThat(obj.get("b"), is(JsonNumber.of(2)));
+        assertThat(copy.get("b"), is(JsonNumber.of(3)));
+        assertThat(new ArrayList<>(copy.keySet()), is(Arrays.asList("a", "b", "c")));
+        assertThat(copy.get("a"), sameInstance(obj.get("a")));
+        assertThat(copy, is(JsonValue.parse("{\"a\": {\"x\": 1}, \"b\": 3, \"c\": \"new\"}")));
+    }
+
+    @Test
+    public void testWithout() {
+        JsonObject obj = JsonValue.parse("{\"a\": 1, \"b\": 2}").asObject();
+        JsonObject copy = obj.without("a");
+        assertThat(obj.size(), is(2));
+        assertThat(copy, is(JsonValue.parse("{\"b\": 2}")));
+        assertThat(copy.without("a"), sameInstance(copy));
+    }
+
+    @Test(timeout = 10000)
+    public void testWithLargeObject() {
+        JsonObject obj = new JsonObject();
+        for (int i = 0; i < 100000; i++) {
+            obj.put("m" + i, i);
+        }
+        JsonObject copy = obj;
+        for (int i = 0; i < 100000; i++) {
+            copy = copy.with("m" + i, i + 1);
+        }
+        assertThat(copy.size(), is(100000));
+        assertThat(copy.get("m99999"), is(JsonNumber.of(100000)));
+        assertThat(obj.get("m99999"), is(JsonNumber.of(99999)));
+    }
+
+    @Test
+    public void testWithKeepsMembersOfFrozenObject() {
+        JsonObject obj = JsonValue.parse("{\"a\": 1, \"b\": [2], \"c\": 3}").asObject().freeze();
+        Object members = obj.objectValue();
+        JsonObject first = obj.with("a", 4);
+        JsonObject second = first.with("d", 5);
+        // A frozen object may be shared between threads, so its members are never replaced
+        assertThat(obj.objectValue(), sameInstance(members));
+        assertThat(first.objectValue(), instanceOf(PersistentMap.class));
+        assertThat(second.get("a"), is(JsonNumber.of(4)));
+        assertThat(second.get("d"), is(JsonNumber.of(5)));
+        assertThat(second.get("b"), sameInstance(obj.get("b")));
+        assertThat(obj, is(JsonValue.parse("{\"a\": 1, \"b\": [2], \"c\": 3}")));
+    }
+
+    @Test
+    public void testWithFreezesReceiverAndValue() {
+        JsonObject obj = JsonValue.parse("{\"a\": {\"x\": 1}}").asObject();
+        JsonArray value = new JsonArray();
+        obj.with("b", value);
+        // The copy shares both, so neither may change anymore
+        assertThat(obj.isFrozen(), is(true));
+        assertThat(obj.get("a").isFrozen(), is(true));
+        assertThat(value.isFrozen(), is(true));
+    }
 }
@@ -2,7 +2,15 @@ package com.mictale.jsonite;
 
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.core.Is.*;
 import static org.hamcrest.core.IsInstanceOf.*;
 
@@ -27,4 +35,95 @@ public class JsonValueTest {
     public void testOfString() {
         assertThat(JsonValue.of("jsonite"), is(instanceOf(JsonString.class)));
     }
+
+    private static final String TREE = "{\"name\": \"x\", \"tags\": [\"a\", {\"b\": 1}], \"values\": [1, 2.5]}";
+
+    @Test
+    public void testFreeze() {
+        JsonObject tree = JsonValue.parse(TREE).asObject();
+        assertThat(tree.isFrozen(), is(false));
+        assertThat(tree.freeze(), sameInstance(tree));
+        assertThat(tree.isFrozen(), is(true));
+        assertThat(tree.get("tags").isFrozen(), is(true));
+        assertThat(tree.get("tags").asArray().get(1).isFrozen(), is(true));
+        assertThat(tree.get("values").isFrozen(), is(true));
+        assertThat(JsonValue.TRUE.isFrozen(), is(true));
+        assertThat(JsonValue.parse(TREE), is((JsonValue) tree));
+        assertThat(tree.toString(), is(JsonValue.parse(TREE).toString()));
+        assertThat(tree.get("values").asArray().toDoubleArray()[1], is(2.5));
+    }
+
+    @Test
+    public void testFrozenTreeRejectsChanges() {
+        JsonObject tree = JsonValue.parse(TREE).asObject().freeze();
+        final JsonArray tags = tree.get("tags").asArray();
+        final JsonObject nested = tags.get(1).asObject();
+        final JsonArray values = tree.get("values").asArray();
+        Runnable[] changes = {
+            new Runnable() { public void run() { nested.put("c", 2); } },
+            new Runnable() { public void run() { nested.remove("b"); } },
+            new Runnable() { public void run() { nested.clear(); } },
+            new Runnable() { public void run() { nested.entrySet().iterator().next().setValue(JsonValue.NULL); } },
+            new Runnable() { public void run() { nested.keySet().clear(); } },
+            new Runnable() { public void run() { tags.add(JsonValue.NULL); } },
+            new Runnable() { public void run() { tags.set(0, JsonValue.NULL); } },
+            new Runnable() { public void run() { tags.remove(0); } },
+            new Runnable() { public void run() { tags.push(JsonValue.NULL); } },
+            new Runnable() { public void run() { Iterator<JsonValue> it = tags.iterator(); it.next(); it.remove(); } },
+            new Runnable() { public void run() { tags.listIterator().add(JsonValue.NULL); } },
+            new Runnable() { public void run() { tags.subList(0, 1).clear(); } },
+            new Runnable() { public void run() { values.set(0, JsonNumber.of(3)); } },
+            new Runnable() { public void run() { JsonArray.EMPTY.add(JsonValue.NULL); } },
+        };
+        for (Runnable change : changes) {
+            try {
+                change.run();
+                fail("Frozen tree changed");
+            } catch (UnsupportedOperationException e) {
+                // Expected
+            }
+        }
+        assertThat(tree, is(JsonValue.parse(TREE)));
+    }
+
+    @Test
+    public void testFrozenHashCode() {
+        JsonValue frozen = JsonValue.parse(TREE).freeze();
+        JsonValue mutable = JsonValue.parse(TREE);
+        assertThat(frozen.hashCode(), is(mutable.hashCode()));
+        assertThat(frozen.hashCode(), is(frozen.hashCode()));
+
+        Set<JsonValue> set = new HashSet<>();
+        set.add(frozen);
+        assertThat(set.contains(mutable), is(true));
+        mutable.asObject().put("name", "y");
+        assertThat(set.contains(mutable), is(false));
+        assertThat(frozen, is(not(mutable)));
+        assertThat(frozen, is(not(JsonValue.parse(mutable.toString()).freeze())));
+    }
+
+    @Test
+    public void testSharedBetweenThreads() throws InterruptedException {
+        final JsonValue tree = JsonValue.parse(TREE).freeze();
+        final int expected = JsonValue.parse(TREE).hashCode();
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        if (tree.hashCode() != expected || !tree.equals(JsonValue.parse(TREE))) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(failures.get(), is(0));
+    }
 }
@@ -0,0 +1,182 @@
+package com.mictale.jsonite;
+
+import com.mictale.jsonite.stream.BrokenStreamException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class LazyDocumentTest {
+
+    private static final String[] DOCUMENTS = {
+        "{}",
+        "[]",
+        " { \"a\" : 1 , \"b\" : [ true, false, null ] } ",
+        "{\"nested\": {\"deeper\": {\"deepest\": [1, [2, [3, {}]]]}}, \"after\": \"x\"}",
+        "[\"plain\", \"esc\\\"aped\\\\\", \"\\u00e4\\n\\t\\/\", \"\"]",
+        "[0, -0, 12, -3, 1.5, -2.5e3, 1E-2, 1.0, 9223372036854775807, -9223372036854775808, 9223372036854775808, 1e400, 00012]",
+        "{\"a\": 1, \"a\": 2}",
+        "[1 2 3]",
+        "{\"a\": 1 \"b\": 2}",
+    };
+
+    @Test
+    public void testSameAsParse() {
+        for (String json : DOCUMENTS) {
+            JsonValue lazy = JsonValue.parseLazily(json);
+            JsonValue eager = JsonValue.parse(json);
+            assertThat(json, lazy, is(eager));
+            assertThat(json, lazy.toString(), is(eager.toString()));
+            assertThat(json, lazy.hashCode(), is(eager.hashCode()));
+        }
+    }
+
+    @Test
+    public void testNumberTypes() {
+        JsonArray lazy = JsonValue.parseLazily(DOCUMENTS[5]).asArray();
+        JsonArray eager = JsonValue.parse(DOCUMENTS[5]).asArray();
+        for (int i = 0; i < eager.size(); i++) {
+            assertThat(lazy.get(i).objectValue(), is(eager.get(i).objectValue()));
+            assertThat(lazy.get(i).objectValue().getClass(), sameInstance((Object) eager.get(i).objectValue().getClass()));
+        }
+    }
+
+    @Test
+    public void testScalarsAndLenientInput() {
+        for (String json : new String[] {"1", "\"s\"", "null", "[1,,2]", "{\"a\" : 1,}", "[1e-3456789012345678, 1e2147483647]"}) {
+            assertThat(json, JsonValue.parseLazily(json), is(JsonValue.parse(json)));
+        }
+        assertThat(JsonValue.parseLazily(null), sameInstance(JsonValue.NULL));
+    }
+
+    @Test
+    public void testSyntaxErrors() {
+        for (String json : new String[] {"[\"unterminated", "{\"a\" 1}", "[1e]", "[tru]", "[1e3456789012345678]"}) {
+            String expected = message(json, false);
+            assertThat(json, expected, is(notNullValue()));
+            assertThat(json, message(json, true), is(expected));
+        }
+    }
+
+    private static String message(String json, boolean lazy) {
+        try {
+            if (lazy) {
+                JsonValue.parseLazily(json);
+            }
+            else {
+                JsonValue.parse(json);
+            }
+            return null;
+        } catch (BrokenStreamException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Test
+    public void testChanges() {
+        JsonObject obj = JsonValue.parseLazily("{\"a\": [1, 2], \"b\": {\"c\": \"d\"}}").asObject();
+        obj.put("e", "f");
+        obj.get("a").asArray().add(JsonNumber.of(3));
+        obj.get("b").asObject().remove("c");
+        assertThat(obj, is(JsonValue.parse("{\"a\": [1, 2, 3], \"b\": {}, \"e\": \"f\"}")));
+        assertThat(new ArrayList<>(obj.keySet()), is(Arrays.asList("a", "b", "e")));
+        assertThat(obj.freeze().isFrozen(), is(true));
+        assertThat(obj.get("b").isFrozen(), is(true));
+    }
+
+    @Test
+    public void testRandomDocuments() {
+        Random random = new Random(11);
+        for (int i = 0; i < 50; i++) {
+            String json = random(random, 0).toString();
+            assertThat(json, JsonValue.parseLazily(json), is(JsonValue.parse(json)));
+        }
+    }
+
+    private static JsonValue random(Random random, int depth) {
+        switch (depth > 4 ? random.nextInt(3) : random.nextInt(5)) {
+        case 0:
+            return JsonNumber.of(random.nextInt(3) == 0 ? random.nextDouble() * 1e6 : random.nextLong());
+        case 1:
+            return JsonString.of("s\"\\\n\u00e9" + random.nextInt());
+        case 2:
+            return random.nextBoolean() ? JsonValue.TRUE : JsonValue.NULL;
+        case 3:
+            JsonArray arr = new JsonArray();
+            for (int i = random.nextInt(6); i > 0; i--) {
+                arr.add(random(random, depth + 1));
+            }
+            return arr;
+        default:
+            JsonObject obj = new JsonObject();
+            for (int i = random.nextInt(6); i > 0; i--) {
+                obj.put("m" + random.nextInt(10), random(random, depth + 1));
+            }
+            return obj;
+        }
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        StringBuilder b = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            b.append("{\"id\": ").append(i).append(", \"tags\": [\"t").append(i).append("\"]},");
+        }
+        b.append("{}]");
+        final JsonArray lazy = JsonValue.parseLazily(b.toString()).asArray();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        long sum = 0;
+                        for (int i = 0; i < 1000; i++) {
+                            JsonObject record = lazy.get(i).asObject();
+                            sum += record.get("id").longValue();
+                            assertThat(record.get("tags").asArray().get(0).stringValue(), is("t" + i));
+                        }
+                        return sum;
+                    }
+                }));
+            }
+            for (Future<Long> result : results) {
+                assertThat(result.get(), is(999L * 1000 / 2));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testHeap() {
+        StringBuilder b = new StringBuilder("{\"records\": [");
+        for (int i = 0; i < 1000; i++) {
+            b.append("{\"id\": ").append(i).append(", \"name\": \"record number ").append(i)
+                    .append("\", \"values\": [1.5, 2.5, 3.5], \"nested\": {\"flag\": true}},");
+        }
+        b.append("{}], \"total\": 1000}");
+        String json = b.toString();
+
+        JsonObject lazy = JsonValue.parseLazily(json).asObject();
+        JsonObject eager = JsonValue.parse(json).asObject();
+        assertThat(lazy.get("total"), is(eager.get("total")));
+
+        long lazySize = ObjectSizes.deepSize(lazy, Collections.emptyList());
+        long eagerSize = ObjectSizes.deepSize(eager, Collections.emptyList());
+        assertThat(lazySize + " vs " + eagerSize + " bytes", lazySize * 2, lessThanOrEqualTo(eagerSize));
+    }
+}
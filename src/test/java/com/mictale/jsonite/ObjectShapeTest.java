@@ -0,0 +1,152 @@
+package com.mictale.jsonite;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ObjectShapeTest {
+
+    private static JsonObject record(ObjectShape shapes, int id) {
+        JsonObject obj = new JsonObject(shapes);
+        obj.put("id", id);
+        obj.put("name", "n" + id);
+        obj.put("active", true);
+        return obj;
+    }
+
+    @Test
+    public void testTransitions() {
+        ObjectShape root = ObjectShape.root();
+        assertThat(root.size(), is(0));
+        ObjectShape a = root.with("a");
+        assertThat(a.size(), is(1));
+        assertThat(root.with("a"), sameInstance(a));
+        assertThat(root.with("b"), not(sameInstance(a)));
+        assertThat(a.with("b").indexOf("b"), is(1));
+        assertThat(a.with("b").indexOf("c"), is(-1));
+        assertThat(a.predictedSize(), is(2));
+    }
+
+    @Test
+    public void testSameLayout() {
+        ObjectShape shapes = ObjectShape.root();
+        JsonObject first = record(shapes, 1);
+        JsonObject second = record(shapes, 2);
+        assertThat(new ArrayList<>(second.keySet()), contains("id", "name", "active"));
+        assertThat(second.get("name"), is(JsonString.of("n2")));
+        assertThat(first.get("name"), is(JsonString.of("n1")));
+        assertThat(first.containsKey("missing"), is(false));
+        assertThat(first, is(not(second)));
+        assertThat(second, is(record(ObjectShape.root(), 2)));
+
+        JsonObject plain = new JsonObject();
+        plain.put("id", 2);
+        plain.put("name", "n2");
+        plain.put("active", true);
+        assertThat(second, is(plain));
+    }
+
+    @Test
+    public void testReplace() {
+        ObjectShape shapes = ObjectShape.root();
+        JsonObject first = record(shapes, 1);
+        JsonObject second = record(shapes, 2);
+        assertThat(first.put("name", "other"), is((Object) JsonString.of("n1")));
+        assertThat(first.get("name"), is(JsonString.of("other")));
+        assertThat(second.get("name"), is(JsonString.of("n2")));
+    }
+
+    @Test
+    public void testMutationDoesNotLeak() {
+        ObjectShape shapes = ObjectShape.root();
+        JsonObject first = record(shapes, 1);
+        JsonObject second = record(shapes, 2);
+
+        first.remove("id");
+        assertThat(new ArrayList<>(first.keySet()), contains("name", "active"));
+        assertThat(new ArrayList<>(second.keySet()), contains("id", "name", "active"));
+
+        Iterator<Map.Entry<String, JsonValue>> it = second.entrySet().iterator();
+        it.next();
+        it.next();
+        it.remove();
+        assertThat(new ArrayList<>(second.keySet()), contains("id", "active"));
+
+        JsonObject third = record(shapes, 3);
+        third.put("extra", 1);
+        JsonObject fourth = record(shapes, 4);
+        fourth.put("other", 2);
+        assertThat(new ArrayList<>(third.keySet()), contains("id", "name", "active", "extra"));
+        assertThat(new ArrayList<>(fourth.keySet()), contains("id", "name", "active", "other"));
+        assertThat(new ArrayList<>(record(shapes, 5).keySet()), contains("id", "name", "active"));
+
+        fourth.clear();
+        assertThat(fourth.size(), is(0));
+        fourth.put("x", 1);
+        assertThat(new ArrayList<>(fourth.keySet()), contains("x"));
+        assertThat(third.size(), is(4));
+    }
+
+    @Test
+    public void testLargeObjects() {
+        ObjectShape shapes = ObjectShape.root();
+        for (int n = 0; n < 2; n++) {
+            JsonObject obj = new JsonObject(shapes);
+            for (int i = 0; i < 200; i++) {
+                obj.put("key" + i, i);
+            }
+            assertThat(obj.size(), is(200));
+            assertThat(obj.get("key150"), is(JsonNumber.of(150)));
+            assertThat(obj.remove("key0"), is((Object) JsonNumber.of(0)));
+            assertThat(obj.get("key199"), is(JsonNumber.of(199)));
+            assertThat(obj.keySet().iterator().next(), is("key1"));
+        }
+    }
+
+    @Test
+    public void testParsedRecordsShareNames() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i).append(",\"firstName\":\"a\",\"lastName\":\"b\",\"active\":true,\"score\":1.5}");
+        }
+        JsonArray parsed = JsonValue.parse(json.append(']').toString()).asArray();
+        JsonObject first = parsed.get(0).asObject();
+        JsonObject last = parsed.get(999).asObject();
+        assertThat(new ArrayList<>(last.keySet()), contains("id", "firstName", "lastName", "active", "score"));
+        assertThat(last.keySet().iterator().next(), sameInstance(first.keySet().iterator().next()));
+
+        // The same records with private names in compact and in hashed maps
+        JsonArray unshared = new JsonArray();
+        List<Map<String, JsonValue>> hashed = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        for (JsonValue element : parsed) {
+            JsonObject obj = new JsonObject();
+            Map<String, JsonValue> map = new LinkedHashMap<>();
+            for (Map.Entry<String, JsonValue> e : element.asObject().entrySet()) {
+                obj.put(new String(e.getKey()), e.getValue());
+                map.put(new String(e.getKey()), e.getValue());
+                values.add(e.getValue());
+            }
+            unshared.add(obj);
+            hashed.add(map);
+        }
+
+        long shaped = ObjectSizes.deepSize(parsed, values);
+        long compact = ObjectSizes.deepSize(unshared, values);
+        long legacy = ObjectSizes.deepSize(hashed, values);
+        String message = shaped + " vs " + compact + " vs " + legacy + " bytes";
+        assertThat(message, shaped * 2, lessThanOrEqualTo(compact));
+        assertThat(message, shaped * 3, lessThanOrEqualTo(legacy));
+    }
+}
@@ -0,0 +1,32 @@
+package com.mictale.jsonite;
+
+import java.util.Collection;
+
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Computes the retained heap size of object graphs with JOL for the running VM.
+ */
+final class ObjectSizes {
+
+    private ObjectSizes() {
+    }
+
+    /**
+     * Computes the size of all objects reachable from the root.
+     *
+     * @param root is the start of the graph.
+     * @param excluded are objects that are not counted along with everything reachable from them.
+     * @return the size in bytes.
+     */
+    static long deepSize(Object root, Collection<?> excluded) {
+        if (excluded.isEmpty()) {
+            return GraphLayout.parseInstance(root).totalSize();
+        }
+        // Both graphs are walked by identity, subtracting layouts would compare addresses that move in a GC
+        Object[] roots = excluded.toArray(new Object[excluded.size() + 1]);
+        roots[excluded.size()] = root;
+        Object[] others = excluded.toArray();
+        return GraphLayout.parseInstance(roots).totalSize() - GraphLayout.parseInstance(others).totalSize();
+    }
+}
@@ -0,0 +1,120 @@
+package com.mictale.jsonite;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class PersistentMapTest {
+
+    @Test
+    public void testRandomChanges() {
+        Random random = new Random(42);
+        Map<String, JsonValue> expected = new LinkedHashMap<>();
+        PersistentMap map = PersistentMap.EMPTY;
+        for (int i = 0; i < 20000; i++) {
+            String key = "k" + random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.without(key);
+            }
+            else {
+                JsonValue value = JsonNumber.of(i);
+                expected.put(key, value);
+                map = map.with(key, value);
+            }
+        }
+        assertThat(map.size(), is(expected.size()));
+        assertThat(new ArrayList<>(map.entrySet()), is(new ArrayList<>(expected.entrySet())));
+        for (int i = 0; i < 2000; i++) {
+            assertThat(map.get("k" + i), is(expected.get("k" + i)));
+        }
+    }
+
+    @Test
+    public void testOriginalUnchanged() {
+        PersistentMap first = PersistentMap.EMPTY.with("a", JsonNumber.of(1)).with("b", JsonNumber.of(2));
+        PersistentMap second = first.with("a", JsonNumber.of(3)).without("b").with("c", JsonNumber.of(4));
+        assertThat(first.get("a"), is(JsonNumber.of(1)));
+        assertThat(first.get("b"), is(JsonNumber.of(2)));
+        assertThat(first.containsKey("c"), is(false));
+        assertThat(new ArrayList<>(second.keySet()), is(Arrays.asList("a", "c")));
+        assertThat(second.without("missing"), sameInstance(second));
+    }
+
+    @Test
+    public void testHashCollisions() {
+        // "Aa" and "BB" have the same hash code and so do all their concatenations
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            StringBuilder b = new StringBuilder();
+            for (int j = 0; j < 6; j++) {
+                b.append((i >> j & 1) == 0 ? "Aa" : "BB");
+            }
+            keys.add(b.toString());
+        }
+        assertThat(keys.get(0).hashCode(), is(keys.get(63).hashCode()));
+
+        PersistentMap map = PersistentMap.EMPTY;
+        for (int i = 0; i < keys.size(); i++) {
+            map = map.with(keys.get(i), JsonNumber.of(i));
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            assertThat(map.get(keys.get(i)), is((JsonValue) JsonNumber.of(i)));
+        }
+        for (int i = 0; i < keys.size(); i += 2) {
+            map = map.without(keys.get(i));
+        }
+        assertThat(map.size(), is(32));
+        for (int i = 0; i < keys.size(); i++) {
+            assertThat(map.containsKey(keys.get(i)), is(i % 2 == 1));
+        }
+    }
+
+    @Test
+    public void testOfKeepsOrder() {
+        Map<String, JsonValue> source = new LinkedHashMap<>();
+        for (int i = 100; i > 0; i--) {
+            source.put("m" + i, JsonNumber.of(i));
+        }
+        PersistentMap map = PersistentMap.of(source);
+        assertThat(map, is(source));
+        assertThat(new ArrayList<>(map.keySet()), is(new ArrayList<>(source.keySet())));
+    }
+
+    @Test
+    public void testOfThenChange() {
+        // Bulk built tries must behave like tries built by single changes, collisions included
+        Map<String, JsonValue> source = new LinkedHashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            source.put("k" + i, JsonNumber.of(i));
+        }
+        for (int i = 0; i < 16; i++) {
+            StringBuilder b = new StringBuilder();
+            for (int j = 0; j < 4; j++) {
+                b.append((i >> j & 1) == 0 ? "Aa" : "BB");
+            }
+            source.put(b.toString(), JsonNumber.of(-i));
+        }
+        PersistentMap map = PersistentMap.of(source);
+        assertThat(map, is(source));
+        for (String key : source.keySet()) {
+            assertThat(map.get(key), is(source.get(key)));
+        }
+        assertThat(map.containsKey("missing"), is(false));
+
+        map = map.with("AaAaAaAa", JsonNumber.of(1)).without("k17").with("new", JsonNumber.of(2));
+        source.put("AaAaAaAa", JsonNumber.of(1));
+        source.remove("k17");
+        source.put("new", JsonNumber.of(2));
+        assertThat(new ArrayList<>(map.entrySet()), is(new ArrayList<>(source.entrySet())));
+    }
+}
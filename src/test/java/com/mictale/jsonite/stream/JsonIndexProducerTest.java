@@ -0,0 +1,132 @@
+package com.mictale.jsonite.stream;
+
+import com.mictale.jsonite.JsonValue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link JsonIndexProducer}
+ */
+public class JsonIndexProducerTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String JSON = "{\n  \"gr\u00fc\u00dfe\": [1, -2.5e3, \"\u20ac \ud83d\ude00 a\\\"b\\u0041\"],\n  \"bar\": {\"baz\": null, \"t\": true, \"f\": false},"
+            + " \"esc\\\\\": \"\\\\\\\\\", \"big\": [12345678901234567890, 1e400, 0.1, -0]\n}";
+
+    private static List<String> tokens(Producer producer) {
+        final List<String> tokens = new ArrayList<>();
+        producer.copyTo(new Consumer() {
+            @Override
+            public void append(Token token) {
+                tokens.add(token.toString());
+            }
+        });
+        return tokens;
+    }
+
+    private static List<String> expected(String json) {
+        JsonUtf8StreamProducer producer = new JsonUtf8StreamProducer(json.getBytes(UTF_8));
+        producer.setTrackPositions(false);
+        return tokens(producer);
+    }
+
+    @Test
+    public void testSameTokensAsStreamProducer() {
+        assertThat(tokens(new JsonIndexProducer(JSON.getBytes(UTF_8))), is(equalTo(expected(JSON))));
+    }
+
+    @Test
+    public void testBlockBoundaries() {
+        // Shift the document through all offsets within a block, so every byte lands on a word and block edge
+        for (int pad = 0; pad < 2 * StructuralIndex.BLOCK_SIZE; pad++) {
+            StringBuilder b = new StringBuilder();
+            for (int i = 0; i < pad; i++) {
+                b.append(' ');
+            }
+            String json = b.append(JSON).toString();
+            assertThat(tokens(new JsonIndexProducer(json.getBytes(UTF_8))), is(equalTo(expected(json))));
+        }
+    }
+
+    @Test
+    public void testBackslashRuns() {
+        for (int n = 0; n < 140; n++) {
+            StringBuilder b = new StringBuilder("[\"");
+            for (int i = 0; i < n; i++) {
+                b.append("\\\\");
+            }
+            String json = b.append("\\\"\", 1, \"x\"]").toString();
+            assertThat(tokens(new JsonIndexProducer(json.getBytes(UTF_8))), is(equalTo(expected(json))));
+        }
+    }
+
+    @Test
+    public void testLargeDocument() {
+        Random random = new Random(3);
+        StringBuilder b = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            b.append("{\"id\": ").append(random.nextLong())
+                .append(", \"name\": \"n\\u00e4me \\\"").append(i)
+                .append("\\\"\", \"price\": ").append(random.nextDouble() * 1000)
+                .append(", \"tags\": [\"a\", \"b\"], \"ok\": ").append(random.nextBoolean())
+                .append("},\n");
+        }
+        String json = b.append("null]").toString();
+        byte[] bytes = json.getBytes(UTF_8);
+        assertThat(tokens(new JsonIndexProducer(bytes)), is(equalTo(expected(json))));
+        assertThat(Transformation.asValue(new JsonIndexProducer(bytes)), is(equalTo(JsonValue.parse(json))));
+    }
+
+    @Test
+    public void testRangeAndByteBuffer() {
+        byte[] bytes = ("xx" + JSON + "yy").getBytes(UTF_8);
+        int length = JSON.getBytes(UTF_8).length;
+        assertThat(tokens(new JsonIndexProducer(bytes, 2, length)), is(equalTo(expected(JSON))));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(length);
+        direct.put(JSON.getBytes(UTF_8)).flip();
+        assertThat(tokens(new JsonIndexProducer(direct)), is(equalTo(expected(JSON))));
+        assertThat(direct.position(), is(0));
+    }
+
+    @Test
+    public void testReuseTokens() {
+        JsonIndexProducer producer = new JsonIndexProducer(JSON.getBytes(UTF_8));
+        producer.setReuseTokens(true);
+        assertThat(tokens(producer), is(equalTo(expected(JSON))));
+    }
+
+    @Test
+    public void testErrors() {
+        assertError("[\"unterminated", "end of stream");
+        assertError("[1x]", "Expected separator found x at offset 2");
+        assertError("[tru]", "Expected true found ] at offset 4");
+        assertError("[-]", "Expected digit found ] at offset 2");
+        assertError("[0, 1e3456789012345678]", "Number out of range at offset 4");
+        assertError("[\"\\u12g4\"]", "Expected hex digit found g");
+        assertError("[\"\u00e4\"]".replace('\u00e4', '\u00ff'), null);
+    }
+
+    private static void assertError(String json, String message) {
+        byte[] bytes = json.getBytes(message == null ? Charset.forName("ISO-8859-1") : UTF_8);
+        try {
+            tokens(new JsonIndexProducer(bytes));
+            fail(json);
+        } catch (BrokenStreamException e) {
+            assertThat(e.getMessage(), containsString(message == null ? "Malformed UTF-8" : message));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.mictale.jsonite.stream;
+
+import com.mictale.jsonite.JsonValue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link JsonPushParser}
+ */
+public class JsonPushParserTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String JSON = "{\n  \"gr\u00fc\u00dfe\": [1, -2.5e3, \"\u20ac \ud83d\ude00 a\\\"b\\u0041\\/\"],\n  \"bar\": {\"baz\": null, \"t\": true, \"f\": false},"
+            + " \"esc\\\\\": \"\\\\\\\\\", \"big\": [12345678901234567890, 1e400, 0.1, -0, 1E+2, 3e-2, 123456789012345678901234.5]\n}";
+
+    private static class Recorder implements Consumer {
+
+        final List<String> tokens = new ArrayList<>();
+
+        @Override
+        public void append(Token token) {
+            tokens.add(token + "@" + token.getOffset() + ":" + token.getLine() + ":" + token.getColumn());
+        }
+    }
+
+    private static List<String> expected(byte[] bytes) {
+        Recorder recorder = new Recorder();
+        new JsonUtf8StreamProducer(bytes).copyTo(recorder);
+        return recorder.tokens;
+    }
+
+    /**
+     * Feeds the bytes in chunks of random sizes.
+     */
+    private static List<String> pushed(byte[] bytes, Random random, int maxChunk) {
+        Recorder recorder = new Recorder();
+        JsonPushParser parser = new JsonPushParser(recorder);
+        for (int i = 0; i < bytes.length;) {
+            int n = Math.min(bytes.length - i, random.nextInt(maxChunk + 1));
+            parser.feed(bytes, i, n);
+            i += n;
+        }
+        parser.endOfInput();
+        return recorder.tokens;
+    }
+
+    @Test
+    public void testSameTokensAsStreamProducer() {
+        byte[] bytes = JSON.getBytes(UTF_8);
+        Recorder recorder = new Recorder();
+        JsonPushParser parser = new JsonPushParser(recorder);
+        parser.feed(bytes, 0, bytes.length);
+        parser.endOfInput();
+        assertThat(recorder.tokens, is(equalTo(expected(bytes))));
+    }
+
+    @Test
+    public void testAnyChunks() {
+        byte[] bytes = JSON.getBytes(UTF_8);
+        List<String> expected = expected(bytes);
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            assertThat(pushed(bytes, random, 1 + round % 20), is(equalTo(expected)));
+        }
+    }
+
+    @Test
+    public void testEverySplit() {
+        byte[] bytes = JSON.getBytes(UTF_8);
+        List<String> expected = expected(bytes);
+        for (int split = 0; split <= bytes.length; split++) {
+            Recorder recorder = new Recorder();
+            JsonPushParser parser = new JsonPushParser(recorder);
+            parser.feed(bytes, 0, split);
+            parser.feed(bytes, split, bytes.length - split);
+            parser.endOfInput();
+            assertThat(recorder.tokens, is(equalTo(expected)));
+        }
+    }
+
+    @Test
+    public void testLargeDocument() {
+        Random random = new Random(3);
+        StringBuilder b = new StringBuilder("[");
+        for (int i = 0; i < 2000; i++) {
+            b.append("{\"id\": ").append(random.nextLong()).append(", \"v\": ").append(random.nextDouble())
+                    .append(", \"s\": \"x\\ty").append(i).append("\u00e9\"},\n");
+        }
+        String json = b.append("null]").toString();
+        byte[] bytes = json.getBytes(UTF_8);
+        assertThat(pushed(bytes, random, 5000), is(equalTo(expected(bytes))));
+    }
+
+    @Test
+    public void testTokensAsSoonAsComplete() {
+        Recorder recorder = new Recorder();
+        JsonPushParser parser = new JsonPushParser(recorder);
+        parser.setTrackPositions(false);
+        parser.feed("[\"ab".getBytes(UTF_8), 0, 4);
+        assertThat(recorder.tokens.size(), is(1));
+        parser.feed("c\", 12".getBytes(UTF_8), 0, 6);
+        assertThat(recorder.tokens.size(), is(2));
+        parser.feed("3]".getBytes(UTF_8), 0, 2);
+        assertThat(recorder.tokens.size(), is(4));
+        assertThat(recorder.tokens.get(2), is("PRIMITIVE:123@-1:-1:-1"));
+        parser.endOfInput();
+    }
+
+    @Test
+    public void testValueAtEnd() {
+        JsonValueConsumer consumer = new JsonValueConsumer();
+        JsonPushParser parser = new JsonPushParser(consumer);
+        parser.feed("12".getBytes(UTF_8), 0, 2);
+        parser.feed("34".getBytes(UTF_8), 0, 2);
+        parser.endOfInput();
+        assertThat(consumer.getValue(), is(JsonValue.of(1234)));
+    }
+
+    @Test
+    public void testByteBuffer() {
+        byte[] bytes = JSON.getBytes(UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        JsonValueConsumer consumer = new JsonValueConsumer();
+        JsonPushParser parser = new JsonPushParser(consumer);
+        parser.feed(direct);
+        parser.endOfInput();
+        assertThat(direct.hasRemaining(), is(false));
+        assertThat(consumer.getValue(), is(JsonValue.parse(JSON)));
+
+        ByteBuffer heap = ByteBuffer.wrap(bytes, 3, 10);
+        parser = new JsonPushParser(new Recorder());
+        parser.feed(heap);
+        assertThat(heap.position(), is(13));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosed() {
+        JsonPushParser parser = new JsonPushParser(new Recorder());
+        parser.endOfInput();
+        parser.feed(new byte[1], 0, 1);
+    }
+
+    @Test
+    public void testErrors() {
+        assertError("[\"unterminated", "Expected '\"' found end of stream at line 0, position 15");
+        assertError("[1x]", "Expected separator found x");
+        assertError("[tru]", "Expected true found ] at line 0, position 5");
+        assertError("[-]", "Expected digit found ]");
+        assertError("[1e]", "Expected digit found ] at line 0, position 4");
+        assertError("[1e3456789012345678]", "Number out of range at line 0, position 20");
+        assertError("[\"\\u12g4\"]", "Expected hex digit found g");
+        assertError("[x]", "Expected value found x");
+        assertError("[\"\u00e4\"]".replace('\u00e4', '\u00ff'), null);
+        assertError("[\"\u00e4", "Expected '\"' found end of stream");
+    }
+
+    private static void assertError(String json, String message) {
+        byte[] bytes = json.getBytes(message == null ? Charset.forName("ISO-8859-1") : UTF_8);
+        // The error must not depend on where the chunks end
+        for (int split = 0; split <= bytes.length; split++) {
+            JsonPushParser parser = new JsonPushParser(new Recorder());
+            try {
+                parser.feed(bytes, 0, split);
+                parser.feed(bytes, split, bytes.length - split);
+                parser.endOfInput();
+                fail(json);
+            } catch (BrokenStreamException e) {
+                assertThat(e.getMessage(), containsString(message == null ? "Malformed UTF-8" : message));
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.mictale.jsonite.stream;
+
+import com.mictale.jsonite.JsonValue;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link JsonReader}
+ */
+public class JsonReaderTest {
+
+    private static final String JSON = "{\"id\": 42, \"nested\": {\"a\": [1, [2, 3], {}]}, \"name\": \"foo\", \"price\": 2.5, \"ok\": true, \"none\": null}";
+
+    @Test
+    public void testTypedAccessors() {
+        JsonReader reader = new JsonReader(JSON);
+        reader.beginObject();
+        assertThat(reader.nextName(), is("id"));
+        assertThat(reader.nextLong(), is(42L));
+        assertThat(reader.nextName(), is("nested"));
+        reader.skipValue();
+        assertThat(reader.nextName(), is("name"));
+        assertThat(reader.nextString(), is("foo"));
+        assertThat(reader.nextName(), is("price"));
+        assertThat(reader.nextDouble(), is(2.5));
+        assertThat(reader.nextName(), is("ok"));
+        assertThat(reader.nextBoolean(), is(true));
+        assertThat(reader.nextName(), is("none"));
+        reader.nextNull();
+        assertThat(reader.hasNext(), is(false));
+        reader.endObject();
+        assertThat(reader.peek(), is(TokenType.UNDEFINED));
+    }
+
+    @Test
+    public void testStopEarly() {
+        JsonReader reader = new JsonReader(JSON.getBytes(Charset.forName("UTF-8")));
+        reader.beginObject();
+        String name = null;
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("name")) {
+                name = reader.nextString();
+                break;
+            }
+            reader.skipValue();
+        }
+        assertThat(name, is("foo"));
+    }
+
+    @Test
+    public void testPeek() {
+        JsonReader reader = new JsonReader("[1]");
+        assertThat(reader.peek(), is(TokenType.START_ARRAY));
+        assertThat(reader.peek(), is(TokenType.START_ARRAY));
+        assertThat(reader.next(), is(TokenType.START_ARRAY));
+        assertThat(reader.next(), is(TokenType.PRIMITIVE));
+        assertThat(reader.next(), is(TokenType.END_ARRAY));
+        assertThat(reader.next(), is(TokenType.UNDEFINED));
+    }
+
+    @Test
+    public void testNextValue() {
+        JsonReader reader = new JsonReader(JSON);
+        reader.beginObject();
+        reader.nextName();
+        reader.skipValue();
+        reader.nextName();
+        JsonValue nested = reader.nextValue();
+        assertThat(nested, is(equalTo(Transformation.parse("{\"a\": [1, [2, 3], {}]}"))));
+        assertThat(reader.nextName(), is("name"));
+    }
+
+    @Test
+    public void testCopyValueTo() {
+        JsonReader reader = new JsonReader("[1, {\"a\": 2}] 3");
+        JsonValueConsumer consumer = new JsonValueConsumer();
+        reader.copyValueTo(consumer);
+        assertThat(consumer.getValue(), is(equalTo(Transformation.parse("[1, {\"a\": 2}]"))));
+        assertThat(reader.nextLong(), is(3L));
+    }
+
+    @Test
+    public void testNextValuePrimitive() {
+        assertThat(new JsonReader("true").nextValue(), sameInstance(JsonValue.TRUE));
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testWrongType() {
+        new JsonReader("\"foo\"").nextLong();
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testFractionAsLong() {
+        new JsonReader("1.5").nextLong();
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testExponentOutOfRange() {
+        new JsonReader("1e3456789012345678").nextValue();
+    }
+}
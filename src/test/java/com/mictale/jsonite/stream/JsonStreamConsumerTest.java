@@ -5,8 +5,12 @@ import com.mictale.jsonite.JsonValue;
 import org.junit.Test;
 
 import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.Random;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -69,4 +73,128 @@ public class JsonStreamConsumerTest {
         assertThat(w.toString(), equalTo("{\"foo\":1,\"bar\":2}"));
     }
 
+    private static String write(JsonValue value) {
+        StringWriter w = new StringWriter();
+        new JsonStreamConsumer(w).append(new Token(TokenType.PRIMITIVE, value));
+        return w.toString();
+    }
+
+    @Test
+    public void testAppendLongs() {
+        long[] values = {0, 7, -7, 10, 99, 100, -12345, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            assertThat(write(JsonValue.of(value)), equalTo(Long.toString(value)));
+        }
+    }
+
+    @Test
+    public void testAppendDoubles() {
+        assertThat(write(JsonValue.of(2.5)), equalTo("2.5"));
+        assertThat(write(JsonValue.of(-0.001)), equalTo("-0.001"));
+        assertThat(write(JsonValue.of(1e-4)), equalTo("1.0E-4"));
+        assertThat(write(JsonValue.of(1234567.5)), equalTo("1234567.5"));
+        assertThat(write(JsonValue.of(12345678.5)), equalTo("1.23456785E7"));
+        assertThat(write(JsonValue.of(1e23)), equalTo("1.0E23"));
+        assertThat(write(JsonValue.of(Double.MIN_VALUE)), equalTo("4.9E-324"));
+        assertThat(write(JsonValue.of(Double.MAX_VALUE)), equalTo("1.7976931348623157E308"));
+    }
+
+    @Test
+    public void testDoublesRoundTrip() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            double d = Double.longBitsToDouble(random.nextLong());
+            if (Double.isNaN(d) || Double.isInfinite(d) || (long) d == d) {
+                continue;
+            }
+            String s = write(JsonValue.of(d));
+            assertThat(s, Double.parseDouble(s), is(d));
+            assertThat(s, s.length() <= Double.toString(d).length(), is(true));
+        }
+    }
+
+    @Test
+    public void testAppendBigInteger() {
+        BigInteger big = new BigInteger("123456789012345678901234567890");
+        assertThat(write(JsonValue.of(big)), equalTo("123456789012345678901234567890"));
+    }
+
+    @Test
+    public void testEscapes() {
+        assertThat(write(JsonValue.of("a\"b\\c/d\b\f\n\r\t\u0001\u001f\u00e9")),
+            equalTo("\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\\u0001\\u001f\u00e9\""));
+    }
+
+    @Test
+    public void testControlCharactersAreEscaped() {
+        StringBuilder sb = new StringBuilder();
+        for (char ch = 0; ch < 0x20; ch++) {
+            sb.append(ch);
+        }
+        JsonValue value = JsonValue.of(sb.toString());
+        String json = write(value);
+        for (char ch = 0; ch < 0x20; ch++) {
+            assertThat(json.indexOf(ch), is(-1));
+        }
+        assertThat(json, containsString("\\u0000"));
+        assertThat(json, containsString("\\u001f"));
+        assertThat(Transformation.parse(json), equalTo(value));
+    }
+
+    @Test
+    public void testSmallBuffer() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            sb.append("word\n").append(i);
+        }
+        JsonValue value = Transformation.parse("{\"text\": " + JsonValue.of(sb.toString()) + ", \"n\": [1.5, 2, 3]}");
+        String expected = value.toString();
+
+        StringWriter w = new StringWriter();
+        Transformation.copy(new JsonStreamConsumer(w, NumberFormatter.MAX_LENGTH), value);
+        assertThat(w.toString(), equalTo(expected));
+        assertThat(Transformation.parse(w.toString()), equalTo(value));
+    }
+
+    @Test
+    public void testFlushAfterEachValue() {
+        StringWriter w = new StringWriter();
+        JsonStreamConsumer c = new JsonStreamConsumer(w);
+        c.append(new Token(TokenType.START_ARRAY, null));
+        c.append(new Token(TokenType.PRIMITIVE, JsonValue.of(1)));
+        assertThat(w.toString(), equalTo(""));
+        c.flush();
+        assertThat(w.toString(), equalTo("[1"));
+        c.append(new Token(TokenType.END_ARRAY, null));
+        assertThat(w.toString(), equalTo("[1]"));
+    }
+
+    @Test
+    public void testLargeDocumentIsWrittenWhileOpen() {
+        StringWriter w = new StringWriter();
+        int bufferSize = 64;
+        JsonStreamConsumer c = new JsonStreamConsumer(w, bufferSize);
+        c.append(new Token(TokenType.START_ARRAY, null));
+        int length = 1;
+        for (int i = 0; i < 1000; i++) {
+            c.append(new Token(TokenType.PRIMITIVE, JsonValue.of(12345)));
+            length += i == 0 ? 5 : 6;
+            assertThat(length - w.getBuffer().length() <= bufferSize, is(true));
+        }
+        c.append(new Token(TokenType.END_ARRAY, null));
+        assertThat(w.getBuffer().length(), is(length + 1));
+    }
+
+    @Test
+    public void testLineDelimited() {
+        StringWriter w = new StringWriter();
+        JsonStreamConsumer c = new JsonStreamConsumer(w);
+        c.setLineDelimited(true);
+        Transformation.copy(c, Transformation.parse("{\"a\": [1, 2]}"));
+        Transformation.copy(c, JsonValue.of("b"));
+        Transformation.copy(c, Transformation.parse("[]"));
+        assertThat(w.toString(), equalTo(""));
+        c.flush();
+        assertThat(w.toString(), equalTo("{\"a\":[1,2]}\n\"b\"\n[]\n"));
+    }
 }
@@ -0,0 +1,160 @@
+package com.mictale.jsonite.stream;
+
+import com.mictale.jsonite.JsonType;
+import com.mictale.jsonite.JsonValue;
+import com.mictale.jsonite.SourcePosition;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link JsonStreamProducer}
+ */
+public class JsonStreamProducerTest {
+
+    private static final String JSON = "{\n  \"foo\": [1, 2.5, \"a\\\"b\"],\n  \"bar\": {\"baz\": null}\n}";
+
+    private static List<SourcePosition> positions(Producer producer) {
+        final List<SourcePosition> positions = new ArrayList<>();
+        producer.copyTo(new Consumer() {
+            @Override
+            public void append(Token token) {
+                positions.add(token.getPosition());
+            }
+        });
+        return positions;
+    }
+
+    @Test
+    public void testSmallBuffer() {
+        JsonValue expected = Transformation.asValue(new JsonStreamProducer(JSON));
+        for (int size = 1; size < 8; size++) {
+            JsonValue value = Transformation.asValue(new JsonStreamProducer(new StringReader(JSON), size));
+            assertThat(value, is(equalTo(expected)));
+        }
+    }
+
+    @Test
+    public void testPositionsAcrossBlocks() {
+        List<SourcePosition> expected = positions(new JsonStreamProducer(JSON));
+        for (int size = 1; size < 8; size++) {
+            List<SourcePosition> actual = positions(new JsonStreamProducer(new StringReader(JSON), size));
+            assertThat(actual.size(), is(expected.size()));
+            for (int i = 0; i < expected.size(); i++) {
+                assertThat(actual.get(i).getPosition(), is(expected.get(i).getPosition()));
+                assertThat(actual.get(i).getLine(), is(expected.get(i).getLine()));
+                assertThat(actual.get(i).getColumn(), is(expected.get(i).getColumn()));
+            }
+        }
+    }
+
+    @Test
+    public void testLinePosition() {
+        List<SourcePosition> positions = positions(new JsonStreamProducer(JSON));
+        SourcePosition last = positions.get(positions.size() - 1);
+        assertThat(last.getLine(), is(3));
+        assertThat(last.getColumn(), is(1));
+    }
+
+    @Test
+    public void testPositionsOff() {
+        JsonStreamProducer producer = new JsonStreamProducer(JSON);
+        producer.setTrackPositions(false);
+        for (SourcePosition position : positions(producer)) {
+            assertThat(position, sameInstance(SourcePosition.UNSPECIFIED));
+        }
+
+        producer = new JsonStreamProducer(JSON);
+        producer.setTrackPositions(false);
+        assertThat(Transformation.asValue(producer), is(equalTo(Transformation.parse(JSON))));
+    }
+
+    @Test
+    public void testReuseTokens() {
+        JsonStreamProducer producer = new JsonStreamProducer(JSON);
+        producer.setReuseTokens(true);
+        assertThat(Transformation.asValue(producer), is(equalTo(Transformation.parse(JSON))));
+    }
+
+    @Test
+    public void testReusedTokenPrimitives() {
+        JsonStreamProducer producer = new JsonStreamProducer("[\"foo\", 42, 2.5, true]");
+        producer.setReuseTokens(true);
+        final List<Object> values = new ArrayList<>();
+        final Token[] first = new Token[1];
+        producer.copyTo(new Consumer() {
+            @Override
+            public void append(Token token) {
+                if (first[0] == null) {
+                    first[0] = token;
+                }
+                assertThat(token, sameInstance(first[0]));
+                if (token.getValueType() == JsonType.STRING) {
+                    values.add(token.textValue().toString());
+                } else if (token.getValueType() == JsonType.NUMBER) {
+                    values.add(token.doubleValue());
+                } else if (token.getValueType() == JsonType.BOOLEAN) {
+                    values.add(token.booleanValue());
+                }
+            }
+        });
+        assertThat(values.toString(), is("[foo, 42.0, 2.5, true]"));
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testUnterminatedString() {
+        Transformation.parse("\"foo");
+    }
+
+    private static JsonValue number(String json) {
+        return Transformation.parse("[" + json + "]").asArray().get(0);
+    }
+
+    @Test
+    public void testLongRange() {
+        assertThat(number("9223372036854775807").longValue(), is(Long.MAX_VALUE));
+        assertThat(number("-9223372036854775808").longValue(), is(Long.MIN_VALUE));
+        assertThat(number("-0").longValue(), is(0L));
+        assertThat(number("1234567890123456789").longValue(), is(1234567890123456789L));
+    }
+
+    @Test
+    public void testBigInteger() {
+        assertThat(number("9223372036854775808").objectValue(), is((Object) new BigInteger("9223372036854775808")));
+        assertThat(number("-9223372036854775809").objectValue(), is((Object) new BigInteger("-9223372036854775809")));
+        assertThat(number("123456789012345678901234567890").stringValue(), is("123456789012345678901234567890"));
+    }
+
+    @Test
+    public void testBigDecimal() {
+        assertThat(number("1e400").objectValue(), is((Object) new BigDecimal("1e400")));
+        assertThat(number("-2.5E+999").objectValue(), is((Object) new BigDecimal("-2.5E+999")));
+    }
+
+    @Test
+    public void testDoubles() {
+        String[] numbers = {
+            "0.1", "2.5", "-3.75e-2", "1E10", "1e+22", "1e23", "0.30000000000000004",
+            "9007199254740993.0", "1.7976931348623157e308", "2.2250738585072011e-308",
+            "4.9e-324", "1e-400", "123456789012345678901234567890.5", "0.000000000000000000000000123"
+        };
+        for (String n : numbers) {
+            assertThat(n, number(n).doubleValue(), is(Double.parseDouble(n)));
+        }
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testMissingExponent() {
+        number("1e");
+    }
+}
@@ -0,0 +1,132 @@
+package com.mictale.jsonite.stream;
+
+import com.mictale.jsonite.JsonValue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link JsonUtf8StreamConsumer}
+ */
+public class JsonUtf8StreamConsumerTest {
+
+    private static final JsonValue VALUE = Transformation.parse(
+        "{\"name\": \"caf\u00e9 \u20ac \ud83d\ude00\", \"escapes\": \"a\\\"b\\\\c\\n\\u0001\", "
+        + "\"n\": [1, -2.5, 1e300, 9223372036854775807, true, false, null], \"empty\": {}}");
+
+    private static byte[] expected(JsonValue value) throws UnsupportedEncodingException {
+        return value.toString().getBytes("UTF-8");
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        buffer.flip();
+        byte[] b = new byte[buffer.remaining()];
+        buffer.get(b);
+        return b;
+    }
+
+    @Test
+    public void testOutputStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Transformation.copy(out, VALUE);
+        assertThat(out.toByteArray(), is(expected(VALUE)));
+        assertThat(Transformation.parse(out.toByteArray()), equalTo(VALUE));
+    }
+
+    @Test
+    public void testSmallBuffer() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Transformation.copy(new JsonUtf8StreamConsumer(out, NumberFormatter.MAX_LENGTH), VALUE);
+        assertThat(out.toByteArray(), is(expected(VALUE)));
+    }
+
+    @Test
+    public void testChannel() throws Exception {
+        for (boolean direct : new boolean[] {false, true}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Transformation.copy(new JsonUtf8StreamConsumer(Channels.newChannel(out), 64, direct), VALUE);
+            assertThat(out.toByteArray(), is(expected(VALUE)));
+        }
+    }
+
+    @Test
+    public void testByteBuffer() throws Exception {
+        for (ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.allocate(1024), ByteBuffer.allocateDirect(1024)}) {
+            buffer.put((byte) ' ');
+            Transformation.copy(new JsonUtf8StreamConsumer(buffer), VALUE);
+            byte[] expected = expected(VALUE);
+            byte[] actual = bytes(buffer);
+            assertThat(actual.length, is(expected.length + 1));
+            assertThat(Transformation.parse(actual), equalTo(VALUE));
+        }
+    }
+
+    @Test
+    public void testByteBufferRange() throws Exception {
+        byte[] expected = expected(VALUE);
+        ByteBuffer heap = ByteBuffer.allocate(expected.length + 8);
+        heap.position(2);
+        ByteBuffer slice = heap.slice();
+        ByteBuffer[] buffers = {slice, ByteBuffer.allocateDirect(expected.length + 8)};
+        for (ByteBuffer buffer : buffers) {
+            while (buffer.hasRemaining()) {
+                buffer.put((byte) 'x');
+            }
+            buffer.position(3);
+            buffer.limit(3 + expected.length);
+            Transformation.copy(new JsonUtf8StreamConsumer(buffer), VALUE);
+            assertThat(buffer.position(), is(3 + expected.length));
+            buffer.clear();
+            byte[] actual = new byte[buffer.remaining()];
+            buffer.get(actual);
+            for (int i = 0; i < actual.length; i++) {
+                byte b = i < 3 || i >= 3 + expected.length ? (byte) 'x' : expected[i - 3];
+                assertThat(actual[i], is(b));
+            }
+        }
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testHeapBufferOverflow() {
+        Transformation.copy(new JsonUtf8StreamConsumer(ByteBuffer.allocate(16)), VALUE);
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testDirectBufferOverflow() {
+        Transformation.copy(new JsonUtf8StreamConsumer(ByteBuffer.allocateDirect(16)), VALUE);
+    }
+
+    @Test
+    public void testUnpairedSurrogate() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Transformation.copy(out, JsonValue.of("a\ud800b"));
+        assertThat(out.toString("UTF-8"), is("\"a\\ud800b\""));
+    }
+
+    @Test
+    public void testLineDelimited() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonUtf8StreamConsumer c = new JsonUtf8StreamConsumer(out);
+        c.setLineDelimited(true);
+        Transformation.copy(c, VALUE);
+        Transformation.copy(c, JsonValue.of(1));
+        assertThat(out.size(), is(0));
+        c.flush();
+        assertThat(out.toString("UTF-8"), is(VALUE + "\n1\n"));
+
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        c = new JsonUtf8StreamConsumer(buffer);
+        c.setLineDelimited(true);
+        Transformation.copy(c, JsonValue.of(1));
+        Transformation.copy(c, JsonValue.of(2));
+        assertThat(new String(bytes(buffer), "UTF-8"), is("1\n2\n"));
+    }
+}
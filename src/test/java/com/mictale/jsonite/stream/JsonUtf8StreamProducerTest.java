@@ -0,0 +1,111 @@
+package com.mictale.jsonite.stream;
+
+import com.mictale.jsonite.JsonString;
+import com.mictale.jsonite.JsonValue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link JsonUtf8StreamProducer}
+ */
+public class JsonUtf8StreamProducerTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String JSON = "{\n  \"gr\u00fc\u00dfe\": [1, -2.5e3, \"\u20ac \ud83d\ude00 a\\\"b\\u0041\"],\n  \"bar\": {\"baz\": null, \"t\": true}\n}";
+
+    private static List<String> tokens(Producer producer) {
+        final List<String> tokens = new ArrayList<>();
+        producer.copyTo(new Consumer() {
+            @Override
+            public void append(Token token) {
+                tokens.add(token.toString() + "@" + token.getPosition().getLine() + ":" + token.getPosition().getColumn());
+            }
+        });
+        return tokens;
+    }
+
+    @Test
+    public void testSameTokensAsCharacterStream() {
+        List<String> expected = tokens(new JsonStreamProducer(JSON));
+        assertThat(tokens(new JsonUtf8StreamProducer(JSON.getBytes(UTF_8))), is(equalTo(expected)));
+    }
+
+    @Test
+    public void testSmallBuffer() {
+        List<String> expected = tokens(new JsonStreamProducer(JSON));
+        byte[] bytes = JSON.getBytes(UTF_8);
+        for (int size = 1; size < 8; size++) {
+            List<String> actual = tokens(new JsonUtf8StreamProducer(new ByteArrayInputStream(bytes), size));
+            assertThat(actual, is(equalTo(expected)));
+        }
+    }
+
+    @Test
+    public void testByteBuffer() {
+        JsonValue expected = Transformation.parse(JSON);
+        byte[] bytes = JSON.getBytes(UTF_8);
+
+        ByteBuffer heap = ByteBuffer.wrap(bytes);
+        assertThat(Transformation.asValue(new JsonUtf8StreamProducer(heap)), is(equalTo(expected)));
+        assertThat(heap.position(), is(0));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        assertThat(Transformation.asValue(new JsonUtf8StreamProducer(direct)), is(equalTo(expected)));
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        Path path = Files.createTempFile("jsonite", ".json");
+        try {
+            Files.write(path, JSON.getBytes(UTF_8));
+            assertThat(Transformation.parse(path), is(equalTo(Transformation.parse(JSON))));
+
+            List<String> expected = tokens(new JsonStreamProducer(JSON));
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                for (int size = 1; size < 8; size++) {
+                    assertThat(tokens(new JsonUtf8StreamProducer(channel, size)), is(equalTo(expected)));
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testParseString() {
+        JsonValue value = Transformation.parse("\"\u00e4\u00f6\u00fc\"".getBytes(UTF_8));
+        assertThat(value, is(JsonString.of("\u00e4\u00f6\u00fc")));
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testMalformed() {
+        Transformation.parse(new byte[] { '"', (byte) 0xc3, '"' });
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testOverlong() {
+        Transformation.parse(new byte[] { '"', (byte) 0xc0, (byte) 0xaf, '"' });
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testUnterminatedString() {
+        Transformation.parse("\"foo".getBytes(UTF_8));
+    }
+}
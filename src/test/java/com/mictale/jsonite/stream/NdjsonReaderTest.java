@@ -0,0 +1,131 @@
+package com.mictale.jsonite.stream;
+
+import com.mictale.jsonite.JsonValue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link NdjsonReader}
+ */
+public class NdjsonReaderTest {
+
+    private static final String NDJSON = "{\"id\": 1, \"tags\": [\"a\"]}\n[1, 2]\n\n\"text\"\r\n42\n";
+
+    private static List<JsonValue> read(NdjsonReader reader) {
+        List<JsonValue> values = new ArrayList<>();
+        while (reader.hasNext()) {
+            values.add(reader.next());
+        }
+        return values;
+    }
+
+    @Test
+    public void testIterator() {
+        List<JsonValue> values = read(new NdjsonReader(new StringReader(NDJSON)));
+        assertThat(values.size(), is(4));
+        assertThat(values.get(0), is(equalTo(Transformation.parse("{\"id\": 1, \"tags\": [\"a\"]}"))));
+        assertThat(values.get(1), is(equalTo(Transformation.parse("[1, 2]"))));
+        assertThat(values.get(2), is(JsonValue.of("text")));
+        assertThat(values.get(3), is(JsonValue.of(42)));
+    }
+
+    @Test
+    public void testEmpty() {
+        NdjsonReader reader = new NdjsonReader(new StringReader("\n \n"));
+        assertThat(reader.hasNext(), is(false));
+        try {
+            reader.next();
+            fail();
+        } catch (NoSuchElementException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testCopyNextTo() {
+        NdjsonReader reader = new NdjsonReader(new ByteArrayInputStream(NDJSON.getBytes()));
+        JsonValueConsumer consumer = new JsonValueConsumer();
+        assertThat(reader.copyNextTo(consumer), is(true));
+        assertThat(consumer.getValue(), is(equalTo(Transformation.parse("{\"id\": 1, \"tags\": [\"a\"]}"))));
+        int count = 1;
+        while (reader.copyNextTo(new JsonValueConsumer())) {
+            count++;
+        }
+        assertThat(count, is(4));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonUtf8StreamConsumer consumer = new JsonUtf8StreamConsumer(out);
+        consumer.setLineDelimited(true);
+        NdjsonReader reader = new NdjsonReader(new StringReader(NDJSON));
+        while (reader.copyNextTo(consumer)) {
+            // Copy all documents
+        }
+        consumer.flush();
+        assertThat(out.toString("UTF-8"), is("{\"id\":1,\"tags\":[\"a\"]}\n[1,2]\n\"text\"\n42\n"));
+    }
+
+    @Test
+    public void testDocumentsOnOneLine() {
+        List<JsonValue> values = read(new NdjsonReader(new StringReader("{}{} 1 2\n")));
+        assertThat(values.size(), is(4));
+        assertThat(values.get(1), is(equalTo(Transformation.parse("{}"))));
+        assertThat(values.get(3), is(JsonValue.of(2)));
+    }
+
+    @Test
+    public void testErrorTellsLine() {
+        NdjsonReader reader = new NdjsonReader(new StringReader("{\"a\": 1}\n{\"b\": tru}\n"));
+        reader.next();
+        try {
+            reader.next();
+            fail();
+        } catch (BrokenStreamException e) {
+            assertThat(e.getMessage(), containsString("line 1"));
+        }
+    }
+
+    @Test
+    public void testLargeInput() {
+        final int documents = 200000;
+        // Generates the input on the fly, so that it is never held in memory as a whole
+        InputStream in = new InputStream() {
+
+            private final byte[] line = "{\"id\": 12345, \"name\": \"x\"}\n".getBytes();
+
+            private long index;
+
+            @Override
+            public int read() {
+                if (index >= (long) documents * line.length) {
+                    return -1;
+                }
+                return line[(int) (index++ % line.length)];
+            }
+        };
+
+        NdjsonReader reader = new NdjsonReader(in);
+        int count = 0;
+        while (reader.hasNext()) {
+            assertThat(reader.next().asObject().size(), is(2));
+            count++;
+        }
+        assertThat(count, is(documents));
+    }
+}
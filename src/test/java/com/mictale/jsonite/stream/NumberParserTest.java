@@ -0,0 +1,79 @@
+package com.mictale.jsonite.stream;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import com.mictale.jsonite.JsonNumber;
+import com.mictale.jsonite.JsonValue;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link NumberParser}.
+ */
+public class NumberParserTest {
+
+    private static final String[] NUMBERS = {
+        "0", "-0", "7", "-42", "9223372036854775807", "-9223372036854775808", "9223372036854775808",
+        "-9223372036854775809", "123456789012345678901234567890", "0.5", "-1.5e3", "1E+2", "2.5e-3",
+        "3.141592653589793238462643383279", "1e308", "1e309", "-1e400", "4.9e-324", "1e-400", "1."
+    };
+
+    private static JsonValue parse(String s) {
+        char[] chars = ("[" + s + "]").toCharArray();
+        return NumberParser.parse(chars, 1, s.length());
+    }
+
+    @Test
+    public void testParse() {
+        assertThat(parse("-42"), is(JsonNumber.of(-42)));
+        assertThat(parse("9223372036854775807"), is(JsonNumber.of(Long.MAX_VALUE)));
+        assertThat(parse("9223372036854775808"), is(JsonNumber.of(new BigInteger("9223372036854775808"))));
+        assertThat(parse("-1.5e3"), is(JsonNumber.of(-1500.0)));
+        assertThat(parse("1e400"), is(JsonNumber.of(new BigDecimal("1e400"))));
+    }
+
+    @Test
+    public void testSameAsParsers() {
+        for (String s : NUMBERS) {
+            JsonValue expected = JsonValue.parse("[" + s + "]").asArray().get(0);
+            assertThat(s, parse(s), is(expected));
+
+            JsonValueConsumer consumer = new JsonValueConsumer();
+            JsonPushParser push = new JsonPushParser(consumer);
+            byte[] bytes = ("[" + s + "]").getBytes();
+            push.feed(bytes, 0, bytes.length);
+            push.endOfInput();
+            assertThat(s, consumer.getValue().asArray().get(0), is(expected));
+
+            JsonValueConsumer indexed = new JsonValueConsumer();
+            new JsonIndexProducer(bytes).copyTo(indexed);
+            assertThat(s, indexed.getValue().asArray().get(0), is(expected));
+
+            assertThat(s, JsonValue.parseLazily("[" + s + "]").asArray().get(0), is(expected));
+        }
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testMissingDigits() {
+        parse("-");
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testMissingExponent() {
+        parse("1e+");
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testExponentOutOfRange() {
+        parse("1e3456789012345678");
+    }
+
+    @Test(expected = BrokenStreamException.class)
+    public void testTrailingCharacters() {
+        parse("12a");
+    }
+}
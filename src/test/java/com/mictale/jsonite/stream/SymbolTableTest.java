@@ -0,0 +1,150 @@
+package com.mictale.jsonite.stream;
+
+import com.mictale.jsonite.JsonArray;
+import com.mictale.jsonite.JsonObject;
+import com.mictale.jsonite.JsonString;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link SymbolTable}
+ */
+public class SymbolTableTest {
+
+    private static final String RECORDS = "[{\"id\": 1, \"name\": \"a\"}, {\"id\": 2, \"name\": \"id\"}]";
+
+    private static String firstName(JsonArray records, int index) {
+        return records.get(index).asObject().keySet().iterator().next();
+    }
+
+    private static JsonArray parse(Producer producer) {
+        JsonValueConsumer consumer = new JsonValueConsumer();
+        producer.copyTo(consumer);
+        return consumer.getValue().asArray();
+    }
+
+    @Test
+    public void testLookup() {
+        SymbolTable symbols = new SymbolTable();
+        char[] chars = "idx".toCharArray();
+        JsonString id = symbols.lookup(chars, 2);
+        assertThat(id.stringValue(), is("id"));
+        assertThat(symbols.lookup("id".toCharArray(), 2), sameInstance(id));
+        assertThat(symbols.lookup(chars, 3).stringValue(), is("idx"));
+        assertThat(symbols.lookup(new char[0], 0).stringValue(), is(""));
+    }
+
+    @Test
+    public void testCapacity() {
+        assertThat(new SymbolTable(1).capacity(), is(1));
+        assertThat(new SymbolTable(100).capacity(), is(128));
+        assertThat(new SymbolTable(128).capacity(), is(128));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalCapacity() {
+        new SymbolTable(0);
+    }
+
+    @Test
+    public void testBounded() {
+        SymbolTable symbols = new SymbolTable(4);
+        for (int i = 0; i < 1000; i++) {
+            char[] chars = ("key" + i).toCharArray();
+            assertThat(symbols.lookup(chars, chars.length).stringValue(), is("key" + i));
+        }
+
+        char[] name = "a".toCharArray();
+        assertThat(symbols.lookup(name, 1), sameInstance(symbols.lookup(name, 1)));
+
+        char[] longName = new char[SymbolTable.MAX_NAME_LENGTH + 1];
+        assertThat(symbols.lookup(longName, longName.length), not(sameInstance(symbols.lookup(longName, longName.length))));
+    }
+
+    @Test
+    public void testProducerInternsNames() {
+        JsonArray records = parse(new JsonStreamProducer(RECORDS));
+        assertThat(firstName(records, 1), sameInstance(firstName(records, 0)));
+        assertThat(records.get(1).asObject().get("name").stringValue(), is("id"));
+
+        records = parse(new JsonUtf8StreamProducer(RECORDS.getBytes(Charset.forName("UTF-8"))));
+        assertThat(firstName(records, 1), sameInstance(firstName(records, 0)));
+    }
+
+    @Test
+    public void testSharedTable() {
+        SymbolTable symbols = new SymbolTable(1024);
+        JsonStreamProducer first = new JsonStreamProducer(RECORDS);
+        first.setSymbolTable(symbols);
+        JsonUtf8StreamProducer second = new JsonUtf8StreamProducer(RECORDS.getBytes(Charset.forName("UTF-8")));
+        second.setSymbolTable(symbols);
+        String id = firstName(parse(first), 0);
+        assertThat(firstName(parse(second), 0), sameInstance(id));
+
+        JsonReader reader = new JsonReader(RECORDS);
+        reader.setSymbolTable(symbols);
+        reader.beginArray();
+        reader.beginObject();
+        assertThat(reader.nextName(), sameInstance(id));
+    }
+
+    @Test
+    public void testWithoutTable() {
+        JsonReader reader = new JsonReader("{\"a\": {\"a\": 1}}");
+        reader.setSymbolTable(null);
+        reader.beginObject();
+        String outer = reader.nextName();
+        reader.beginObject();
+        String inner = reader.nextName();
+        assertThat(inner, is(outer));
+        assertThat(inner, not(sameInstance(outer)));
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final SymbolTable symbols = new SymbolTable(16);
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 2000; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"k").append(i % 50).append("\": ").append(i).append('}');
+        }
+        json.append(']');
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int n = 0; n < 20; n++) {
+                            JsonStreamProducer producer = new JsonStreamProducer(json.toString());
+                            producer.setSymbolTable(symbols);
+                            JsonArray records = parse(producer);
+                            for (int i = 0; i < records.size(); i++) {
+                                JsonObject obj = records.get(i).asObject();
+                                assertThat(obj.get("k" + i % 50).longValue(), is((long) i));
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(String.valueOf(failure.get()), failure.get(), is(nullValue()));
+    }
+}
@@ -0,0 +1,101 @@
+package com.mictale.jsonite.stream;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link TextScanner}, against whichever version the runtime picks.
+ */
+public class TextScannerTest {
+
+    private static final String ALPHABET = "abc \t\r\n\"\\/\u0001\u001f\u0080\u00e9\u20ac\uffff";
+
+    private static boolean plain(char ch) {
+        return ch != '"' && ch != '\\' && ch != '\n';
+    }
+
+    private static boolean blank(int ch) {
+        return ch == ' ' || ch == '\t' || ch == '\r';
+    }
+
+    private static boolean escaped(char ch) {
+        return ch < 0x20 || ch == '"' || ch == '\\' || ch == '/';
+    }
+
+    private static char[] random(Random random, int length, int seldom) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            // Mostly runs of a single kind, so that matches fall anywhere in a vector
+            chars[i] = random.nextInt(seldom) == 0 ? ALPHABET.charAt(random.nextInt(ALPHABET.length())) : (i % 3 == 0 ? ' ' : 'x');
+        }
+        return chars;
+    }
+
+    @Test
+    public void testAgainstSimpleLoops() {
+        Random random = new Random(42);
+        for (int round = 0; round < 5000; round++) {
+            char[] chars = random(random, random.nextInt(200), 1 + random.nextInt(100));
+            byte[] bytes = new byte[chars.length];
+            for (int i = 0; i < chars.length; i++) {
+                bytes[i] = (byte) chars[i];
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes);
+            int from = chars.length == 0 ? 0 : random.nextInt(chars.length);
+            int to = from + random.nextInt(chars.length - from + 1);
+
+            int i = from;
+            while (i < to && plain(chars[i])) {
+                i++;
+            }
+            assertThat(TextScanner.endOfPlain(chars, from, to), is(i));
+
+            i = from;
+            while (i < to && bytes[i] >= 0 && plain((char) bytes[i])) {
+                i++;
+            }
+            assertThat(TextScanner.endOfAscii(bytes, from, to), is(i));
+            assertThat(TextScanner.endOfAscii(buffer, from, to), is(i));
+
+            i = from;
+            while (i < to && blank(chars[i])) {
+                i++;
+            }
+            assertThat(TextScanner.endOfBlanks(chars, from, to), is(i));
+
+            i = from;
+            while (i < to && blank(bytes[i])) {
+                i++;
+            }
+            assertThat(TextScanner.endOfBlanks(bytes, from, to), is(i));
+            assertThat(TextScanner.endOfBlanks(buffer, from, to), is(i));
+
+            i = from;
+            while (i < to && !escaped(chars[i])) {
+                i++;
+            }
+            assertThat(TextScanner.indexOfEscape(chars, from, to), is(i));
+        }
+    }
+
+    @Test
+    public void testLongBlanks() {
+        char[] chars = new char[1000];
+        byte[] bytes = new byte[chars.length];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = ' ';
+            bytes[i] = ' ';
+        }
+        chars[777] = 'x';
+        bytes[777] = 'x';
+        assertThat(TextScanner.endOfBlanks(chars, 1, chars.length), is(777));
+        assertThat(TextScanner.endOfBlanks(bytes, 1, bytes.length), is(777));
+        assertThat(TextScanner.endOfBlanks(chars, 778, chars.length), is(chars.length));
+    }
+}